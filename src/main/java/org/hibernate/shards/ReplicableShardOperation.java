@@ -0,0 +1,31 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards;
+
+/**
+ * Marker for {@link ReadOnlyShardOperation}s that only need a session on the
+ * shard, such as a get() by id.  Unlike the operations of a sharded criteria
+ * or query, they don't rely on any state the sharded session has set up on
+ * the shard, so access strategies may execute them against a new Shard for a
+ * read replica of the shard.
+ *
+ * @param <T> the return type of the operation
+ */
+public interface ReplicableShardOperation<T> extends ReadOnlyShardOperation<T> {
+}
@@ -20,6 +20,8 @@ package org.hibernate.shards;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.classic.Session;
 import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.shards.criteria.CriteriaEvent;
@@ -30,6 +32,7 @@ import org.hibernate.shards.query.QueryId;
 import org.hibernate.shards.query.ShardedQuery;
 import org.hibernate.shards.session.OpenSessionEvent;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -97,6 +100,11 @@ public interface Shard {
      */
     Object uniqueResult(CriteriaId criteriaId);
 
+    /**
+     * @see Criteria#scroll(ScrollMode)
+     */
+    ScrollableResults scroll(CriteriaId criteriaId, ScrollMode scrollMode);
+
     /**
      * @return the ids of the virtual shards that are mapped to this physical shard.
      *         The returned Set is unmodifiable.
@@ -136,4 +144,14 @@ public interface Shard {
      * @see Query#uniqueResult()
      */
     Object uniqueResult(QueryId queryId);
+
+    /**
+     * @see Query#iterate()
+     */
+    Iterator<Object> iterate(QueryId queryId);
+
+    /**
+     * @see Query#scroll(ScrollMode)
+     */
+    ScrollableResults scroll(QueryId queryId, ScrollMode scrollMode);
 }
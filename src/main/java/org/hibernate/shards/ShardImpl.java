@@ -21,6 +21,8 @@ package org.hibernate.shards;
 import org.hibernate.Criteria;
 import org.hibernate.Interceptor;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.classic.Session;
 import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.shards.criteria.CriteriaEvent;
@@ -37,6 +39,7 @@ import org.hibernate.shards.util.Preconditions;
 import org.hibernate.shards.util.Sets;
 
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -271,6 +274,11 @@ public class ShardImpl implements Shard {
         return criteriaMap.get(criteriaId).uniqueResult();
     }
 
+    @Override
+    public ScrollableResults scroll(final CriteriaId criteriaId, final ScrollMode scrollMode) {
+        return criteriaMap.get(criteriaId).scroll(scrollMode);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public List<Object> list(final QueryId queryId) {
@@ -287,6 +295,17 @@ public class ShardImpl implements Shard {
         return queryMap.get(queryId).uniqueResult();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<Object> iterate(final QueryId queryId) {
+        return queryMap.get(queryId).iterate();
+    }
+
+    @Override
+    public ScrollableResults scroll(final QueryId queryId, final ScrollMode scrollMode) {
+        return queryMap.get(queryId).scroll(scrollMode);
+    }
+
     @Override
     public Set<ShardId> getShardIds() {
         return shardIds;
@@ -38,6 +38,39 @@ public final class ShardedEnvironment {
      */
     public static final String CHECK_ALL_ASSOCIATED_OBJECTS_FOR_DIFFERENT_SHARDS = "hibernate.shard.enable_cross_shard_relationship_checks";
 
+    /**
+     * Configuration property for the default timeout, in seconds, of criteria
+     * and queries executed by a sharded session.  It is applied as the JDBC
+     * query timeout on each shard and, when the shards are accessed with a
+     * {@link org.hibernate.shards.strategy.access.TimeoutAwareShardAccessStrategy},
+     * as the deadline for all shards to complete.  Calling setTimeout on a
+     * criteria or query overrides it.  Must be an Integer, 0 or absent means no timeout.
+     */
+    public static final String QUERY_TIMEOUT = "hibernate.shard.query_timeout";
+
+    /**
+     * Configuration property for the maximum number of threads of the executor
+     * that a sharded session factory creates for an
+     * {@link org.hibernate.shards.strategy.ExecutorAwareShardStrategyFactory}.
+     * Must be an Integer, defaults to 16.
+     */
+    public static final String EXECUTOR_MAX_THREADS = "hibernate.shard.executor.max_threads";
+
+    /**
+     * Configuration property for the maximum number of operations the executor
+     * runs against the same physical shard at the same time, so a single slow
+     * shard can't tie up all threads.  Must be an Integer, defaults to 4.
+     */
+    public static final String EXECUTOR_MAX_CONCURRENCY_PER_SHARD = "hibernate.shard.executor.max_concurrency_per_shard";
+
+    /**
+     * Configuration property for the maximum number of operations that wait
+     * for a thread or for their shard before the executor rejects new ones
+     * with a {@link org.hibernate.shards.strategy.access.ShardAccessRejectedException}.
+     * Must be an Integer, defaults to 256.
+     */
+    public static final String EXECUTOR_MAX_QUEUED_TASKS = "hibernate.shard.executor.max_queued_tasks";
+
     /**
      * Unique identifier for a shard.  Must be an Integer.
      */
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.criteria;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.CriteriaQuery;
+import org.hibernate.criterion.Projection;
+import org.hibernate.shards.util.Preconditions;
+import org.hibernate.type.Type;
+
+/**
+ * An aggregate that can't be merged exactly from the partial aggregates of
+ * the shards, but can be estimated from sketches of their results that can
+ * be merged.  The count of distinct values is estimated with a HyperLogLog
+ * sketch and percentiles with a t-digest, both within about 1%.
+ * <p/>
+ * The shards don't run this projection themselves; every shard returns the
+ * distinct values of the property instead, so it can only be set on a
+ * {@link ShardedCriteria}.  That is as much data as an exact distinct query
+ * transfers: what the sketches bound is the memory needed to merge the
+ * results of the shards, not the amount of data the shards send.
+ *
+ * @see ShardedProjections
+ */
+public class ApproximateProjection implements Projection {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Function {
+        COUNT_DISTINCT, PERCENTILE
+    }
+
+    private final Function function;
+
+    private final String propertyName;
+
+    // the fraction of values below the percentile, only used for PERCENTILE
+    private final double quantile;
+
+    ApproximateProjection(final Function function, final String propertyName, final double quantile) {
+        Preconditions.checkNotNull(function);
+        Preconditions.checkNotNull(propertyName);
+        Preconditions.checkArgument(quantile >= 0 && quantile <= 1);
+        this.function = function;
+        this.propertyName = propertyName;
+        this.quantile = quantile;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public double getQuantile() {
+        return quantile;
+    }
+
+    @Override
+    public String toSqlString(final Criteria criteria, final int position, final CriteriaQuery criteriaQuery) {
+        throw unsupported();
+    }
+
+    @Override
+    public String toGroupSqlString(final Criteria criteria, final CriteriaQuery criteriaQuery) {
+        throw unsupported();
+    }
+
+    @Override
+    public Type[] getTypes(final Criteria criteria, final CriteriaQuery criteriaQuery) {
+        throw unsupported();
+    }
+
+    @Override
+    public Type[] getTypes(final String alias, final Criteria criteria, final CriteriaQuery criteriaQuery) {
+        throw unsupported();
+    }
+
+    @Override
+    public String[] getColumnAliases(final int loc) {
+        throw unsupported();
+    }
+
+    @Override
+    public String[] getColumnAliases(final String alias, final int loc) {
+        throw unsupported();
+    }
+
+    @Override
+    public String[] getAliases() {
+        return new String[1];
+    }
+
+    @Override
+    public boolean isGrouped() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return function == Function.COUNT_DISTINCT
+                ? "approx count distinct(" + propertyName + ")"
+                : "approx percentile(" + propertyName + ", " + quantile + ")";
+    }
+
+    private UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException(this + " can only be computed by a sharded criteria");
+    }
+}
@@ -22,19 +22,28 @@ import org.hibernate.criterion.AggregateProjection;
 import org.hibernate.criterion.Distinct;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projection;
+import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.RowCountProjection;
 import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.shards.strategy.exit.ApproximateAggregateExitOperation;
 import org.hibernate.shards.strategy.exit.AvgResultsExitOperation;
 import org.hibernate.shards.strategy.exit.DistinctExitOperation;
+import org.hibernate.shards.strategy.exit.ExitOperationAccumulator;
 import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
 import org.hibernate.shards.strategy.exit.FirstResultExitOperation;
+import org.hibernate.shards.strategy.exit.IncrementalExitOperation;
 import org.hibernate.shards.strategy.exit.MaxResultsExitOperation;
 import org.hibernate.shards.strategy.exit.OrderExitOperation;
+import org.hibernate.shards.strategy.exit.ProjectionExitOperation;
+import org.hibernate.shards.strategy.exit.ProjectedRowComparator;
 import org.hibernate.shards.strategy.exit.ProjectionExitOperationFactory;
+import org.hibernate.shards.strategy.exit.ProjectionListExitOperation;
 import org.hibernate.shards.util.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -62,6 +71,12 @@ public class ExitOperationsCriteriaCollector implements ExitOperationsCollector
     // Row Count Projection operation applied to the Criteria
     private RowCountProjection rowCountProjection;
 
+    // Projection List of aggregates, grouped or not, applied to the Criteria
+    private ProjectionListExitOperation projectionListOperation = null;
+
+    // Approximate Projection operation applied to the Criteria
+    private ApproximateAggregateExitOperation approximateOperation = null;
+
     // The Session Factory Implementor with which the Criteria is associated
     private SessionFactoryImplementor sessionFactoryImplementor;
 
@@ -102,9 +117,10 @@ public class ExitOperationsCriteriaCollector implements ExitOperationsCollector
     public ExitOperationsCollector addProjection(final Projection projection) {
         if (projection instanceof Distinct) {
             this.distinct = (Distinct) projection;
-            // TODO(maulik) Distinct doesn't work yet
-            log.error("Distinct is not ready yet");
-            throw new UnsupportedOperationException();
+        } else if (projection instanceof ProjectionList) {
+            this.projectionListOperation = new ProjectionListExitOperation((ProjectionList) projection);
+        } else if (projection instanceof ApproximateProjection) {
+            this.approximateOperation = new ApproximateAggregateExitOperation((ApproximateProjection) projection);
         } else if (projection instanceof RowCountProjection) {
             this.rowCountProjection = (RowCountProjection) projection;
         } else if (projection instanceof AggregateProjection) {
@@ -143,6 +159,8 @@ public class ExitOperationsCriteriaCollector implements ExitOperationsCollector
          * the rest in memory.
          *
          * The hierarchy of operations is this so far:
+         * Projection List of aggregates or Approximate Projection, which are
+         * only followed by ordering and FirstResult/MaxResult
          * Distinct
          * Order
          * FirstResult
@@ -153,15 +171,56 @@ public class ExitOperationsCriteriaCollector implements ExitOperationsCollector
          */
 
         // ordering of the following operations *really* matters!
+        if (projectionListOperation != null) {
+            return applyToAggregatedResult(projectionListOperation.apply(result));
+        }
+        if (approximateOperation != null) {
+            return applyToAggregatedResult(approximateOperation.apply(result));
+        }
         if (distinct != null) {
             result = new DistinctExitOperation(distinct).apply(result);
+            // the rows are projected values rather than entities
+            if (!orders.isEmpty()) {
+                Collections.sort(result, getOrderComparator());
+            }
+            return applyPostOrdering(result);
         }
 
         // not clear to me why we need to create an OrderExitOperation
         // are we even taking advantage of the fact that it implements the
         // ExitOperation interface?
-        result = new OrderExitOperation(orders).apply(result);
+        result = new OrderExitOperation(orders, sessionFactoryImplementor).apply(result);
+
+        return applyPostOrdering(result);
+    }
+
+    /**
+     * The exit strategies that produce ordered results drop the duplicate rows
+     * of a distinct projection themselves, so distinct is not applied again.
+     */
+    @Override
+    public List<Object> applyToOrderedResult(List<Object> result) {
+        return applyPostOrdering(result);
+    }
+
+    /**
+     * The rows of a projection list or an approximate projection are ordered
+     * and limited after their partial aggregates have been merged.
+     */
+    private List<Object> applyToAggregatedResult(List<Object> result) {
+        if (!orders.isEmpty()) {
+            Collections.sort(result, getOrderComparator());
+        }
+        if (firstResult != null) {
+            result = new FirstResultExitOperation(firstResult).apply(result);
+        }
+        if (maxResults != null) {
+            result = new MaxResultsExitOperation(maxResults).apply(result);
+        }
+        return result;
+    }
 
+    private List<Object> applyPostOrdering(List<Object> result) {
         if (firstResult != null) {
             result = new FirstResultExitOperation(firstResult).apply(result);
         }
@@ -203,4 +262,125 @@ public class ExitOperationsCriteriaCollector implements ExitOperationsCollector
     Integer getFirstResult() {
         return firstResult;
     }
+
+    List<InMemoryOrderBy> getOrders() {
+        return orders;
+    }
+
+    /**
+     * @return a comparator that orders results the way the order-by clauses
+     *         describe, reading properties through the session factory, or
+     *         columns of the rows of a distinct projection
+     */
+    Comparator<Object> getOrderComparator() {
+        if (distinct != null) {
+            return new DistinctExitOperation(distinct).buildComparator(orders);
+        }
+        if (projectionListOperation != null) {
+            return new ProjectedRowComparator(projectionListOperation.getProjectionList(), orders);
+        }
+        return OrderExitOperation.buildComparator(orders, sessionFactoryImplementor);
+    }
+
+    /**
+     * @return true if a distinct projection has been added, in which case every
+     *         shard returns its own distinct rows
+     */
+    boolean isDistinct() {
+        return distinct != null;
+    }
+
+    /**
+     * @return the projection the shards should run in place of the projection
+     *         list or approximate projection that has been added, or null if
+     *         there is none
+     */
+    /*@Nullable*/ Projection getShardProjection() {
+        if (projectionListOperation != null) {
+            return projectionListOperation.getShardProjection();
+        }
+        return approximateOperation == null ? null : approximateOperation.getShardProjection();
+    }
+
+    /**
+     * @return true if the results are ordered and are returned as entities
+     *         rather than projections, in which case the already sorted results of
+     *         the individual shards can be merged rather than sorted again
+     */
+    boolean isOrderedMergeApplicable() {
+        return !orders.isEmpty() && !hasProjection();
+    }
+
+    /**
+     * @return true if a projection that needs in-memory processing has been added
+     */
+    boolean hasProjection() {
+        return distinct != null
+                || projectionListOperation != null
+                || approximateOperation != null
+                || avgProjection != null
+                || aggregateProjection != null
+                || rowCountProjection != null;
+    }
+
+    /**
+     * @return an accumulator that performs all the in-memory operations one
+     *         shard at a time, or null if they need the results of all shards
+     *         at once.  That is the case for a single row count or min/max/sum
+     *         projection without distinct, firstResult or maxResults; ordering
+     *         doesn't affect the result of these projections.  The partial
+     *         aggregates of a projection list are always merged one shard at
+     *         a time, and so are the sketches of an approximate projection.
+     */
+    /*@Nullable*/ ExitOperationAccumulator newAccumulator() {
+        if (projectionListOperation != null) {
+            return newAggregatingAccumulator(projectionListOperation);
+        }
+        if (approximateOperation != null) {
+            return newAggregatingAccumulator(approximateOperation);
+        }
+        if (distinct != null || avgProjection != null || firstResult != null || maxResults != null) {
+            return null;
+        }
+        final Projection projection;
+        if (rowCountProjection != null && aggregateProjection == null) {
+            projection = rowCountProjection;
+        } else if (aggregateProjection != null && rowCountProjection == null) {
+            projection = aggregateProjection;
+        } else {
+            return null;
+        }
+        final ProjectionExitOperation operation = ProjectionExitOperationFactory.getFactory()
+                .getProjectionExitOperation(projection, sessionFactoryImplementor);
+        if (operation instanceof IncrementalExitOperation) {
+            return ((IncrementalExitOperation) operation).newAccumulator();
+        }
+        return null;
+    }
+
+    private ExitOperationAccumulator newAggregatingAccumulator(final IncrementalExitOperation operation) {
+        final ExitOperationAccumulator rows = operation.newAccumulator();
+        return new ExitOperationAccumulator() {
+            @Override
+            public void add(final List<Object> oneResult) {
+                rows.add(oneResult);
+            }
+
+            @Override
+            public List<Object> getResult() {
+                return applyToAggregatedResult(rows.getResult());
+            }
+        };
+    }
+
+    /**
+     * @return the number of ordered results needed to satisfy firstResult and
+     *         maxResults, or null if all results are needed
+     */
+    Integer getResultLimit() {
+        if (maxResults == null) {
+            return null;
+        }
+        return firstResult == null ? maxResults : firstResult + maxResults;
+    }
 }
@@ -19,6 +19,11 @@
 package org.hibernate.shards.criteria;
 
 import org.hibernate.Criteria;
+import org.hibernate.shards.strategy.exit.PartialResult;
+
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Interface for a shard-aware {@link Criteria} implementation.
@@ -38,4 +43,59 @@ public interface ShardedCriteria extends Criteria {
    * @return the CriteriaFactory of this ShardedCriteria instance.
    */
   CriteriaFactory getCriteriaFactory();
+
+  /**
+   * Restricts the results to those that sort after the given sort key, which
+   * is typically the sort key of the last result of the previous page.  Each
+   * shard only looks at the results past that key, so unlike paging with
+   * firstResult the cost of a page does not depend on how deep it is.
+   * <p>
+   * The orders must be added before this method is called, the sort key
+   * contains one non-null value for each of them in the same order, and the
+   * orders must identify a result uniquely (add the id as the last order if
+   * they don't).  Orders on associations are not supported.  Databases
+   * differ in where they sort nulls, so the ordered properties should not be
+   * nullable: results with a null value are skipped, and a sort key that
+   * contains a null is rejected.
+   *
+   * @param lastSortKey the values of the ordered properties of the last result seen
+   * @return this
+   * @throws IllegalArgumentException if the sort key contains a null
+   */
+  ShardedCriteria seekAfter(Object... lastSortKey);
+
+  /**
+   * Like {@link #list()}, but returns right away rather than waiting for the
+   * shards.  If the shard access strategy can't apply operations
+   * asynchronously the query runs before this method returns.
+   * <p>
+   * Neither the sharded session nor this criteria may be used until the
+   * returned future is done, the sessions of the shards are in use until then.
+   * Independent reads can be overlapped by issuing them from different
+   * sharded sessions.  A timeout set on this criteria is applied to the
+   * queries on the shards, use {@link Future#get(long, TimeUnit)} to bound
+   * the time spent waiting for the result.
+   *
+   * @return the future result of {@link #list()}
+   */
+  Future<List<Object>> listAsync();
+
+  /**
+   * Like {@link #list()}, but returns the results of the shards that
+   * succeeded rather than failing when the query fails on some shards, times
+   * out on them or skips them because they are considered unavailable.  The
+   * shards that did not contribute to the results are returned along with
+   * them, so the caller can decide whether or not the results are good enough.
+   *
+   * @return the results of the shards that succeeded and the shards that didn't
+   */
+  PartialResult<List<Object>> listPartial();
+
+  /**
+   * Like {@link #uniqueResult()}, but returns right away rather than waiting
+   * for the shards.  See {@link #listAsync()}.
+   *
+   * @return the future result of {@link #uniqueResult()}
+   */
+  Future<Object> uniqueResultAsync();
 }
@@ -27,21 +27,42 @@ import org.hibernate.LockMode;
 import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.AvgProjection;
+import org.hibernate.criterion.Conjunction;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Disjunction;
+import org.hibernate.criterion.Distinct;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projection;
 import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.shards.ReadOnlyShardOperation;
 import org.hibernate.shards.Shard;
 import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.query.ShardedScrollableResults;
+import org.hibernate.shards.strategy.access.AsyncShardAccessStrategy;
 import org.hibernate.shards.strategy.access.ShardAccessStrategy;
+import org.hibernate.shards.strategy.access.TimeoutAwareShardAccessStrategy;
+import org.hibernate.shards.strategy.exit.AccumulatingExitStrategy;
 import org.hibernate.shards.strategy.exit.ConcatenateListsExitStrategy;
+import org.hibernate.shards.strategy.exit.DistinctExitStrategy;
+import org.hibernate.shards.strategy.exit.ExitOperationAccumulator;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
 import org.hibernate.shards.strategy.exit.FirstNonNullResultExitStrategy;
+import org.hibernate.shards.strategy.exit.OrderedMergeExitStrategy;
+import org.hibernate.shards.strategy.exit.PartialResult;
+import org.hibernate.shards.strategy.exit.PartialResultCollectingExitStrategy;
+import org.hibernate.shards.strategy.exit.TopNExitStrategy;
+import org.hibernate.shards.util.Preconditions;
 import org.hibernate.transform.ResultTransformer;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Concrete implementation of the {@link ShardedCriteria} interface.
@@ -76,6 +97,10 @@ public class ShardedCriteriaImpl implements ShardedCriteria {
     // the last value with which maxResults was called
     private Integer maxResults;
 
+    // the last value with which setTimeout was called, also used as the
+    // deadline for executing the Criteria across multiple shards
+    private int timeout;
+
     /**
      * Construct a ShardedCriteriaImpl
      *
@@ -108,6 +133,43 @@ public class ShardedCriteriaImpl implements ShardedCriteria {
         return criteriaFactory;
     }
 
+    @Override
+    public ShardedCriteria seekAfter(final Object... lastSortKey) {
+        final List<InMemoryOrderBy> orders = criteriaCollector.getOrders();
+        Preconditions.checkState(!orders.isEmpty());
+        Preconditions.checkArgument(lastSortKey.length == orders.size());
+        add(buildSeekCriterion(orders, lastSortKey));
+        return this;
+    }
+
+    /**
+     * Builds the criterion that is true for results that sort after the given
+     * sort key: (k1 > v1) or (k1 = v1 and k2 > v2) or ..., where > becomes <
+     * for descending orders.  Databases differ in where they sort nulls, so
+     * the sort key can't contain any.
+     */
+    static Criterion buildSeekCriterion(final List<InMemoryOrderBy> orders, final Object[] lastSortKey) {
+        for (int i = 0; i < lastSortKey.length; i++) {
+            if (lastSortKey[i] == null) {
+                throw new IllegalArgumentException(
+                        "Can't seek after a null value of the order on " + orders.get(i).getExpression());
+            }
+        }
+        final Disjunction disjunction = Restrictions.disjunction();
+        for (int i = 0; i < orders.size(); i++) {
+            final Conjunction conjunction = Restrictions.conjunction();
+            for (int j = 0; j < i; j++) {
+                conjunction.add(Restrictions.eq(orders.get(j).getExpression(), lastSortKey[j]));
+            }
+            final InMemoryOrderBy order = orders.get(i);
+            conjunction.add(order.isAscending()
+                    ? Restrictions.gt(order.getExpression(), lastSortKey[i])
+                    : Restrictions.lt(order.getExpression(), lastSortKey[i]));
+            disjunction.add(conjunction);
+        }
+        return disjunction;
+    }
+
     @Override
     public String getAlias() {
         return getOrEstablishSomeCriteria().getAlias();
@@ -118,9 +180,22 @@ public class ShardedCriteriaImpl implements ShardedCriteria {
         criteriaCollector.addProjection(projection);
         if (projection instanceof AvgProjection) {
             setAvgProjection(projection);
+        } else if (projection instanceof Distinct) {
+            // every shard returns its own distinct rows, duplicates across
+            // shards are dropped as the results come in
+            setCriteriaEvent(new SetProjectionEvent(projection));
+        } else if (projection instanceof ProjectionList || projection instanceof ApproximateProjection) {
+            // every shard computes all the aggregates of the list in one query,
+            // per group if it is grouped, or returns the values to sketch, and
+            // the partial aggregates are merged as the results come in
+            setCriteriaEvent(new SetProjectionEvent(criteriaCollector.getShardProjection()));
+            if (maxResults != null) {
+                // the first groups of a shard aren't necessarily the first groups
+                // overall, and Criteria can't remove a limit once it is set
+                setCriteriaEvent(new SetMaxResultsEvent(Integer.MAX_VALUE));
+            }
         }
 
-        // TODO - handle ProjectionList
         return this;
     }
 
@@ -218,6 +293,10 @@ public class ShardedCriteriaImpl implements ShardedCriteria {
         // the criteriaCollector will use the maxResult value that was passed in
         criteriaCollector.setMaxResults(maxResults);
         this.maxResults = maxResults;
+        if (criteriaCollector.getShardProjection() != null) {
+            // the limit applies to the merged groups
+            return this;
+        }
         int adjustedMaxResults = maxResults + firstResult;
         // the query executed against each shard will use maxResult + firstResult
         return setCriteriaEvent(new SetMaxResultsEvent(adjustedMaxResults));
@@ -276,6 +355,7 @@ public class ShardedCriteriaImpl implements ShardedCriteria {
 
     @Override
     public Criteria setTimeout(final int timeout) {
+        this.timeout = timeout;
         return setCriteriaEvent(new SetTimeoutEvent(timeout));
     }
 
@@ -305,26 +385,74 @@ public class ShardedCriteriaImpl implements ShardedCriteria {
     }
 
     /**
-     * Unsupported.  This is a scope decision, not a technical decision.
+     * Same as {@link #scroll(ScrollMode)} with {@link ScrollMode#FORWARD_ONLY}.
      */
     @Override
     public ScrollableResults scroll() throws HibernateException {
-        throw new UnsupportedOperationException();
+        return scroll(ScrollMode.FORWARD_ONLY);
     }
 
     /**
-     * Unsupported.  This is a scope decision, not a technical decision.
+     * Opens forward-only scrollable results on each shard.  If the results are
+     * ordered the results of the shards are merged, otherwise the results of a
+     * shard are only opened once the results of the previous shard have been
+     * exhausted.  Only {@link ScrollMode#FORWARD_ONLY} is supported, and
+     * projections can't be scrolled over.
      */
     @Override
     public ScrollableResults scroll(final ScrollMode scrollMode) throws HibernateException {
-        throw new UnsupportedOperationException();
+        if (scrollMode != ScrollMode.FORWARD_ONLY) {
+            throw new UnsupportedOperationException("Only ScrollMode.FORWARD_ONLY is supported");
+        }
+        if (criteriaCollector.hasProjection()) {
+            throw new UnsupportedOperationException("Scrolling over projections is not supported");
+        }
+
+        final ShardOperation<ScrollableResults> shardOp = new ShardOperation<ScrollableResults>() {
+
+            @Override
+            public ScrollableResults execute(final Shard shard) {
+                shard.establishCriteria(ShardedCriteriaImpl.this);
+                return shard.scroll(criteriaId, ScrollMode.FORWARD_ONLY);
+            }
+
+            @Override
+            public String getOperationName() {
+                return "scroll()";
+            }
+        };
+
+        final Comparator<Object> comparator =
+                criteriaCollector.getOrders().isEmpty() ? null : criteriaCollector.getOrderComparator();
+        return new ShardedScrollableResults(shards, shardOp, comparator, firstResult, maxResults);
     }
 
     @Override
     public List list() throws HibernateException {
+        /**
+         * We don't support shard selection for criteria queries.  If you want
+         * custom shards, create a ShardedSession with only the shards you want.
+         * We're going to combine all our results and then use our
+         * criteria collector to do post processing.
+         */
+        return applyOperation(buildListOperation(), getListExitStrategy());
+    }
+
+    @Override
+    public Future<List<Object>> listAsync() {
+        return applyOperationAsync(buildListOperation(), getListExitStrategy());
+    }
 
-        // build a shard operation and apply it across all shards
-        final ShardOperation<List<Object>> shardOp = new ShardOperation<List<Object>>() {
+    @Override
+    public PartialResult<List<Object>> listPartial() {
+        final PartialResultCollectingExitStrategy<List<Object>> exitStrategy =
+                new PartialResultCollectingExitStrategy<List<Object>>(getListExitStrategy());
+        final List<Object> results = applyOperation(buildListOperation(), exitStrategy);
+        return new PartialResult<List<Object>>(results, exitStrategy.getFailures());
+    }
+
+    private ShardOperation<List<Object>> buildListOperation() {
+        return new ReadOnlyShardOperation<List<Object>>() {
 
             @Override
             public List<Object> execute(final Shard shard) {
@@ -337,25 +465,25 @@ public class ShardedCriteriaImpl implements ShardedCriteria {
                 return "list()";
             }
         };
+    }
 
+    @Override
+    public Object uniqueResult() throws HibernateException {
         /**
          * We don't support shard selection for criteria queries.  If you want
          * custom shards, create a ShardedSession with only the shards you want.
-         * We're going to concatenate all our results and then use our
-         * criteria collector to do post processing.
+         * We're going to return the first non-null result we get from a shard.
          */
-        return shardAccessStrategy.apply(
-                shards,
-                shardOp,
-                new ConcatenateListsExitStrategy(),
-                criteriaCollector);
+        return applyOperation(buildUniqueResultOperation(), new FirstNonNullResultExitStrategy<Object>());
     }
 
     @Override
-    public Object uniqueResult() throws HibernateException {
+    public Future<Object> uniqueResultAsync() {
+        return applyOperationAsync(buildUniqueResultOperation(), new FirstNonNullResultExitStrategy<Object>());
+    }
 
-        // build a shard operation and apply it across all shards
-        final ShardOperation<Object> shardOp = new ShardOperation<Object>() {
+    private ShardOperation<Object> buildUniqueResultOperation() {
+        return new ReadOnlyShardOperation<Object>() {
 
             @Override
             public Object execute(Shard shard) {
@@ -368,17 +496,65 @@ public class ShardedCriteriaImpl implements ShardedCriteria {
                 return "uniqueResult()";
             }
         };
+    }
 
-        /**
-         * We don't support shard selection for criteria queries.  If you want
-         * custom shards, create a ShardedSession with only the shards you want.
-         * We're going to return the first non-null result we get from a shard.
-         */
-        return shardAccessStrategy.apply(
-                shards,
-                shardOp,
-                new FirstNonNullResultExitStrategy<Object>(),
-                criteriaCollector);
+    /**
+     * Applies the operation across all shards.  If a timeout has been set it is
+     * also the deadline for the shards to complete the operation.
+     */
+    private <T> T applyOperation(final ShardOperation<T> shardOp, final ExitStrategy<T> exitStrategy) {
+        if (timeout > 0 && shardAccessStrategy instanceof TimeoutAwareShardAccessStrategy) {
+            return ((TimeoutAwareShardAccessStrategy) shardAccessStrategy).apply(
+                    shards, shardOp, exitStrategy, criteriaCollector, timeout);
+        }
+        return shardAccessStrategy.apply(shards, shardOp, exitStrategy, criteriaCollector);
+    }
+
+    /**
+     * Applies the operation across all shards without waiting for them if the
+     * shard access strategy supports it, otherwise applies it right away.
+     */
+    private <T> Future<T> applyOperationAsync(final ShardOperation<T> shardOp, final ExitStrategy<T> exitStrategy) {
+        if (shardAccessStrategy instanceof AsyncShardAccessStrategy) {
+            return ((AsyncShardAccessStrategy) shardAccessStrategy).applyAsync(shards, shardOp, exitStrategy, criteriaCollector);
+        }
+        final FutureTask<T> result = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() {
+                return applyOperation(shardOp, exitStrategy);
+            }
+        });
+        result.run();
+        return result;
+    }
+
+    /**
+     * If the results are ordered each shard returns its results already sorted,
+     * so we merge them rather than concatenating and sorting them again.  If
+     * only the first firstResult + maxResults results are needed we just keep
+     * the best ones as they arrive.  The rows of a distinct projection are
+     * deduplicated as they arrive, or while merging if they are ordered.
+     */
+    private ExitStrategy<List<Object>> getListExitStrategy() {
+        final ExitOperationAccumulator accumulator = criteriaCollector.newAccumulator();
+        if (accumulator != null) {
+            return new AccumulatingExitStrategy(accumulator);
+        }
+        if (criteriaCollector.isDistinct()) {
+            if (criteriaCollector.getOrders().isEmpty()) {
+                return new DistinctExitStrategy();
+            }
+            return new OrderedMergeExitStrategy(
+                    criteriaCollector.getOrderComparator(), criteriaCollector.getResultLimit(), true);
+        }
+        if (criteriaCollector.isOrderedMergeApplicable()) {
+            final Integer resultLimit = criteriaCollector.getResultLimit();
+            if (resultLimit != null) {
+                return new TopNExitStrategy(criteriaCollector.getOrderComparator(), resultLimit);
+            }
+            return new OrderedMergeExitStrategy(criteriaCollector.getOrderComparator(), null);
+        }
+        return new ConcatenateListsExitStrategy();
     }
 
     ExitOperationsCriteriaCollector getCriteriaCollector() {
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.criteria;
+
+/**
+ * Factory for the projections that only a {@link ShardedCriteria} can
+ * compute, in the style of {@link org.hibernate.criterion.Projections}.
+ * <p/>
+ * The approximate projections only bound the memory used to merge the
+ * results of the shards.  Every shard still returns each distinct value of
+ * the property, so they don't reduce what is transferred.
+ */
+public final class ShardedProjections {
+
+    private ShardedProjections() {
+    }
+
+    /**
+     * @param propertyName the property to count the distinct values of
+     * @return a projection to the estimated number of distinct non-null
+     *         values of the property, as a Long
+     */
+    public static ApproximateProjection approxCountDistinct(final String propertyName) {
+        return new ApproximateProjection(ApproximateProjection.Function.COUNT_DISTINCT, propertyName, 0);
+    }
+
+    /**
+     * @param propertyName the numeric property to compute the percentile of
+     * @param quantile     the fraction of values below the percentile, 0.5
+     *                     for the median
+     * @return a projection to the estimated percentile of the non-null values
+     *         of the property, as a Double
+     */
+    public static ApproximateProjection approxPercentile(final String propertyName, final double quantile) {
+        return new ApproximateProjection(ApproximateProjection.Function.PERCENTILE, propertyName, quantile);
+    }
+}
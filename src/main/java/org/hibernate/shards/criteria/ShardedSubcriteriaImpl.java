@@ -208,7 +208,8 @@ class ShardedSubcriteriaImpl implements ShardedSubcriteria {
 
     @Override
     public Criteria setTimeout(final int timeout) {
-        return setSubcriteriaEvent(new SetTimeoutEvent(timeout));
+        parent.setTimeout(timeout);
+        return this;
     }
 
     @Override
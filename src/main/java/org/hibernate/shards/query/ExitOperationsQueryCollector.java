@@ -56,6 +56,11 @@ public class ExitOperationsQueryCollector implements ExitOperationsCollector {
     return result;
   }
 
+  public List<Object> applyToOrderedResult(List<Object> result) {
+    // we never sort query results in memory
+    return apply(result);
+  }
+
   public void setSessionFactory(SessionFactoryImplementor sessionFactoryImplementor) {
     throw new UnsupportedOperationException();
   }
@@ -70,4 +75,12 @@ public class ExitOperationsQueryCollector implements ExitOperationsCollector {
     return this;
   }
 
+  Integer getMaxResults() {
+    return maxResults;
+  }
+
+  Integer getFirstResult() {
+    return firstResult;
+  }
+
 }
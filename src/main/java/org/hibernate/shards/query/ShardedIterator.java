@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.query;
+
+import org.hibernate.JDBCException;
+import org.hibernate.engine.HibernateIterator;
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator that chains the iterators of multiple shards.  The iterator of a
+ * shard is only obtained once the iterator of the previous shard has been
+ * exhausted, so a caller that stops iterating early never touches the
+ * remaining shards.
+ */
+public class ShardedIterator implements HibernateIterator {
+
+    private final List<Shard> shards;
+
+    // obtains the iterator of a single shard
+    private final ShardOperation<Iterator<Object>> operation;
+
+    // number of elements to skip before the first element we return
+    private final int firstResult;
+
+    // maximum number of elements to return, null if unbounded
+    private final /*@Nullable*/ Integer maxResults;
+
+    // index of the next shard to obtain an iterator from
+    private int nextShardIndex;
+
+    // iterator of the shard we're currently iterating over
+    private Iterator<Object> current;
+
+    // iterator that returned the last element, null if remove() can't be called
+    private Iterator<Object> lastReturnedFrom;
+
+    private int returned;
+
+    private boolean skippedFirstResults;
+
+    /**
+     * Construct a ShardedIterator
+     *
+     * @param shards      the shards whose iterators we chain
+     * @param operation   operation that obtains the iterator of a shard
+     * @param firstResult the number of elements to skip
+     * @param maxResults  the maximum number of elements to return, null if unbounded
+     */
+    public ShardedIterator(final List<Shard> shards,
+                           final ShardOperation<Iterator<Object>> operation,
+                           final int firstResult,
+                           final /*@Nullable*/ Integer maxResults) {
+
+        Preconditions.checkNotNull(shards);
+        Preconditions.checkNotNull(operation);
+        Preconditions.checkArgument(firstResult >= 0);
+        this.shards = shards;
+        this.operation = operation;
+        this.firstResult = firstResult;
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!skippedFirstResults) {
+            skippedFirstResults = true;
+            for (int i = 0; i < firstResult && advance(); i++) {
+                current.next();
+            }
+        }
+        if (maxResults != null && returned >= maxResults) {
+            return false;
+        }
+        return advance();
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        lastReturnedFrom = current;
+        returned++;
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        if (lastReturnedFrom == null) {
+            throw new IllegalStateException();
+        }
+        lastReturnedFrom.remove();
+        lastReturnedFrom = null;
+    }
+
+    /**
+     * Closes the iterator of the shard we're currently iterating over.  The
+     * remaining shards will not be iterated.
+     */
+    @Override
+    public void close() throws JDBCException {
+        nextShardIndex = shards.size();
+        lastReturnedFrom = null;
+        if (current instanceof HibernateIterator) {
+            ((HibernateIterator) current).close();
+        }
+        current = null;
+    }
+
+    /**
+     * Makes sure the current iterator has a next element, moving on to the
+     * next shard as long as it doesn't.
+     *
+     * @return false if the iterators of all shards have been exhausted
+     */
+    private boolean advance() {
+        while (current == null || !current.hasNext()) {
+            if (nextShardIndex >= shards.size()) {
+                return false;
+            }
+            current = operation.execute(shards.get(nextShardIndex++));
+        }
+        return true;
+    }
+}
@@ -19,6 +19,11 @@
 package org.hibernate.shards.query;
 
 import org.hibernate.Query;
+import org.hibernate.shards.strategy.exit.PartialResult;
+
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ShardedQuery extends the Query interface to provide the ability to query
@@ -33,4 +38,39 @@ public interface ShardedQuery extends Query {
     QueryId getQueryId();
 
     QueryFactory getQueryFactory();
+
+    /**
+     * Like {@link #list()}, but returns right away rather than waiting for the
+     * shards.  If the shard access strategy can't apply operations
+     * asynchronously the query runs before this method returns.
+     * <p/>
+     * Neither the sharded session nor this query may be used until the
+     * returned future is done, the sessions of the shards are in use until then.
+     * Independent reads can be overlapped by issuing them from different
+     * sharded sessions.  A timeout set on this query is applied to the
+     * queries on the shards, use {@link Future#get(long, TimeUnit)} to bound
+     * the time spent waiting for the result.
+     *
+     * @return the future result of {@link #list()}
+     */
+    Future<List<Object>> listAsync();
+
+    /**
+     * Like {@link #list()}, but returns the results of the shards that
+     * succeeded rather than failing when the query fails on some shards, times
+     * out on them or skips them because they are considered unavailable.  The
+     * shards that did not contribute to the results are returned along with
+     * them, so the caller can decide whether or not the results are good enough.
+     *
+     * @return the results of the shards that succeeded and the shards that didn't
+     */
+    PartialResult<List<Object>> listPartial();
+
+    /**
+     * Like {@link #uniqueResult()}, but returns right away rather than waiting
+     * for the shards.  See {@link #listAsync()}.
+     *
+     * @return the future result of {@link #uniqueResult()}
+     */
+    Future<Object> uniqueResultAsync();
 }
@@ -26,11 +26,17 @@ import org.hibernate.LockOptions;
 import org.hibernate.Query;
 import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
+import org.hibernate.shards.ReadOnlyShardOperation;
 import org.hibernate.shards.Shard;
 import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.strategy.access.AsyncShardAccessStrategy;
 import org.hibernate.shards.strategy.access.ShardAccessStrategy;
+import org.hibernate.shards.strategy.access.TimeoutAwareShardAccessStrategy;
 import org.hibernate.shards.strategy.exit.ConcatenateListsExitStrategy;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
 import org.hibernate.shards.strategy.exit.FirstNonNullResultExitStrategy;
+import org.hibernate.shards.strategy.exit.PartialResult;
+import org.hibernate.shards.strategy.exit.PartialResultCollectingExitStrategy;
 import org.hibernate.shards.util.Preconditions;
 import org.hibernate.transform.ResultTransformer;
 import org.hibernate.type.Type;
@@ -46,6 +52,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Concrete implementation of ShardedQuery provided by Hibernate Shards. This
@@ -79,6 +88,10 @@ public class ShardedQueryImpl implements ShardedQuery {
      */
     private final ExitOperationsQueryCollector queryCollector;
 
+    // the last value with which setTimeout was called, also used as the
+    // deadline for executing the query across multiple shards
+    private int timeout;
+
     /**
      * Constructor for ShardedQueryImpl
      *
@@ -135,7 +148,10 @@ public class ShardedQueryImpl implements ShardedQuery {
     }
 
     /**
-     * This method currently wraps list().
+     * Chains the results of {@link Query#iterate()} on each shard.  The Query
+     * of a shard is only established and iterated once the iterator of the
+     * previous shard has been exhausted, so a caller that stops iterating early
+     * never touches the remaining shards.
      * <p/>
      * {@inheritDoc}
      *
@@ -144,36 +160,70 @@ public class ShardedQueryImpl implements ShardedQuery {
      */
     @Override
     public Iterator iterate() throws HibernateException {
-        /**
-         * TODO(maulik) Hibernate in Action says these two methods are equivalent
-         * in what the content that they return but are implemented differently.
-         * We should figure out the difference and implement correctly.
-         */
-        return list().iterator();
+        final ShardOperation<Iterator<Object>> shardOp = new ShardOperation<Iterator<Object>>() {
+
+            @Override
+            public Iterator<Object> execute(final Shard shard) {
+                shard.establishQuery(ShardedQueryImpl.this);
+                return shard.iterate(queryId);
+            }
+
+            @Override
+            public String getOperationName() {
+                return "iterate()";
+            }
+        };
+
+        final Integer firstResult = queryCollector.getFirstResult();
+        return new ShardedIterator(
+                shards,
+                shardOp,
+                firstResult == null ? 0 : firstResult,
+                queryCollector.getMaxResults());
     }
 
     /**
-     * Scrolling is unsupported. Current implementation throws an
-     * UnsupportedOperationException. A dumb implementation of scroll might be
-     * possible; however it would provide no performance benefit. An intelligent
-     * implementation would require re-querying shards frequently and a
-     * deterministic way to compile results.
+     * Same as {@link #scroll(ScrollMode)} with {@link ScrollMode#FORWARD_ONLY}.
      */
     @Override
     public ScrollableResults scroll() throws HibernateException {
-        throw new UnsupportedOperationException();
+        return scroll(ScrollMode.FORWARD_ONLY);
     }
 
     /**
-     * Scrolling is unsupported. Current implementation throws an
-     * UnsupportedOperationException. A dumb implementation of scroll might be
-     * possible; however it would provide no performance benefit. An intelligent
-     * implementation would require re-querying shards frequently and a
-     * deterministic way to compile results.
+     * Opens forward-only scrollable results on each shard and concatenates
+     * them.  The results of a shard are only opened once the results of the
+     * previous shard have been exhausted, so the results are streamed rather
+     * than loaded into memory.  Only {@link ScrollMode#FORWARD_ONLY} is
+     * supported.
      */
     @Override
     public ScrollableResults scroll(final ScrollMode scrollMode) throws HibernateException {
-        throw new UnsupportedOperationException();
+        if (scrollMode != ScrollMode.FORWARD_ONLY) {
+            throw new UnsupportedOperationException("Only ScrollMode.FORWARD_ONLY is supported");
+        }
+
+        final ShardOperation<ScrollableResults> shardOp = new ShardOperation<ScrollableResults>() {
+
+            @Override
+            public ScrollableResults execute(final Shard shard) {
+                shard.establishQuery(ShardedQueryImpl.this);
+                return shard.scroll(queryId, ScrollMode.FORWARD_ONLY);
+            }
+
+            @Override
+            public String getOperationName() {
+                return "scroll()";
+            }
+        };
+
+        final Integer firstResult = queryCollector.getFirstResult();
+        return new ShardedScrollableResults(
+                shards,
+                shardOp,
+                null,
+                firstResult == null ? 0 : firstResult,
+                queryCollector.getMaxResults());
     }
 
     /**
@@ -186,7 +236,28 @@ public class ShardedQueryImpl implements ShardedQuery {
      */
     @Override
     public List list() throws HibernateException {
-        final ShardOperation<List<Object>> shardOp = new ShardOperation<List<Object>>() {
+        /**
+         * We don't support shard selection for HQL queries.  If you want
+         * custom shards, create a ShardedSession with only the shards you want.
+         */
+        return applyOperation(buildListOperation(), new ConcatenateListsExitStrategy());
+    }
+
+    @Override
+    public Future<List<Object>> listAsync() {
+        return applyOperationAsync(buildListOperation(), new ConcatenateListsExitStrategy());
+    }
+
+    @Override
+    public PartialResult<List<Object>> listPartial() {
+        final PartialResultCollectingExitStrategy<List<Object>> exitStrategy =
+                new PartialResultCollectingExitStrategy<List<Object>>(new ConcatenateListsExitStrategy());
+        final List<Object> results = applyOperation(buildListOperation(), exitStrategy);
+        return new PartialResult<List<Object>>(results, exitStrategy.getFailures());
+    }
+
+    private ShardOperation<List<Object>> buildListOperation() {
+        return new ReadOnlyShardOperation<List<Object>>() {
 
             @Override
             public List<Object> execute(final Shard shard) {
@@ -199,16 +270,6 @@ public class ShardedQueryImpl implements ShardedQuery {
                 return "list()";
             }
         };
-
-        /**
-         * We don't support shard selection for HQL queries.  If you want
-         * custom shards, create a ShardedSession with only the shards you want.
-         */
-        return shardAccessStrategy.apply(
-                shards,
-                shardOp,
-                new ConcatenateListsExitStrategy(),
-                queryCollector);
     }
 
     /**
@@ -222,7 +283,20 @@ public class ShardedQueryImpl implements ShardedQuery {
      */
     @Override
     public Object uniqueResult() throws HibernateException {
-        final ShardOperation<Object> shardOp = new ShardOperation<Object>() {
+        /**
+         * We don't support shard selection for HQL queries.  If you want
+         * custom shards, create a ShardedSession with only the shards you want.
+         */
+        return applyOperation(buildUniqueResultOperation(), new FirstNonNullResultExitStrategy<Object>());
+    }
+
+    @Override
+    public Future<Object> uniqueResultAsync() {
+        return applyOperationAsync(buildUniqueResultOperation(), new FirstNonNullResultExitStrategy<Object>());
+    }
+
+    private ShardOperation<Object> buildUniqueResultOperation() {
+        return new ReadOnlyShardOperation<Object>() {
 
             @Override
             public Object execute(final Shard shard) {
@@ -235,16 +309,6 @@ public class ShardedQueryImpl implements ShardedQuery {
                 return "uniqueResult()";
             }
         };
-
-        /**
-         * We don't support shard selection for HQL queries.  If you want
-         * custom shards, create a ShardedSession with only the shards you want.
-         */
-        return shardAccessStrategy.apply(
-                shards,
-                shardOp,
-                new FirstNonNullResultExitStrategy<Object>(),
-                queryCollector);
     }
 
     /**
@@ -268,8 +332,7 @@ public class ShardedQueryImpl implements ShardedQuery {
             }
         };
 
-        final List<Object> rets = shardAccessStrategy.apply(shards, shardOp, new ConcatenateListsExitStrategy(),
-                queryCollector);
+        final List<Object> rets = applyOperation(shardOp, new ConcatenateListsExitStrategy());
 
         int sum = 0;
 
@@ -282,13 +345,26 @@ public class ShardedQueryImpl implements ShardedQuery {
 
     @Override
     public Query setMaxResults(final int maxResults) {
+        // the queryCollector will use the maxResult value that was passed in
         queryCollector.setMaxResults(maxResults);
-        return this;
+        // no shard can contribute more than firstResult + maxResults results, so
+        // that is what the query executed against each shard will use
+        final Integer firstResult = queryCollector.getFirstResult();
+        return setQueryEvent(new SetMaxResultsEvent(firstResult == null ? maxResults : maxResults + firstResult));
     }
 
+    /**
+     * firstResult cannot be safely applied to the query that will be executed
+     * against each shard, it is applied to the combined results instead.
+     */
     @Override
     public Query setFirstResult(final int firstResult) {
         queryCollector.setFirstResult(firstResult);
+        // if a maxResult has been set we need to adjust it to take the firstResult into account
+        final Integer maxResults = queryCollector.getMaxResults();
+        if (maxResults != null) {
+            setMaxResults(maxResults);
+        }
         return this;
     }
 
@@ -322,6 +398,7 @@ public class ShardedQueryImpl implements ShardedQuery {
 
     @Override
     public Query setTimeout(final int timeout) {
+        this.timeout = timeout;
         return setQueryEvent(new SetTimeoutEvent(timeout));
     }
 
@@ -625,6 +702,36 @@ public class ShardedQueryImpl implements ShardedQuery {
         return setQueryEvent(new SetPropertiesEvent(map));
     }
 
+    /**
+     * Applies the operation across all shards.  If a timeout has been set it is
+     * also the deadline for the shards to complete the operation.
+     */
+    private <T> T applyOperation(final ShardOperation<T> shardOp, final ExitStrategy<T> exitStrategy) {
+        if (timeout > 0 && shardAccessStrategy instanceof TimeoutAwareShardAccessStrategy) {
+            return ((TimeoutAwareShardAccessStrategy) shardAccessStrategy).apply(
+                    shards, shardOp, exitStrategy, queryCollector, timeout);
+        }
+        return shardAccessStrategy.apply(shards, shardOp, exitStrategy, queryCollector);
+    }
+
+    /**
+     * Applies the operation across all shards without waiting for them if the
+     * shard access strategy supports it, otherwise applies it right away.
+     */
+    private <T> Future<T> applyOperationAsync(final ShardOperation<T> shardOp, final ExitStrategy<T> exitStrategy) {
+        if (shardAccessStrategy instanceof AsyncShardAccessStrategy) {
+            return ((AsyncShardAccessStrategy) shardAccessStrategy).applyAsync(shards, shardOp, exitStrategy, queryCollector);
+        }
+        final FutureTask<T> result = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() {
+                return applyOperation(shardOp, exitStrategy);
+            }
+        });
+        result.run();
+        return result;
+    }
+
     private Query getSomeQuery() {
         for (final Shard shard : shards) {
             Query query = shard.getQueryById(queryId);
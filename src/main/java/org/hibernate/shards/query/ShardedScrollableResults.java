@@ -0,0 +1,449 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.query;
+
+import org.hibernate.HibernateException;
+import org.hibernate.ScrollableResults;
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Preconditions;
+import org.hibernate.type.Type;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+
+/**
+ * Forward-only {@link ScrollableResults} over the scrollable results of
+ * multiple shards.  Only one row per shard is ever held, so results can be
+ * streamed in constant memory regardless of their total size.
+ * <p/>
+ * Unordered results are concatenated lazily: the scrollable results of a
+ * shard are only opened once the results of the previous shard have been
+ * exhausted.  Ordered results are merged: the scrollable results of all shards
+ * are opened up front and the shard with the lowest current row (according to
+ * the provided comparator) supplies the next row.
+ * <p/>
+ * Since the rows of a shard are read from a forward-only cursor, only
+ * {@link #next()} and {@link #scroll(int)} with a positive argument are supported.
+ */
+public class ShardedScrollableResults implements ScrollableResults {
+
+    private final List<Shard> shards;
+
+    // opens the scrollable results of a single shard
+    private final ShardOperation<ScrollableResults> operation;
+
+    // compares the first column of the current rows of two shards, null if we concatenate
+    private final /*@Nullable*/ Comparator<Object> comparator;
+
+    // number of rows to skip before the first row we return
+    private final int firstResult;
+
+    // maximum number of rows to return, null if unbounded
+    private final /*@Nullable*/ Integer maxResults;
+
+    // scrollable results that have been opened but not yet closed
+    private final List<ScrollableResults> openResults = Lists.newArrayList();
+
+    // shards with rows left to merge, null until the first row is requested
+    private PriorityQueue<Cursor> mergeQueue;
+
+    // index of the next shard to open when concatenating
+    private int nextShardIndex;
+
+    // the shard cursor positioned on the current row, null if not on a row
+    private Cursor current;
+
+    private int rowNumber = -1;
+
+    private boolean closed;
+
+    /**
+     * Construct a ShardedScrollableResults
+     *
+     * @param shards      the shards whose results we scroll over
+     * @param operation   operation that opens the forward-only scrollable results of a shard
+     * @param comparator  comparator for the first column of the rows of different shards
+     *                    if the results of each shard are sorted, null if the results
+     *                    should just be concatenated
+     * @param firstResult the number of rows to skip
+     * @param maxResults  the maximum number of rows to return, null if unbounded
+     */
+    public ShardedScrollableResults(final List<Shard> shards,
+                                    final ShardOperation<ScrollableResults> operation,
+                                    final /*@Nullable*/ Comparator<Object> comparator,
+                                    final int firstResult,
+                                    final /*@Nullable*/ Integer maxResults) {
+
+        Preconditions.checkNotNull(shards);
+        Preconditions.checkNotNull(operation);
+        Preconditions.checkArgument(firstResult >= 0);
+        this.shards = shards;
+        this.operation = operation;
+        this.comparator = comparator;
+        this.firstResult = firstResult;
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public boolean next() throws HibernateException {
+        checkNotClosed();
+        if (rowNumber == -1) {
+            for (int i = 0; i < firstResult; i++) {
+                if (!advance()) {
+                    return false;
+                }
+            }
+        }
+        if (maxResults != null && rowNumber + 1 >= maxResults) {
+            // leave the underlying results where they are, we're done
+            current = null;
+            return false;
+        }
+        if (advance()) {
+            rowNumber++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean scroll(final int i) throws HibernateException {
+        if (i < 0) {
+            throw new UnsupportedOperationException("Sharded scrollable results are forward-only");
+        }
+        boolean onRow = current != null;
+        for (int j = 0; j < i; j++) {
+            onRow = next();
+            if (!onRow) {
+                break;
+            }
+        }
+        return onRow;
+    }
+
+    /**
+     * Unsupported.  Sharded scrollable results are forward-only.
+     */
+    @Override
+    public boolean previous() throws HibernateException {
+        throw new UnsupportedOperationException("Sharded scrollable results are forward-only");
+    }
+
+    /**
+     * Unsupported.  Sharded scrollable results are forward-only.
+     */
+    @Override
+    public boolean last() throws HibernateException {
+        throw new UnsupportedOperationException("Sharded scrollable results are forward-only");
+    }
+
+    /**
+     * Unsupported.  Sharded scrollable results are forward-only.
+     */
+    @Override
+    public boolean first() throws HibernateException {
+        throw new UnsupportedOperationException("Sharded scrollable results are forward-only");
+    }
+
+    /**
+     * Unsupported.  Sharded scrollable results are forward-only.
+     */
+    @Override
+    public void beforeFirst() throws HibernateException {
+        throw new UnsupportedOperationException("Sharded scrollable results are forward-only");
+    }
+
+    /**
+     * Unsupported.  Sharded scrollable results are forward-only.
+     */
+    @Override
+    public void afterLast() throws HibernateException {
+        throw new UnsupportedOperationException("Sharded scrollable results are forward-only");
+    }
+
+    @Override
+    public boolean isFirst() throws HibernateException {
+        return current != null && rowNumber == 0;
+    }
+
+    /**
+     * Unsupported.  Determining whether or not the current row is the last one
+     * could require opening the results of the remaining shards.
+     */
+    @Override
+    public boolean isLast() throws HibernateException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws HibernateException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = null;
+        mergeQueue = null;
+        HibernateException firstException = null;
+        for (final ScrollableResults results : openResults) {
+            try {
+                results.close();
+            } catch (HibernateException e) {
+                if (firstException == null) {
+                    firstException = e;
+                }
+            }
+        }
+        openResults.clear();
+        if (firstException != null) {
+            throw firstException;
+        }
+    }
+
+    @Override
+    public Object[] get() throws HibernateException {
+        return currentResults().get();
+    }
+
+    @Override
+    public Object get(final int i) throws HibernateException {
+        return currentResults().get(i);
+    }
+
+    @Override
+    public Type getType(final int i) {
+        if (current != null) {
+            return current.results.getType(i);
+        }
+        if (!openResults.isEmpty()) {
+            return openResults.get(0).getType(i);
+        }
+        throw new HibernateException("No shard results have been opened yet");
+    }
+
+    @Override
+    public Integer getInteger(final int col) throws HibernateException {
+        return currentResults().getInteger(col);
+    }
+
+    @Override
+    public Long getLong(final int col) throws HibernateException {
+        return currentResults().getLong(col);
+    }
+
+    @Override
+    public Float getFloat(final int col) throws HibernateException {
+        return currentResults().getFloat(col);
+    }
+
+    @Override
+    public Boolean getBoolean(final int col) throws HibernateException {
+        return currentResults().getBoolean(col);
+    }
+
+    @Override
+    public Double getDouble(final int col) throws HibernateException {
+        return currentResults().getDouble(col);
+    }
+
+    @Override
+    public Short getShort(final int col) throws HibernateException {
+        return currentResults().getShort(col);
+    }
+
+    @Override
+    public Byte getByte(final int col) throws HibernateException {
+        return currentResults().getByte(col);
+    }
+
+    @Override
+    public Character getCharacter(final int col) throws HibernateException {
+        return currentResults().getCharacter(col);
+    }
+
+    @Override
+    public byte[] getBinary(final int col) throws HibernateException {
+        return currentResults().getBinary(col);
+    }
+
+    @Override
+    public String getText(final int col) throws HibernateException {
+        return currentResults().getText(col);
+    }
+
+    @Override
+    public Blob getBlob(final int col) throws HibernateException {
+        return currentResults().getBlob(col);
+    }
+
+    @Override
+    public Clob getClob(final int col) throws HibernateException {
+        return currentResults().getClob(col);
+    }
+
+    @Override
+    public String getString(final int col) throws HibernateException {
+        return currentResults().getString(col);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(final int col) throws HibernateException {
+        return currentResults().getBigDecimal(col);
+    }
+
+    @Override
+    public BigInteger getBigInteger(final int col) throws HibernateException {
+        return currentResults().getBigInteger(col);
+    }
+
+    @Override
+    public Date getDate(final int col) throws HibernateException {
+        return currentResults().getDate(col);
+    }
+
+    @Override
+    public Locale getLocale(final int col) throws HibernateException {
+        return currentResults().getLocale(col);
+    }
+
+    @Override
+    public Calendar getCalendar(final int col) throws HibernateException {
+        return currentResults().getCalendar(col);
+    }
+
+    @Override
+    public TimeZone getTimeZone(final int col) throws HibernateException {
+        return currentResults().getTimeZone(col);
+    }
+
+    @Override
+    public int getRowNumber() throws HibernateException {
+        return current == null ? -1 : rowNumber;
+    }
+
+    /**
+     * Unsupported.  Sharded scrollable results are forward-only.
+     */
+    @Override
+    public boolean setRowNumber(final int rowNumber) throws HibernateException {
+        throw new UnsupportedOperationException("Sharded scrollable results are forward-only");
+    }
+
+    /**
+     * Positions us on the next row of the underlying shard results.
+     *
+     * @return true if we are positioned on a row, false if all shard results
+     *         have been exhausted
+     */
+    private boolean advance() {
+        return comparator == null ? advanceConcatenated() : advanceMerged();
+    }
+
+    private boolean advanceConcatenated() {
+        if (current != null && current.next()) {
+            return true;
+        }
+        current = null;
+        while (nextShardIndex < shards.size()) {
+            final Cursor cursor = open(nextShardIndex++);
+            if (cursor.next()) {
+                current = cursor;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean advanceMerged() {
+        if (mergeQueue == null) {
+            mergeQueue = new PriorityQueue<Cursor>(Math.max(1, shards.size()), new Comparator<Cursor>() {
+                @Override
+                public int compare(final Cursor c1, final Cursor c2) {
+                    final int result = comparator.compare(c1.results.get(0), c2.results.get(0));
+                    // fall back to the order of the shards so the merge is stable
+                    return result != 0 ? result : c1.index - c2.index;
+                }
+            });
+            for (int i = 0; i < shards.size(); i++) {
+                final Cursor cursor = open(i);
+                if (cursor.next()) {
+                    mergeQueue.add(cursor);
+                }
+            }
+        } else if (current != null && current.next()) {
+            mergeQueue.add(current);
+        }
+        current = mergeQueue.poll();
+        return current != null;
+    }
+
+    private Cursor open(final int index) {
+        final ScrollableResults results = operation.execute(shards.get(index));
+        openResults.add(results);
+        return new Cursor(results, index);
+    }
+
+    private ScrollableResults currentResults() {
+        checkNotClosed();
+        if (current == null) {
+            throw new HibernateException("Scrollable results are not positioned on a row");
+        }
+        return current.results;
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new HibernateException("Scrollable results have already been closed");
+        }
+    }
+
+    private final class Cursor {
+
+        private final ScrollableResults results;
+        private final int index;
+
+        Cursor(final ScrollableResults results, final int index) {
+            this.results = results;
+            this.index = index;
+        }
+
+        /**
+         * Moves to the next row of the shard, closing the shard results as soon
+         * as they are exhausted.
+         */
+        boolean next() {
+            if (results.next()) {
+                return true;
+            }
+            openResults.remove(results);
+            results.close();
+            return false;
+        }
+    }
+}
@@ -21,6 +21,10 @@ package org.hibernate.shards.session;
 import org.hibernate.classic.Session;
 import org.hibernate.shards.ShardId;
 
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * The main runtime inteface between Java application and Hibernate Shards.<br>
@@ -59,4 +63,33 @@ public interface ShardedSession extends Session {
      * be unlocked.
      */
     void lockShard();
+
+    /**
+     * Like {@link #get(Class, Serializable)}, but returns right away rather
+     * than waiting for the shards if the shard access strategy can apply
+     * operations asynchronously.  This session must not be used until the
+     * returned future is done, the sessions of the shards are in use until then.
+     *
+     * @param clazz a persistent class
+     * @param id    an identifier
+     * @return the future persistent instance, or null if there is none
+     */
+    Future<Object> getAsync(Class<?> clazz, Serializable id);
+
+    /**
+     * Returns the persistent instances of the given class with the given
+     * identifiers.  The identifiers are grouped by the shards they resolve to
+     * and each shard loads all of its identifiers with a single IN list query,
+     * or a few for very many identifiers, rather than one query per
+     * identifier.  The shards are accessed with the shard access strategy, so
+     * in parallel if it is a parallel one.  Identifiers of another type than
+     * the identifier property's, such as Integers for a long identifier, are
+     * converted to it.
+     *
+     * @param clazz a persistent class
+     * @param ids   identifiers
+     * @return the persistent instances in the order of the identifiers, with
+     *         null for identifiers that have no instance
+     */
+    List<Object> getAll(Class<?> clazz, Collection<? extends Serializable> ids);
 }
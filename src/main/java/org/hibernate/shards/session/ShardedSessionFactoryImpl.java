@@ -52,10 +52,13 @@ import org.hibernate.persister.collection.CollectionPersister;
 import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.proxy.EntityNotFoundDelegate;
 import org.hibernate.shards.ShardId;
+import org.hibernate.shards.cfg.ShardedEnvironment;
 import org.hibernate.shards.engine.ShardedSessionFactoryImplementor;
 import org.hibernate.shards.id.GeneratorRequiringControlSessionProvider;
+import org.hibernate.shards.strategy.ExecutorAwareShardStrategyFactory;
 import org.hibernate.shards.strategy.ShardStrategy;
 import org.hibernate.shards.strategy.ShardStrategyFactory;
+import org.hibernate.shards.strategy.access.BulkheadShardExecutor;
 import org.hibernate.shards.util.Iterables;
 import org.hibernate.shards.util.Lists;
 import org.hibernate.shards.util.Maps;
@@ -66,6 +69,7 @@ import org.hibernate.stat.ConcurrentStatisticsImpl;
 import org.hibernate.stat.StatisticsImplementor;
 import org.hibernate.type.Type;
 import org.hibernate.type.TypeResolver;
+import org.hibernate.util.PropertiesHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -90,6 +94,11 @@ public class ShardedSessionFactoryImpl implements ShardedSessionFactoryImplement
     // the id of the control shard
     private static final int CONTROL_SHARD_ID = 0;
 
+    // defaults for the executor we create for an ExecutorAwareShardStrategyFactory
+    private static final int DEFAULT_EXECUTOR_MAX_THREADS = 16;
+    private static final int DEFAULT_EXECUTOR_MAX_CONCURRENCY_PER_SHARD = 4;
+    private static final int DEFAULT_EXECUTOR_MAX_QUEUED_TASKS = 256;
+
     // the SessionFactoryImplementor objects to which we delegate
     private final List<SessionFactoryImplementor> sessionFactories;
 
@@ -105,6 +114,12 @@ public class ShardedSessionFactoryImpl implements ShardedSessionFactoryImplement
     // The strategy we use for all shard-related operations
     private final ShardStrategy shardStrategy;
 
+    // Executor handed to an ExecutorAwareShardStrategyFactory, null if there is none
+    private final /*@Nullable*/ BulkheadShardExecutor shardExecutor;
+
+    // whether or not we created the executor, in which case we shut it down
+    private final boolean ownsShardExecutor;
+
     // Reference to the SessionFactory we use for functionality that expects
     // data to live in a single, well-known location (like distributed sequences)
     private final SessionFactoryImplementor controlSessionFactory;
@@ -143,6 +158,25 @@ public class ShardedSessionFactoryImpl implements ShardedSessionFactoryImplement
                                      final Set<Class<?>> classesWithoutTopLevelSaveSupport,
                                      final boolean checkAllAssociatedObjectsForDifferentShards) {
 
+        this(shardIds, sessionFactoryShardIdMap, shardStrategyFactory, classesWithoutTopLevelSaveSupport,
+                checkAllAssociatedObjectsForDifferentShards, null);
+    }
+
+    /**
+     * Constructs a ShardedSessionFactoryImpl that shares the executor of
+     * another ShardedSessionFactoryImpl.
+     *
+     * @param sharedShardExecutor the executor to hand to an
+     *                            {@link ExecutorAwareShardStrategyFactory}, or null to
+     *                            create one from the configuration if needed
+     */
+    protected ShardedSessionFactoryImpl(final List<ShardId> shardIds,
+                                        final Map<SessionFactoryImplementor, Set<ShardId>> sessionFactoryShardIdMap,
+                                        final ShardStrategyFactory shardStrategyFactory,
+                                        final Set<Class<?>> classesWithoutTopLevelSaveSupport,
+                                        final boolean checkAllAssociatedObjectsForDifferentShards,
+                                        final /*@Nullable*/ BulkheadShardExecutor sharedShardExecutor) {
+
         Preconditions.checkNotNull(sessionFactoryShardIdMap);
         Preconditions.checkArgument(!sessionFactoryShardIdMap.isEmpty());
         Preconditions.checkNotNull(shardStrategyFactory);
@@ -187,7 +221,16 @@ public class ShardedSessionFactoryImpl implements ShardedSessionFactoryImplement
         }
         controlSessionFactory = controlSessionFactoryToSet;
         // now that we have all our shard ids, construct our shard strategy
-        this.shardStrategy = shardStrategyFactory.newShardStrategy(shardIds);
+        if (shardStrategyFactory instanceof ExecutorAwareShardStrategyFactory) {
+            this.ownsShardExecutor = sharedShardExecutor == null;
+            this.shardExecutor = ownsShardExecutor ? buildShardExecutor() : sharedShardExecutor;
+            this.shardStrategy = ((ExecutorAwareShardStrategyFactory) shardStrategyFactory)
+                    .newShardStrategy(shardIds, shardExecutor);
+        } else {
+            this.ownsShardExecutor = false;
+            this.shardExecutor = sharedShardExecutor;
+            this.shardStrategy = shardStrategyFactory.newShardStrategy(shardIds);
+        }
         setupIdGenerators();
     }
 
@@ -219,6 +262,35 @@ public class ShardedSessionFactoryImpl implements ShardedSessionFactoryImplement
                 checkAllAssociatedObjectsForDifferentShards);
     }
 
+    private BulkheadShardExecutor buildShardExecutor() {
+        final Properties properties = getAnyFactory().getProperties();
+        return new BulkheadShardExecutor(
+                PropertiesHelper.getInt(ShardedEnvironment.EXECUTOR_MAX_THREADS,
+                        properties, DEFAULT_EXECUTOR_MAX_THREADS),
+                PropertiesHelper.getInt(ShardedEnvironment.EXECUTOR_MAX_CONCURRENCY_PER_SHARD,
+                        properties, DEFAULT_EXECUTOR_MAX_CONCURRENCY_PER_SHARD),
+                PropertiesHelper.getInt(ShardedEnvironment.EXECUTOR_MAX_QUEUED_TASKS,
+                        properties, DEFAULT_EXECUTOR_MAX_QUEUED_TASKS));
+    }
+
+    /**
+     * @return the executor that shard access strategies created by an
+     *         {@link ExecutorAwareShardStrategyFactory} run their operations on,
+     *         or null if the shard strategy factory doesn't want one
+     */
+    public /*@Nullable*/ BulkheadShardExecutor getShardExecutor() {
+        return shardExecutor;
+    }
+
+    /**
+     * Shuts down the executor if we created it.
+     */
+    protected void shutdownShardExecutor() {
+        if (ownsShardExecutor) {
+            shardExecutor.shutdown();
+        }
+    }
+
     /**
      * Sets the {@link ControlSessionProvider} on id generators that implement the
      * {@link GeneratorRequiringControlSessionProvider} interface
@@ -367,6 +439,7 @@ public class ShardedSessionFactoryImpl implements ShardedSessionFactoryImplement
             fullSessionFactoryShardIdMap.clear();
         }
         statistics.clear();
+        shutdownShardExecutor();
     }
 
     @Override
@@ -536,7 +609,8 @@ public class ShardedSessionFactoryImpl implements ShardedSessionFactoryImplement
                 fullSessionFactoryShardIdMap,
                 shardStrategyFactory,
                 classesWithoutTopLevelSaveSupport,
-                checkAllAssociatedObjectsForDifferentShards);
+                checkAllAssociatedObjectsForDifferentShards,
+                shardExecutor);
     }
 
     @Override
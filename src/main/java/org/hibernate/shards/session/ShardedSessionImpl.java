@@ -28,16 +28,19 @@ import org.hibernate.Interceptor;
 import org.hibernate.LobHelper;
 import org.hibernate.LockMode;
 import org.hibernate.LockOptions;
+import org.hibernate.MappingException;
 import org.hibernate.Query;
 import org.hibernate.ReplicationMode;
 import org.hibernate.SQLQuery;
 import org.hibernate.SessionException;
 import org.hibernate.Transaction;
 import org.hibernate.TransientObjectException;
+import org.hibernate.TypeMismatchException;
 import org.hibernate.TypeHelper;
 import org.hibernate.UnknownProfileException;
 import org.hibernate.UnresolvableObjectException;
 import org.hibernate.classic.Session;
+import org.hibernate.criterion.Restrictions;
 import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.engine.SessionImplementor;
 import org.hibernate.id.IdentifierGenerator;
@@ -45,11 +48,14 @@ import org.hibernate.jdbc.Work;
 import org.hibernate.metadata.ClassMetadata;
 import org.hibernate.proxy.HibernateProxy;
 import org.hibernate.shards.CrossShardAssociationException;
+import org.hibernate.shards.ReadOnlyShardOperation;
+import org.hibernate.shards.ReplicableShardOperation;
 import org.hibernate.shards.Shard;
 import org.hibernate.shards.ShardId;
 import org.hibernate.shards.ShardImpl;
 import org.hibernate.shards.ShardOperation;
 import org.hibernate.shards.ShardedTransaction;
+import org.hibernate.shards.cfg.ShardedEnvironment;
 import org.hibernate.shards.criteria.CriteriaFactoryImpl;
 import org.hibernate.shards.criteria.CriteriaId;
 import org.hibernate.shards.criteria.ShardedCriteriaImpl;
@@ -64,6 +70,11 @@ import org.hibernate.shards.query.ShardedQueryImpl;
 import org.hibernate.shards.query.ShardedSQLQueryImpl;
 import org.hibernate.shards.stat.ShardedSessionStatistics;
 import org.hibernate.shards.strategy.ShardStrategy;
+import org.hibernate.shards.strategy.access.AsyncShardAccessStrategy;
+import org.hibernate.shards.strategy.access.InlineShardAccessStrategy;
+import org.hibernate.shards.strategy.access.ShardAccessStrategy;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
 import org.hibernate.shards.strategy.exit.FirstNonNullResultExitStrategy;
 import org.hibernate.shards.strategy.selection.ShardResolutionStrategyData;
 import org.hibernate.shards.strategy.selection.ShardResolutionStrategyDataImpl;
@@ -75,8 +86,11 @@ import org.hibernate.shards.util.Maps;
 import org.hibernate.shards.util.Pair;
 import org.hibernate.shards.util.Preconditions;
 import org.hibernate.shards.util.Sets;
+import org.hibernate.shards.util.WeakIdentityMap;
 import org.hibernate.stat.SessionStatistics;
+import org.hibernate.type.IdentifierType;
 import org.hibernate.type.Type;
+import org.hibernate.util.PropertiesHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -88,6 +102,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Concrete implementation of a ShardedSession, and also the central component of
@@ -102,12 +119,22 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
 
     private static ThreadLocal<ShardId> currentSubgraphShardId = new ThreadLocal<ShardId>();
 
+    // most ids getAll() loads with a single query, well below the limits
+    // databases put on the length of IN lists
+    private static final int GET_ALL_BATCH_SIZE = 500;
+
     private final ShardedSessionFactoryImplementor shardedSessionFactory;
 
     private final List<Shard> shards;
 
     private final Map<ShardId, Shard> shardIdsToShards;
 
+    // the shard whose session contains an object, for the objects we've seen.
+    // objects can leave a session without us noticing (e.g. when evicted from
+    // the session of the shard directly) so entries are verified before use.
+    // also written from the threads of parallel shard access strategies
+    private final WeakIdentityMap<Object, Shard> shardsByObject = new WeakIdentityMap<Object, Shard>();
+
     private final ShardStrategy shardStrategy;
 
     private final Set<Class<?>> classesWithoutTopLevelSaveSupport;
@@ -127,6 +154,10 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
     private int nextCriteriaId = 0;
     private int nextQueryId = 0;
 
+    // default timeout for criteria and queries, null until it has been read
+    // from the properties of the factory
+    private Integer defaultQueryTimeout;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     /**
@@ -250,16 +281,56 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
         return Pair.of(new InterceptorList(interceptorList), openSessionEvent);
     }
 
-    private Object applyGetOperation(final ShardOperation<Object> shardOp, final ShardResolutionStrategyData srsd) {
-        final List<ShardId> shardIds = selectShardIdsFromShardResolutionStrategyData(srsd);
-        return shardStrategy.getShardAccessStrategy().apply(
+    private Object applyGetOperation(final ShardOperation<Object> shardOp, final List<ShardId> shardIds) {
+        final FirstNonNullResultExitStrategy<Object> exitStrategy = new FirstNonNullResultExitStrategy<Object>();
+        final Object result = shardStrategy.getShardAccessStrategy().apply(
                 shardIdListToShardList(shardIds),
                 shardOp,
-                new FirstNonNullResultExitStrategy<Object>(),
+                exitStrategy,
                 new ExitOperationsQueryCollector());
+        if (result != null) {
+            indexObject(result, exitStrategy.getShardOfResult());
+        }
+        return result;
+    }
+
+    /**
+     * A get() that resolves to a single shard runs against that shard directly
+     * if the shard access strategy would just run it on the calling thread
+     * anyway.  This spares lookups the shard list, the operation, the exit
+     * strategy and the collector that going through the strategy takes.
+     *
+     * @return the shard to run the get() against on the calling thread, or null
+     *         if it has to go through the shard access strategy
+     */
+    private /*@Nullable*/ Shard getInlineShard(final List<ShardId> shardIds) {
+        final ShardAccessStrategy shardAccessStrategy = shardStrategy.getShardAccessStrategy();
+        if (shardIds.isEmpty()
+                || !(shardAccessStrategy instanceof InlineShardAccessStrategy)
+                || !((InlineShardAccessStrategy) shardAccessStrategy).isSingleShardAccessInline()) {
+            return null;
+        }
+        // virtual shards may live on the same physical shard, indexed so we don't need an iterator
+        final Shard shard = shardIdsToShards.get(shardIds.get(0));
+        for (int i = 1; i < shardIds.size(); i++) {
+            if (shardIdsToShards.get(shardIds.get(i)) != shard) {
+                return null;
+            }
+        }
+        return shard;
+    }
+
+    private /*@Nullable*/ Object indexGetResult(final /*@Nullable*/ Object result, final Shard shard) {
+        if (result != null) {
+            indexObject(result, shard);
+        }
+        return result;
     }
 
     private List<Shard> shardIdListToShardList(final List<ShardId> shardIds) {
+        if (shardIds.size() == 1) {
+            return Lists.newArrayList(shardIdsToShards.get(shardIds.get(0)));
+        }
         final Set<Shard> shards = Sets.newHashSet();
         for (final ShardId shardId : shardIds) {
             shards.add(shardIdsToShards.get(shardId));
@@ -274,7 +345,47 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
 
     @Override
     public Object get(final Class clazz, final Serializable id) throws HibernateException {
-        final ShardOperation<Object> shardOp = new ShardOperation<Object>() {
+        final List<ShardId> shardIds =
+                selectShardIdsFromShardResolutionStrategyData(new ShardResolutionStrategyDataImpl(clazz, id));
+        final Shard inlineShard = getInlineShard(shardIds);
+        if (inlineShard != null) {
+            return indexGetResult(inlineShard.establishSession().get(clazz, id), inlineShard);
+        }
+        return applyGetOperation(buildGetOperation(clazz, id), shardIds);
+    }
+
+    @Override
+    public Future<Object> getAsync(final Class<?> clazz, final Serializable id) {
+        final ShardAccessStrategy shardAccessStrategy = shardStrategy.getShardAccessStrategy();
+        if (shardAccessStrategy instanceof AsyncShardAccessStrategy) {
+            final List<ShardId> shardIds =
+                    selectShardIdsFromShardResolutionStrategyData(new ShardResolutionStrategyDataImpl(clazz, id));
+            // index the result on whichever thread compiles it, so it is
+            // indexed by the time the future completes
+            final FirstNonNullResultExitStrategy<Object> exitStrategy = new FirstNonNullResultExitStrategy<Object>() {
+                @Override
+                public Object compileResults(final ExitOperationsCollector exitOperationsCollector) {
+                    return indexGetResult(super.compileResults(exitOperationsCollector), getShardOfResult());
+                }
+            };
+            return ((AsyncShardAccessStrategy) shardAccessStrategy).applyAsync(
+                    shardIdListToShardList(shardIds),
+                    buildGetOperation(clazz, id),
+                    exitStrategy,
+                    new ExitOperationsQueryCollector());
+        }
+        final FutureTask<Object> result = new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return get(clazz, id);
+            }
+        });
+        result.run();
+        return result;
+    }
+
+    private ShardOperation<Object> buildGetOperation(final Class<?> clazz, final Serializable id) {
+        return new ReplicableShardOperation<Object>() {
             public Object execute(Shard shard) {
                 return shard.establishSession().get(clazz, id);
             }
@@ -283,8 +394,153 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
                 return "get(Class class, Serializable id)";
             }
         };
+    }
+
+    @Override
+    public List<Object> getAll(final Class<?> clazz, final Collection<? extends Serializable> ids) {
+        final ClassMetadata classMetadata = getClassMetadata(clazz);
+        if (classMetadata == null) {
+            throw new MappingException("Unknown entity: " + clazz.getName());
+        }
+        final List<Serializable> normalizedIds = Lists.newArrayListWithCapacity(ids.size());
+        for (final Serializable id : ids) {
+            Preconditions.checkNotNull(id);
+            normalizedIds.add(normalizeId(clazz, classMetadata.getIdentifierType(), id));
+        }
+
+        final Map<Shard, List<Serializable>> idsByShard = Maps.newLinkedHashMap();
+        for (final Serializable id : normalizedIds) {
+            final List<ShardId> shardIds =
+                    selectShardIdsFromShardResolutionStrategyData(new ShardResolutionStrategyDataImpl(clazz, id));
+            // ids that resolve to several shards are looked up on all of them
+            for (final Shard shard : shardIdListToShardList(shardIds)) {
+                List<Serializable> shardIdsToLoad = idsByShard.get(shard);
+                if (shardIdsToLoad == null) {
+                    shardIdsToLoad = Lists.newArrayList();
+                    idsByShard.put(shard, shardIdsToLoad);
+                }
+                shardIdsToLoad.add(id);
+            }
+        }
+
+        final GetAllExitStrategy exitStrategy = new GetAllExitStrategy();
+        Map<Serializable, Object> entitiesById = Collections.emptyMap();
+        if (!idsByShard.isEmpty()) {
+            final ShardOperation<Map<Serializable, Object>> shardOp =
+                    new ReadOnlyShardOperation<Map<Serializable, Object>>() {
+                        @Override
+                        public Map<Serializable, Object> execute(final Shard shard) {
+                            return loadAll(shard, clazz, idsByShard.get(shard));
+                        }
+
+                        @Override
+                        public String getOperationName() {
+                            return "getAll(Class clazz, Collection ids)";
+                        }
+                    };
+            entitiesById = shardStrategy.getShardAccessStrategy().apply(
+                    Lists.newArrayList(idsByShard.keySet()),
+                    shardOp,
+                    exitStrategy,
+                    new ExitOperationsQueryCollector());
+        }
+
+        final List<Object> results = Lists.newArrayListWithCapacity(normalizedIds.size());
+        for (final Serializable id : normalizedIds) {
+            final Object result = entitiesById.get(id);
+            if (result != null) {
+                indexObject(result, exitStrategy.getShardOfResult(id));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Converts an id of another type than the identifier property's, such as
+     * an Integer for a long id, to the identifier type, so that it resolves
+     * and loads like, and is equal to, the ids Hibernate returns.
+     */
+    private static Serializable normalizeId(final Class<?> clazz, final Type idType, final Serializable id) {
+        if (idType.getReturnedClass().isInstance(id) || !(idType instanceof IdentifierType)) {
+            return id;
+        }
+        try {
+            return (Serializable) ((IdentifierType<?>) idType).stringToObject(id.toString());
+        } catch (Exception e) {
+            throw new TypeMismatchException("Provided id of the wrong type for class " + clazz.getName()
+                    + ". Expected: " + idType.getReturnedClass() + ", got " + id.getClass());
+        }
+    }
+
+    /**
+     * Loads the instances with the given ids from the given shard, in batches
+     * of at most {@link #GET_ALL_BATCH_SIZE} ids.
+     *
+     * @return the instances that exist, by id
+     */
+    private static Map<Serializable, Object> loadAll(final Shard shard,
+                                                     final Class<?> clazz,
+                                                     final List<Serializable> ids) {
+
+        final Session session = shard.establishSession();
+        final ClassMetadata classMetadata = shard.getSessionFactoryImplementor().getClassMetadata(clazz);
+        if (classMetadata == null) {
+            throw new MappingException("Unknown entity: " + clazz.getName());
+        }
+        final Map<Serializable, Object> entities = Maps.newHashMap();
+        final String idPropertyName = classMetadata.getIdentifierPropertyName();
+        if (idPropertyName == null) {
+            // no identifier property we can restrict on, such as an embedded composite id
+            for (final Serializable id : ids) {
+                final Object entity = session.get(clazz, id);
+                if (entity != null) {
+                    entities.put(id, entity);
+                }
+            }
+            return entities;
+        }
+        for (int from = 0; from < ids.size(); from += GET_ALL_BATCH_SIZE) {
+            final List<Serializable> batch = ids.subList(from, Math.min(from + GET_ALL_BATCH_SIZE, ids.size()));
+            final List<?> batchEntities = session.createCriteria(clazz)
+                    .add(Restrictions.in(idPropertyName, batch))
+                    .list();
+            for (final Object entity : batchEntities) {
+                entities.put(session.getIdentifier(entity), entity);
+            }
+        }
+        return entities;
+    }
 
-        return applyGetOperation(shardOp, new ShardResolutionStrategyDataImpl(clazz, id));
+    /**
+     * Collects the instances loaded by getAll() along with the shards they
+     * were loaded from.
+     */
+    private static final class GetAllExitStrategy implements ExitStrategy<Map<Serializable, Object>> {
+
+        // guarded by this
+        private final Map<Serializable, Object> entitiesById = Maps.newHashMap();
+
+        // guarded by this
+        private final Map<Serializable, Shard> shardsById = Maps.newHashMap();
+
+        @Override
+        public synchronized boolean addResult(final Map<Serializable, Object> result, final Shard shard) {
+            for (final Map.Entry<Serializable, Object> entry : result.entrySet()) {
+                entitiesById.put(entry.getKey(), entry.getValue());
+                shardsById.put(entry.getKey(), shard);
+            }
+            return false;
+        }
+
+        @Override
+        public synchronized Map<Serializable, Object> compileResults(final ExitOperationsCollector exitOperationsCollector) {
+            return entitiesById;
+        }
+
+        synchronized Shard getShardOfResult(final Serializable id) {
+            return shardsById.get(id);
+        }
     }
 
     @Deprecated
@@ -296,6 +552,13 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
     @Override
     public Object get(final Class clazz, final Serializable id, final LockOptions lockOptions) throws HibernateException {
 
+        final List<ShardId> shardIds =
+                selectShardIdsFromShardResolutionStrategyData(new ShardResolutionStrategyDataImpl(clazz, id));
+        final Shard inlineShard = getInlineShard(shardIds);
+        if (inlineShard != null) {
+            return indexGetResult(inlineShard.establishSession().get(clazz, id, lockOptions), inlineShard);
+        }
+
         final ShardOperation<Object> shardOp = new ShardOperation<Object>() {
 
             @Override
@@ -309,13 +572,20 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
             }
         };
 
-        return applyGetOperation(shardOp, new ShardResolutionStrategyDataImpl(clazz, id));
+        return applyGetOperation(shardOp, shardIds);
     }
 
     @Override
     public Object get(final String entityName, final Serializable id) throws HibernateException {
 
-        final ShardOperation<Object> shardOp = new ShardOperation<Object>() {
+        final List<ShardId> shardIds =
+                selectShardIdsFromShardResolutionStrategyData(new ShardResolutionStrategyDataImpl(entityName, id));
+        final Shard inlineShard = getInlineShard(shardIds);
+        if (inlineShard != null) {
+            return indexGetResult(inlineShard.establishSession().get(entityName, id), inlineShard);
+        }
+
+        final ShardOperation<Object> shardOp = new ReplicableShardOperation<Object>() {
 
             @Override
             public Object execute(Shard shard) {
@@ -328,7 +598,7 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
             }
         };
 
-        return applyGetOperation(shardOp, new ShardResolutionStrategyDataImpl(entityName, id));
+        return applyGetOperation(shardOp, shardIds);
     }
 
     @Deprecated
@@ -343,6 +613,14 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
     public Object get(final String entityName, final Serializable id, final LockOptions lockOptions)
             throws HibernateException {
 
+        // we're not letting people customize shard selection by lockMode
+        final List<ShardId> shardIds =
+                selectShardIdsFromShardResolutionStrategyData(new ShardResolutionStrategyDataImpl(entityName, id));
+        final Shard inlineShard = getInlineShard(shardIds);
+        if (inlineShard != null) {
+            return indexGetResult(inlineShard.establishSession().get(entityName, id, lockOptions), inlineShard);
+        }
+
         final ShardOperation<Object> shardOp = new ShardOperation<Object>() {
 
             @Override
@@ -356,8 +634,7 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
             }
         };
 
-        // we're not letting people customize shard selection by lockMode
-        return applyGetOperation(shardOp, new ShardResolutionStrategyDataImpl(entityName, id));
+        return applyGetOperation(shardOp, shardIds);
     }
 
     private Session getSomeSession() {
@@ -461,6 +738,7 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
 
         shards.clear();
         shardIdsToShards.clear();
+        shardsByObject.clear();
         classesWithoutTopLevelSaveSupport.clear();
 
         if (thrown != null && !thrown.isEmpty()) {
@@ -560,6 +838,7 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
 
     @Override
     public void evict(final Object object) throws HibernateException {
+        shardsByObject.remove(object);
         for (final Shard shard : shards) {
             if (shard.getSession() != null) {
                 shard.getSession().evict(object);
@@ -714,7 +993,10 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
         Preconditions.checkNotNull(shardId);
         setCurrentSubgraphShardId(shardId);
         log.debug(String.format("Saving object of type %s to shard %s", object.getClass(), shardId));
-        return shardIdsToShards.get(shardId).establishSession().save(entityName, object);
+        final Shard shard = shardIdsToShards.get(shardId);
+        final Serializable id = shard.establishSession().save(entityName, object);
+        indexObject(object, shard);
+        return id;
     }
 
     ShardId selectShardIdForNewObject(final Object obj) {
@@ -1042,7 +1324,9 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
         Preconditions.checkNotNull(shardId);
         setCurrentSubgraphShardId(shardId);
         log.debug(String.format("Persisting object of type %s to shard %s", object.getClass(), shardId));
-        shardIdsToShards.get(shardId).establishSession().persist(entityName, object);
+        final Shard shard = shardIdsToShards.get(shardId);
+        shard.establishSession().persist(entityName, object);
+        indexObject(object, shard);
     }
 
     private void applyDeleteOperation(final DeleteOperation op, final Object object) {
@@ -1206,53 +1490,77 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
 
     @Override
     public Criteria createCriteria(final Class persistentClass) {
-        return new ShardedCriteriaImpl(
+        return applyDefaultTimeout(new ShardedCriteriaImpl(
                 new CriteriaId(nextCriteriaId++),
                 shards,
                 new CriteriaFactoryImpl(persistentClass),
-                shardStrategy.getShardAccessStrategy());
+                shardStrategy.getShardAccessStrategy()));
     }
 
     @Override
     public Criteria createCriteria(final Class persistentClass, final String alias) {
-        return new ShardedCriteriaImpl(
+        return applyDefaultTimeout(new ShardedCriteriaImpl(
                 new CriteriaId(nextCriteriaId++),
                 shards,
                 new CriteriaFactoryImpl(persistentClass, alias),
-                shardStrategy.getShardAccessStrategy());
+                shardStrategy.getShardAccessStrategy()));
     }
 
     @Override
     public Criteria createCriteria(final String entityName) {
-        return new ShardedCriteriaImpl(
+        return applyDefaultTimeout(new ShardedCriteriaImpl(
                 new CriteriaId(nextCriteriaId++),
                 shards,
                 new CriteriaFactoryImpl(entityName),
-                shardStrategy.getShardAccessStrategy());
+                shardStrategy.getShardAccessStrategy()));
     }
 
     public Criteria createCriteria(final String entityName, final String alias) {
-        return new ShardedCriteriaImpl(
+        return applyDefaultTimeout(new ShardedCriteriaImpl(
                 new CriteriaId(nextCriteriaId++),
                 shards,
                 new CriteriaFactoryImpl(entityName, alias),
-                shardStrategy.getShardAccessStrategy());
+                shardStrategy.getShardAccessStrategy()));
     }
 
     @Override
     public Query createQuery(String queryString) throws HibernateException {
-        return new ShardedQueryImpl(new QueryId(nextQueryId++),
+        return applyDefaultTimeout(new ShardedQueryImpl(new QueryId(nextQueryId++),
                 shards,
                 new AdHocQueryFactoryImpl(queryString),
-                shardStrategy.getShardAccessStrategy());
+                shardStrategy.getShardAccessStrategy()));
     }
 
     @Override
     public SQLQuery createSQLQuery(final String queryString) throws HibernateException {
-        return new ShardedSQLQueryImpl(new QueryId(nextQueryId++),
+        return applyDefaultTimeout(new ShardedSQLQueryImpl(new QueryId(nextQueryId++),
                 shards,
                 new AdHocQueryFactoryImpl(queryString),
-                shardStrategy.getShardAccessStrategy());
+                shardStrategy.getShardAccessStrategy()));
+    }
+
+    private Criteria applyDefaultTimeout(final Criteria criteria) {
+        final int timeout = getDefaultQueryTimeout();
+        if (timeout > 0) {
+            criteria.setTimeout(timeout);
+        }
+        return criteria;
+    }
+
+    private <Q extends Query> Q applyDefaultTimeout(final Q query) {
+        final int timeout = getDefaultQueryTimeout();
+        if (timeout > 0) {
+            query.setTimeout(timeout);
+        }
+        return query;
+    }
+
+    private int getDefaultQueryTimeout() {
+        if (defaultQueryTimeout == null) {
+            defaultQueryTimeout = PropertiesHelper.getInt(
+                    ShardedEnvironment.QUERY_TIMEOUT, shardedSessionFactory.getProperties(), 0);
+        }
+        return defaultQueryTimeout;
     }
 
     /**
@@ -1283,14 +1591,15 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
 
     @Override
     public Query getNamedQuery(final String queryName) throws HibernateException {
-        return new ShardedQueryImpl(new QueryId(nextQueryId++),
+        return applyDefaultTimeout(new ShardedQueryImpl(new QueryId(nextQueryId++),
                 shards,
                 new NamedQueryFactoryImpl(queryName),
-                shardStrategy.getShardAccessStrategy());
+                shardStrategy.getShardAccessStrategy()));
     }
 
     @Override
     public void clear() {
+        shardsByObject.clear();
         for (final Shard shard : shards) {
             if (shard.getSession() != null) {
                 shard.getSession().clear();
@@ -1674,15 +1983,33 @@ public class ShardedSessionImpl implements ShardedSession, ShardedSessionImpleme
     };
 
     private Shard getShardForObject(final Object obj, final List<Shard> shardsToConsider) {
-        // TODO(maxr) optimize this by keeping an identity map of objects to shardId
+        final Shard indexed = shardsByObject.get(obj);
+        if (indexed != null) {
+            if (indexed.getSession() != null && indexed.getSession().contains(obj)) {
+                return shardsToConsider == shards || shardsToConsider.contains(indexed) ? indexed : null;
+            }
+            shardsByObject.remove(obj);
+        }
         for (final Shard shard : shardsToConsider) {
             if (shard.getSession() != null && shard.getSession().contains(obj)) {
+                shardsByObject.put(obj, shard);
                 return shard;
             }
         }
         return null;
     }
 
+    /**
+     * Remembers that the session of the given shard contains the given object,
+     * unless the shard isn't one of ours (e.g. a replica).
+     */
+    private void indexObject(final Object obj, final /*@Nullable*/ Shard shard) {
+        if (shard != null && !shard.getShardIds().isEmpty()
+                && shardIdsToShards.get(shard.getShardIds().iterator().next()) == shard) {
+            shardsByObject.put(obj, shard);
+        }
+    }
+
     private Session getSessionForObject(final Object obj, final List<Shard> shardsToConsider) {
         final Shard shard = getShardForObject(obj, shardsToConsider);
         if (shard == null) {
@@ -22,6 +22,7 @@ import org.hibernate.HibernateException;
 import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.shards.ShardId;
 import org.hibernate.shards.strategy.ShardStrategyFactory;
+import org.hibernate.shards.strategy.access.BulkheadShardExecutor;
 
 import java.util.List;
 import java.util.Map;
@@ -48,6 +49,21 @@ public class SubsetShardedSessionFactoryImpl extends ShardedSessionFactoryImpl {
                 checkAllAssociatedObjectsForDifferentShards);
     }
 
+    /**
+     * @param sharedShardExecutor the executor of the ShardedSessionFactoryImpl
+     *                            that owns the shards, null if it doesn't have one
+     */
+    public SubsetShardedSessionFactoryImpl(final List<ShardId> shardIds,
+                                           final Map<SessionFactoryImplementor, Set<ShardId>> sessionFactoryShardIdMap,
+                                           final ShardStrategyFactory shardStrategyFactory,
+                                           final Set<Class<?>> classesWithoutTopLevelSaveSupport,
+                                           final boolean checkAllAssociatedObjectsForDifferentShards,
+                                           final /*@Nullable*/ BulkheadShardExecutor sharedShardExecutor) {
+
+        super(shardIds, sessionFactoryShardIdMap, shardStrategyFactory, classesWithoutTopLevelSaveSupport,
+                checkAllAssociatedObjectsForDifferentShards, sharedShardExecutor);
+    }
+
     protected SubsetShardedSessionFactoryImpl(
             final Map<SessionFactoryImplementor, Set<ShardId>> sessionFactoryShardIdMap,
             final ShardStrategyFactory shardStrategyFactory,
@@ -61,12 +77,14 @@ public class SubsetShardedSessionFactoryImpl extends ShardedSessionFactoryImpl {
     /**
      * This method is a NO-OP. As a ShardedSessionFactoryImpl that represents
      * a subset of the application's shards, it will not close any shard's
-     * sessionFactory.
+     * sessionFactory.  It only shuts down its executor if it had to create
+     * one of its own.
      *
      * @throws HibernateException
      */
     @Override
     public void close() throws HibernateException {
-        // no-op: this class should never close session factories
+        // this class should never close session factories
+        shutdownShardExecutor();
     }
 }
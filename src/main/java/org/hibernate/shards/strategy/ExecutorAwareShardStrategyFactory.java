@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy;
+
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.strategy.access.ShardExecutor;
+
+import java.util.List;
+
+/**
+ * ShardStrategyFactory whose shard access strategies run their operations on
+ * the executor of the sharded session factory, so that all sessions share
+ * the same limits on threads, per-shard concurrency and waiting operations.
+ * <p/>
+ * The sharded session factory creates the executor from the
+ * {@code hibernate.shard.executor.*} properties described in
+ * {@link org.hibernate.shards.cfg.ShardedEnvironment}, and shuts it down when
+ * it is closed.  It calls {@link #newShardStrategy(List, ShardExecutor)}
+ * rather than {@link #newShardStrategy(List)}.
+ */
+public interface ExecutorAwareShardStrategyFactory extends ShardStrategyFactory {
+
+    /**
+     * @param shardIds the ids of the shards the strategy operates on
+     * @param executor the executor owned by the sharded session factory, for
+     *                 instance to construct a
+     *                 {@link org.hibernate.shards.strategy.access.ParallelShardAccessStrategy} with
+     * @return the strategy
+     */
+    ShardStrategy newShardStrategy(List<ShardId> shardIds, ShardExecutor executor);
+}
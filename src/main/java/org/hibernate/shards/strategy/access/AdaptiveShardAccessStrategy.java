@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.exit.FirstNonNullResultExitStrategy;
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Picks sequential or parallel access for each operation depending on the
+ * number of shards it touches.
+ * <p/>
+ * Handing an operation to an executor only pays off when several shards are
+ * accessed at the same time.  Operations on at most {@code maxInlineShards}
+ * shards, such as a get() whose shard is known, run on the calling thread
+ * instead.  Operations whose exit strategy stops at the first non-null result
+ * run on the calling thread for up to {@code maxInlineShardsForFirstResult}
+ * shards, since they often don't need to visit all of them.  Everything else
+ * goes to the parallel strategy.
+ * <p/>
+ * Operations that run on the calling thread are not subject to the deadline
+ * of the parallel strategy, only to the JDBC query timeout of the session.
+ * {@link #applyAsync(List, ShardOperation, ExitStrategy, ExitOperationsCollector)}
+ * always uses the parallel strategy so it never blocks the calling thread.
+ */
+public class AdaptiveShardAccessStrategy
+        implements TimeoutAwareShardAccessStrategy, AsyncShardAccessStrategy, InlineShardAccessStrategy {
+
+    private final SequentialShardAccessStrategy sequentialStrategy;
+
+    private final ParallelShardAccessStrategy parallelStrategy;
+
+    // operations on at most this many shards run on the calling thread
+    private final int maxInlineShards;
+
+    // same, for operations that stop at the first non-null result
+    private final int maxInlineShardsForFirstResult;
+
+    /**
+     * Runs operations on a single shard on the calling thread and all other
+     * operations in parallel.
+     *
+     * @param parallelStrategy the strategy for operations on several shards
+     */
+    public AdaptiveShardAccessStrategy(final ParallelShardAccessStrategy parallelStrategy) {
+        this(new SequentialShardAccessStrategy(), parallelStrategy, 1, 1);
+    }
+
+    /**
+     * @param sequentialStrategy            the strategy for operations that run
+     *                                      on the calling thread
+     * @param parallelStrategy              the strategy for all other operations
+     * @param maxInlineShards               operations on at most this many shards run on
+     *                                      the calling thread
+     * @param maxInlineShardsForFirstResult operations that stop at the first
+     *                                      non-null result run on the calling thread
+     *                                      for at most this many shards
+     */
+    public AdaptiveShardAccessStrategy(final SequentialShardAccessStrategy sequentialStrategy,
+                                       final ParallelShardAccessStrategy parallelStrategy,
+                                       final int maxInlineShards,
+                                       final int maxInlineShardsForFirstResult) {
+
+        Preconditions.checkNotNull(sequentialStrategy);
+        Preconditions.checkNotNull(parallelStrategy);
+        Preconditions.checkArgument(maxInlineShards >= 0);
+        Preconditions.checkArgument(maxInlineShardsForFirstResult >= 0);
+        this.sequentialStrategy = sequentialStrategy;
+        this.parallelStrategy = parallelStrategy;
+        this.maxInlineShards = maxInlineShards;
+        this.maxInlineShardsForFirstResult = maxInlineShardsForFirstResult;
+    }
+
+    @Override
+    public <T> T apply(final List<Shard> shards,
+                       final ShardOperation<T> operation,
+                       final ExitStrategy<T> exitStrategy,
+                       final ExitOperationsCollector exitOperationsCollector) {
+
+        if (isInline(shards, exitStrategy)) {
+            return sequentialStrategy.apply(shards, operation, exitStrategy, exitOperationsCollector);
+        }
+        return parallelStrategy.apply(shards, operation, exitStrategy, exitOperationsCollector);
+    }
+
+    @Override
+    public <T> T apply(final List<Shard> shards,
+                       final ShardOperation<T> operation,
+                       final ExitStrategy<T> exitStrategy,
+                       final ExitOperationsCollector exitOperationsCollector,
+                       final int timeoutInSeconds) {
+
+        if (isInline(shards, exitStrategy)) {
+            return sequentialStrategy.apply(shards, operation, exitStrategy, exitOperationsCollector);
+        }
+        return parallelStrategy.apply(shards, operation, exitStrategy, exitOperationsCollector, timeoutInSeconds);
+    }
+
+    @Override
+    public <T> Future<T> applyAsync(final List<Shard> shards,
+                                    final ShardOperation<T> operation,
+                                    final ExitStrategy<T> exitStrategy,
+                                    final ExitOperationsCollector exitOperationsCollector) {
+
+        return parallelStrategy.applyAsync(shards, operation, exitStrategy, exitOperationsCollector);
+    }
+
+    /**
+     * Only true for this class itself, so subclasses that override how
+     * operations are applied are not bypassed unless they opt in.
+     */
+    @Override
+    public boolean isSingleShardAccessInline() {
+        return getClass() == AdaptiveShardAccessStrategy.class
+                && maxInlineShards >= 1
+                && sequentialStrategy.isSingleShardAccessInline();
+    }
+
+    /**
+     * @return whether or not the operation should run on the calling thread
+     */
+    boolean isInline(final List<Shard> shards, final ExitStrategy<?> exitStrategy) {
+        if (shards.size() <= maxInlineShards) {
+            return true;
+        }
+        return exitStrategy instanceof FirstNonNullResultExitStrategy
+                && shards.size() <= maxInlineShardsForFirstResult;
+    }
+}
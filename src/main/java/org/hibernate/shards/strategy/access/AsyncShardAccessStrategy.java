@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * ShardAccessStrategy that can apply an operation without blocking the
+ * calling thread.
+ */
+public interface AsyncShardAccessStrategy extends ShardAccessStrategy {
+
+    /**
+     * Starts applying the operation to the shards and returns right away.  The
+     * results are compiled by whichever thread completes the operation on the
+     * last shard.  Cancelling the returned future cancels the operation on the
+     * shards where it has not started yet, and only returns once it has
+     * stopped on the shards where it was running, so the session can be used
+     * again right after.
+     *
+     * @return the future result of the operation
+     */
+    <T> Future<T> applyAsync(List<Shard> shards,
+                             ShardOperation<T> operation,
+                             ExitStrategy<T> exitStrategy,
+                             ExitOperationsCollector exitOperationsCollector);
+}
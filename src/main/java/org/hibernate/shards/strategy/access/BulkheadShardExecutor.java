@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Maps;
+import org.hibernate.shards.util.Preconditions;
+import org.hibernate.shards.util.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShardExecutor that runs tasks on a bounded pool of daemon threads and keeps
+ * the shards from starving each other.
+ * <p/>
+ * At most {@code maxConcurrencyPerShard} tasks run against the same shard at
+ * any time.  Further tasks for that shard wait in a queue of their own without
+ * holding on to a thread, so a shard that is slow or receives a burst of
+ * requests can't tie up the threads that the other shards need.  Virtual
+ * shards that live on the same physical shard share a limit.
+ * <p/>
+ * At most {@code maxQueuedTasks} tasks wait across all shards, either for
+ * their shard or for a free thread.  Once that many are waiting new tasks are
+ * rejected right away with a {@link ShardAccessRejectedException} rather than
+ * piling up.
+ * <p/>
+ * Threadsafe.  Meant to be shared by all the sessions of a sharded session
+ * factory.
+ */
+public class BulkheadShardExecutor implements ShardExecutor {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final ThreadPoolExecutor pool;
+
+    private final int maxThreads;
+
+    private final int maxConcurrencyPerShard;
+
+    private final int maxQueuedTasks;
+
+    // keyed by the ids of a physical shard, guarded by this
+    private final Map<Set<ShardId>, Bulkhead> bulkheads = Maps.newHashMap();
+
+    // number of tasks handed to the pool that have not completed, guarded by this
+    private int dispatchedTasks;
+
+    // number of tasks waiting for their shard, guarded by this
+    private int tasksWaitingForShard;
+
+    // guarded by this
+    private boolean shutdown;
+
+    /**
+     * @param maxThreads             the maximum number of tasks that run at the same time
+     * @param maxConcurrencyPerShard the maximum number of tasks that run
+     *                               against the same shard at the same time
+     * @param maxQueuedTasks         the maximum number of tasks that wait to run
+     *                               before new tasks are rejected
+     */
+    public BulkheadShardExecutor(final int maxThreads, final int maxConcurrencyPerShard, final int maxQueuedTasks) {
+        Preconditions.checkArgument(maxThreads > 0);
+        Preconditions.checkArgument(maxConcurrencyPerShard > 0);
+        Preconditions.checkArgument(maxQueuedTasks >= 0);
+        this.maxThreads = maxThreads;
+        this.maxConcurrencyPerShard = maxConcurrencyPerShard;
+        this.maxQueuedTasks = maxQueuedTasks;
+        // the queue never holds more than maxQueuedTasks tasks, admission is
+        // controlled before tasks get here
+        this.pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("hibernate-shards-bulkhead-"));
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(final Shard shard, final Runnable task) throws ShardAccessRejectedException {
+        Preconditions.checkNotNull(task);
+        final Set<ShardId> shardIds = shard.getShardIds();
+        final Bulkhead bulkhead;
+        synchronized (this) {
+            if (shutdown) {
+                throw reject(shardIds, "Executor has been shut down, rejecting task for shard %s.", shardIds);
+            }
+            bulkhead = getBulkhead(shardIds);
+            final boolean shardAvailable = bulkhead.runningTasks < maxConcurrencyPerShard;
+            if (!(shardAvailable && dispatchedTasks < maxThreads) && getQueuedTaskCount() >= maxQueuedTasks) {
+                throw reject(shardIds, "%d tasks are already waiting, rejecting task for shard %s.",
+                        getQueuedTaskCount(), shardIds);
+            }
+            if (!shardAvailable) {
+                bulkhead.waitingTasks.add(task);
+                tasksWaitingForShard++;
+                return;
+            }
+            bulkhead.runningTasks++;
+            dispatchedTasks++;
+        }
+        try {
+            pool.execute(new BulkheadTask(bulkhead, task));
+        } catch (RejectedExecutionException e) {
+            // only happens if we are shut down concurrently
+            synchronized (this) {
+                bulkhead.runningTasks--;
+                dispatchedTasks--;
+            }
+            throw new ShardAccessRejectedException(
+                    String.format("Executor has been shut down, rejecting task for shard %s.", shardIds),
+                    Lists.newArrayList(shardIds), e);
+        }
+    }
+
+    /**
+     * @return the number of tasks that have been accepted but have to wait
+     *         for their shard or for a thread before they can run
+     */
+    public synchronized int getQueuedTaskCount() {
+        return tasksWaitingForShard + Math.max(0, dispatchedTasks - maxThreads);
+    }
+
+    /**
+     * Stops accepting tasks.  Tasks that have already been accepted still run.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+        }
+        pool.shutdown();
+    }
+
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    private Bulkhead getBulkhead(final Set<ShardId> shardIds) {
+        Bulkhead bulkhead = bulkheads.get(shardIds);
+        if (bulkhead == null) {
+            bulkhead = new Bulkhead();
+            bulkheads.put(Sets.newHashSet(shardIds), bulkhead);
+        }
+        return bulkhead;
+    }
+
+    private ShardAccessRejectedException reject(final Set<ShardId> shardIds, final String format, final Object... args) {
+        final String msg = String.format(format, args);
+        log.warn(msg);
+        return new ShardAccessRejectedException(msg, Lists.newArrayList(shardIds));
+    }
+
+    /**
+     * Frees the slot of a completed task, handing it to the next task that is
+     * waiting for the same shard.
+     *
+     * @return the next task if it has to run on the calling thread because
+     *         the pool has been shut down, otherwise null
+     */
+    private /*@Nullable*/ Runnable taskCompleted(final Bulkhead bulkhead) {
+        final Runnable next;
+        synchronized (this) {
+            next = bulkhead.waitingTasks.poll();
+            if (next == null) {
+                bulkhead.runningTasks--;
+                dispatchedTasks--;
+                return null;
+            }
+            // the slot passes straight to the next task, the counts don't change
+            tasksWaitingForShard--;
+        }
+        try {
+            pool.execute(new BulkheadTask(bulkhead, next));
+            return null;
+        } catch (RejectedExecutionException e) {
+            // we were shut down, but we accepted this task so it has to run
+            return next;
+        }
+    }
+
+    /**
+     * Tasks that run against the same physical shard.
+     */
+    private static final class Bulkhead {
+
+        // guarded by the executor
+        private int runningTasks;
+
+        // guarded by the executor
+        private final Queue<Runnable> waitingTasks = new LinkedList<Runnable>();
+    }
+
+    private final class BulkheadTask implements Runnable {
+
+        private final Bulkhead bulkhead;
+
+        private final Runnable task;
+
+        BulkheadTask(final Bulkhead bulkhead, final Runnable task) {
+            this.bulkhead = bulkhead;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            Runnable current = task;
+            while (current != null) {
+                try {
+                    current.run();
+                } finally {
+                    current = taskCompleted(bulkhead);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.ReadOnlyShardOperation;
+import org.hibernate.shards.ReplicableShardOperation;
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.exit.PartialResultExitStrategy;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Maps;
+import org.hibernate.shards.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps operations away from shards that have been failing.
+ * <p/>
+ * Every operation the given strategy runs against a shard is reported to the
+ * {@link ShardHealthTracker}.  Shards whose circuit is open are not handed to
+ * the strategy at all.  If the exit strategy is a
+ * {@link PartialResultExitStrategy} it is told about the shards that were
+ * skipped and the results of the other shards are compiled, otherwise the
+ * operation fails right away with a {@link ShardUnavailableException} instead
+ * of waiting for the bad shard to time out.
+ * <p/>
+ * Outcomes are reported with the {@link ShardHealthTracker.Permit} the shard
+ * was let through with, so operations that were already running when its
+ * circuit changed state don't count.
+ * <p/>
+ * Every exception thrown by an operation counts as a failure of its shard.
+ * Override {@link #isShardFailure(RuntimeException)} to ignore exceptions
+ * that say nothing about the health of the shard.
+ */
+public class CircuitBreakingShardAccessStrategy implements TimeoutAwareShardAccessStrategy, AsyncShardAccessStrategy {
+
+    private final ShardAccessStrategy shardAccessStrategy;
+
+    private final ShardHealthTracker healthTracker;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * @param shardAccessStrategy the strategy that accesses the available shards
+     * @param healthTracker       the circuits of the shards, typically shared by
+     *                            all the sessions of a sharded session factory
+     */
+    public CircuitBreakingShardAccessStrategy(final ShardAccessStrategy shardAccessStrategy,
+                                              final ShardHealthTracker healthTracker) {
+
+        this.shardAccessStrategy = Preconditions.checkNotNull(shardAccessStrategy);
+        this.healthTracker = Preconditions.checkNotNull(healthTracker);
+    }
+
+    @Override
+    public <T> T apply(final List<Shard> shards,
+                       final ShardOperation<T> operation,
+                       final ExitStrategy<T> exitStrategy,
+                       final ExitOperationsCollector exitOperationsCollector) {
+
+        final Map<Shard, ShardHealthTracker.Permit> permits = acquire(shards, operation, exitStrategy);
+        return shardAccessStrategy.apply(
+                Lists.newArrayList(permits.keySet()), monitor(operation, permits), exitStrategy,
+                exitOperationsCollector);
+    }
+
+    @Override
+    public <T> T apply(final List<Shard> shards,
+                       final ShardOperation<T> operation,
+                       final ExitStrategy<T> exitStrategy,
+                       final ExitOperationsCollector exitOperationsCollector,
+                       final int timeoutInSeconds) {
+
+        if (!(shardAccessStrategy instanceof TimeoutAwareShardAccessStrategy)) {
+            return apply(shards, operation, exitStrategy, exitOperationsCollector);
+        }
+        final Map<Shard, ShardHealthTracker.Permit> permits = acquire(shards, operation, exitStrategy);
+        return ((TimeoutAwareShardAccessStrategy) shardAccessStrategy).apply(
+                Lists.newArrayList(permits.keySet()), monitor(operation, permits), exitStrategy,
+                exitOperationsCollector, timeoutInSeconds);
+    }
+
+    @Override
+    public <T> Future<T> applyAsync(final List<Shard> shards,
+                                    final ShardOperation<T> operation,
+                                    final ExitStrategy<T> exitStrategy,
+                                    final ExitOperationsCollector exitOperationsCollector) {
+
+        if (shardAccessStrategy instanceof AsyncShardAccessStrategy) {
+            final Map<Shard, ShardHealthTracker.Permit> permits = acquire(shards, operation, exitStrategy);
+            return ((AsyncShardAccessStrategy) shardAccessStrategy).applyAsync(
+                    Lists.newArrayList(permits.keySet()), monitor(operation, permits), exitStrategy,
+                    exitOperationsCollector);
+        }
+        final FutureTask<T> result = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() {
+                return apply(shards, operation, exitStrategy, exitOperationsCollector);
+            }
+        });
+        result.run();
+        return result;
+    }
+
+    /**
+     * @return whether or not the given exception, thrown by an operation,
+     *         counts as a failure of the shard the operation ran against
+     */
+    protected boolean isShardFailure(final RuntimeException e) {
+        return true;
+    }
+
+    /**
+     * @return the permits of the shards the operation may run against, in the
+     *         order of the given shards
+     * @throws ShardUnavailableException if some shards are unavailable and the
+     *                                   exit strategy doesn't accept partial results
+     */
+    private <T> Map<Shard, ShardHealthTracker.Permit> acquire(final List<Shard> shards,
+                                                             final ShardOperation<T> operation,
+                                                             final ExitStrategy<T> exitStrategy) {
+
+        final Map<Shard, ShardHealthTracker.Permit> permits = Maps.newLinkedHashMap();
+        final List<Shard> unavailableShards = Lists.newArrayList();
+        for (final Shard shard : shards) {
+            final ShardHealthTracker.Permit permit = healthTracker.tryAcquire(shard);
+            if (permit != null) {
+                permits.put(shard, permit);
+            } else {
+                unavailableShards.add(shard);
+            }
+        }
+        if (unavailableShards.isEmpty()) {
+            return permits;
+        }
+
+        final List<ShardId> unavailableShardIds = Lists.newArrayList();
+        for (final Shard shard : unavailableShards) {
+            unavailableShardIds.addAll(shard.getShardIds());
+        }
+        final String msg = String.format("Not running %s on shards %s, their circuits are open.",
+                operation.getOperationName(), unavailableShardIds);
+        if (exitStrategy instanceof PartialResultExitStrategy) {
+            log.warn(msg + " Returning partial results.");
+            final PartialResultExitStrategy<T> partialResultExitStrategy = (PartialResultExitStrategy<T>) exitStrategy;
+            for (final Shard shard : unavailableShards) {
+                partialResultExitStrategy.addSkippedShard(shard);
+            }
+            return permits;
+        }
+        log.error(msg);
+        throw new ShardUnavailableException(msg, unavailableShardIds);
+    }
+
+    private <T> ShardOperation<T> monitor(final ShardOperation<T> operation,
+                                          final Map<Shard, ShardHealthTracker.Permit> permits) {
+        if (operation instanceof ReplicableShardOperation) {
+            return new MonitoredReplicableShardOperation<T>(operation, permits);
+        }
+        if (operation instanceof ReadOnlyShardOperation) {
+            return new MonitoredReadOnlyShardOperation<T>(operation, permits);
+        }
+        return new MonitoredShardOperation<T>(operation, permits);
+    }
+
+    /**
+     * Reports the outcome of each execution to the health tracker, with the
+     * permit its shard was let through with.
+     */
+    private class MonitoredShardOperation<T> implements ShardOperation<T> {
+
+        private final ShardOperation<T> operation;
+
+        // not modified once the operation is handed to the strategy
+        private final Map<Shard, ShardHealthTracker.Permit> permits;
+
+        MonitoredShardOperation(final ShardOperation<T> operation,
+                                final Map<Shard, ShardHealthTracker.Permit> permits) {
+            this.operation = operation;
+            this.permits = permits;
+        }
+
+        @Override
+        public T execute(final Shard shard) {
+            ShardHealthTracker.Permit permit = permits.get(shard);
+            if (permit == null) {
+                // a shard the strategy picked itself, such as a replica
+                permit = healthTracker.tryAcquire(shard);
+            }
+            final T result;
+            try {
+                result = operation.execute(shard);
+            } catch (RuntimeException e) {
+                if (permit != null && isShardFailure(e)) {
+                    healthTracker.recordFailure(permit);
+                }
+                throw e;
+            }
+            if (permit != null) {
+                healthTracker.recordSuccess(permit);
+            }
+            return result;
+        }
+
+        @Override
+        public String getOperationName() {
+            return operation.getOperationName();
+        }
+    }
+
+    /**
+     * Keeps read-only operations recognizable as such.
+     */
+    private class MonitoredReadOnlyShardOperation<T> extends MonitoredShardOperation<T>
+            implements ReadOnlyShardOperation<T> {
+
+        MonitoredReadOnlyShardOperation(final ShardOperation<T> operation,
+                                        final Map<Shard, ShardHealthTracker.Permit> permits) {
+            super(operation, permits);
+        }
+    }
+
+    /**
+     * Keeps replicable operations recognizable as such.
+     */
+    private class MonitoredReplicableShardOperation<T> extends MonitoredShardOperation<T>
+            implements ReplicableShardOperation<T> {
+
+        MonitoredReplicableShardOperation(final ShardOperation<T> operation,
+                                          final Map<Shard, ShardHealthTracker.Permit> permits) {
+            super(operation, permits);
+        }
+    }
+}
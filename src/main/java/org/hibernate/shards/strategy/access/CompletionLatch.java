@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * CountDownLatch that runs a task in the thread that counts it down to zero.
+ * The task runs at most once.
+ */
+class CompletionLatch extends CountDownLatch {
+
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+
+    private volatile Runnable onCompletion;
+
+    CompletionLatch(final int count) {
+        super(count);
+    }
+
+    /**
+     * Sets the task to run once the count reaches zero, running it right away
+     * if the count already is zero.
+     */
+    void setOnCompletion(final Runnable onCompletion) {
+        this.onCompletion = onCompletion;
+        fireIfComplete();
+    }
+
+    @Override
+    public void countDown() {
+        super.countDown();
+        fireIfComplete();
+    }
+
+    private void fireIfComplete() {
+        if (getCount() == 0 && onCompletion != null && completed.compareAndSet(false, true)) {
+            onCompletion.run();
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.shards.ReadOnlyShardOperation;
+import org.hibernate.shards.ReplicableShardOperation;
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.ShardImpl;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.exit.PartialResultExitStrategy;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Maps;
+import org.hibernate.shards.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invokes the given operation on the given shards in parallel, hedging
+ * replicable operations against read replicas of the shards.
+ * <p/>
+ * If a shard has not answered a {@link ReplicableShardOperation} once the
+ * hedge delay has passed, the same operation is issued to a replica of the
+ * shard and whichever answers first wins.  The hedge delay is the configured
+ * percentile of the recent latencies of the operation, so only the slowest
+ * requests get hedged.  Until enough latencies have been observed the initial
+ * hedge delay is used instead.  A replica is also tried if the shard itself
+ * fails.  The losing attempt is cancelled if it has not started yet.  A
+ * losing attempt on the shard that is already running has its query
+ * cancelled via {@link Session#cancelQuery()}, and apply() waits for it to
+ * stop before returning, since it runs in the session the caller goes on to
+ * use.  A losing attempt on a replica runs in a session of its own, so it is
+ * left to finish and its result is discarded.  If all attempts for a shard
+ * fail and the exit strategy is a {@link PartialResultExitStrategy} it is
+ * told about the failed shard, otherwise the operation fails.
+ * <p/>
+ * Operations against a replica run in a session that is opened for the
+ * operation and closed right after it, so objects read from a replica are
+ * detached.  Only use this strategy for reads that don't rely on lazy loading
+ * and that don't need the identity guarantees of the sharded session.
+ * Operations of sharded criteria and queries, such as list() and
+ * uniqueResult(), are never hedged even though they are read-only: they run
+ * against the criteria or query that was set up on the shard itself, which
+ * a session on the replica doesn't have.  In practice only get() by id is
+ * hedged.
+ * <p/>
+ * All results are handed to the exit strategy from the calling thread, so the
+ * exit strategy does not need to be threadsafe.
+ */
+public class HedgedShardAccessStrategy implements ShardAccessStrategy {
+
+    private static final boolean INTERRUPT_IF_RUNNING = false;
+
+    // number of latencies we remember per operation
+    private static final int LATENCY_WINDOW_SIZE = 256;
+
+    // number of latencies we need before we trust the percentile
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    private final ThreadPoolExecutor executor;
+
+    // the replica to hedge against for each shard id that has one
+    private final Map<ShardId, SessionFactoryImplementor> replicaSessionFactories;
+
+    // percentile of the latencies of an operation after which we hedge
+    private final double hedgePercentile;
+
+    // hedge delay to use until we have seen enough latencies
+    private final long initialHedgeDelayMillis;
+
+    // recent latencies of the primary shards, by operation name
+    private final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<String, LatencyWindow>();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Construct a HedgedShardAccessStrategy
+     *
+     * @param executor                the executor that runs the operations
+     * @param replicaSessionFactories the replica of each shard, shards without a replica are not hedged
+     * @param hedgePercentile         the percentile, between 0 and 1, of the latencies of an
+     *                                operation after which it is issued to a replica
+     * @param initialHedgeDelayMillis the delay after which an operation is issued to a
+     *                                replica until enough of its latencies have been observed
+     */
+    public HedgedShardAccessStrategy(final ThreadPoolExecutor executor,
+                                     final Map<ShardId, SessionFactoryImplementor> replicaSessionFactories,
+                                     final double hedgePercentile,
+                                     final long initialHedgeDelayMillis) {
+
+        Preconditions.checkNotNull(executor);
+        Preconditions.checkNotNull(replicaSessionFactories);
+        Preconditions.checkArgument(hedgePercentile > 0 && hedgePercentile <= 1);
+        Preconditions.checkArgument(initialHedgeDelayMillis >= 0);
+        this.executor = executor;
+        this.replicaSessionFactories = Maps.newHashMap();
+        this.replicaSessionFactories.putAll(replicaSessionFactories);
+        this.hedgePercentile = hedgePercentile;
+        this.initialHedgeDelayMillis = initialHedgeDelayMillis;
+    }
+
+    @Override
+    public <T> T apply(final List<Shard> shards,
+                       final ShardOperation<T> operation,
+                       final ExitStrategy<T> exitStrategy,
+                       final ExitOperationsCollector exitOperationsCollector) {
+
+        final boolean hedgeable = operation instanceof ReplicableShardOperation;
+        final BlockingQueue<Attempt<T>> completions = new LinkedBlockingQueue<Attempt<T>>();
+        final List<Slot<T>> slots = Lists.newArrayListWithCapacity(shards.size());
+        for (final Shard shard : shards) {
+            final Slot<T> slot = new Slot<T>(shard, operation, hedgeable ? getReplicaSessionFactory(shard) : null);
+            slots.add(slot);
+            slot.submit(new Attempt<T>(slot, shard, operation, false, completions));
+        }
+
+        final long hedgeAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getHedgeDelayMillis(operation));
+        boolean hedged = !hedgeable;
+        int remaining = slots.size();
+        try {
+            while (remaining > 0) {
+                final Attempt<T> attempt;
+                if (hedged) {
+                    attempt = completions.take();
+                } else {
+                    attempt = completions.poll(hedgeAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (attempt == null) {
+                        hedged = true;
+                        for (final Slot<T> slot : slots) {
+                            if (!slot.done && slot.canHedge()) {
+                                log.debug(String.format("Hedging %s on shard %s", operation.getOperationName(), slot.shard));
+                                slot.hedge(operation, completions);
+                            }
+                        }
+                        continue;
+                    }
+                }
+
+                final Slot<T> slot = attempt.slot;
+                slot.completed(attempt);
+                if (slot.done) {
+                    // the other attempt already won
+                    continue;
+                }
+                if (attempt.failure != null) {
+                    if (slot.canHedge()) {
+                        log.warn(String.format("%s failed on shard %s, retrying against its replica",
+                                operation.getOperationName(), slot.shard), attempt.failure);
+                        slot.hedge(operation, completions);
+                        continue;
+                    }
+                    if (slot.outstanding > 0) {
+                        // the other attempt may still succeed
+                        continue;
+                    }
+                    if (!(exitStrategy instanceof PartialResultExitStrategy)) {
+                        throw attempt.failure;
+                    }
+                    log.warn(String.format("%s failed on shard %s, returning partial results",
+                            operation.getOperationName(), slot.shard), attempt.failure);
+                    slot.done = true;
+                    remaining--;
+                    ((PartialResultExitStrategy<T>) exitStrategy).addFailedShard(slot.shard, attempt.failure);
+                    continue;
+                }
+
+                slot.done = true;
+                remaining--;
+                slot.cancelOutstanding();
+                if (exitStrategy.addResult(attempt.result, slot.shard)) {
+                    log.debug(String.format("Short-circuiting execution of %s after execution against shard %s",
+                            operation.getOperationName(), slot.shard));
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // not sure why this would happen or what we should do if it does
+            log.error("Received unexpected exception while waiting for results.", e);
+        } finally {
+            for (final Slot<T> slot : slots) {
+                slot.cancelOutstanding();
+            }
+            awaitPrimaryAttempts(slots, completions);
+        }
+
+        log.debug("Compiling results.");
+        return exitStrategy.compileResults(exitOperationsCollector);
+    }
+
+    /**
+     * Waits for the attempts that are still running against the shards
+     * themselves, so none of them uses the session of a shard once we return.
+     * Their queries have been cancelled, so this doesn't take long.
+     */
+    private static <T> void awaitPrimaryAttempts(final List<Slot<T>> slots,
+                                                 final BlockingQueue<Attempt<T>> completions) {
+        boolean interrupted = false;
+        for (final Slot<T> slot : slots) {
+            while (slot.primaryRunning) {
+                try {
+                    final Attempt<T> attempt = completions.take();
+                    attempt.slot.completed(attempt);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private /*@Nullable*/ SessionFactoryImplementor getReplicaSessionFactory(final Shard shard) {
+        for (final ShardId shardId : shard.getShardIds()) {
+            final SessionFactoryImplementor replica = replicaSessionFactories.get(shardId);
+            if (replica != null) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    long getHedgeDelayMillis(final ShardOperation<?> operation) {
+        final LatencyWindow window = latencies.get(operation.getOperationName());
+        if (window == null || window.size() < MIN_LATENCY_SAMPLES) {
+            return initialHedgeDelayMillis;
+        }
+        return window.percentile(hedgePercentile);
+    }
+
+    private void recordLatency(final ShardOperation<?> operation, final long latencyMillis) {
+        LatencyWindow window = latencies.get(operation.getOperationName());
+        if (window == null) {
+            latencies.putIfAbsent(operation.getOperationName(), new LatencyWindow(LATENCY_WINDOW_SIZE));
+            window = latencies.get(operation.getOperationName());
+        }
+        window.record(latencyMillis);
+    }
+
+    /**
+     * The attempts to execute the operation for a single shard.  Only accessed
+     * from the calling thread.
+     */
+    private final class Slot<T> {
+
+        private final Shard shard;
+
+        private final ShardOperation<T> operation;
+
+        // the replica to hedge against, null if we can't hedge
+        private /*@Nullable*/ SessionFactoryImplementor replicaSessionFactory;
+
+        private final List<StartAwareFutureTask> tasks = Lists.newArrayListWithCapacity(2);
+
+        // number of attempts that have been submitted but have not completed
+        private int outstanding;
+
+        // whether or not an attempt has succeeded
+        private boolean done;
+
+        // whether or not the attempt on the shard itself may still be using its session
+        private boolean primaryRunning;
+
+        Slot(final Shard shard,
+             final ShardOperation<T> operation,
+             final /*@Nullable*/ SessionFactoryImplementor replicaSessionFactory) {
+            this.shard = shard;
+            this.operation = operation;
+            this.replicaSessionFactory = replicaSessionFactory;
+        }
+
+        boolean canHedge() {
+            return replicaSessionFactory != null;
+        }
+
+        void hedge(final ShardOperation<T> operation, final BlockingQueue<Attempt<T>> completions) {
+            final Shard replica = new ShardImpl(shard.getShardIds(), replicaSessionFactory);
+            replicaSessionFactory = null;
+            submit(new Attempt<T>(this, replica, operation, true, completions));
+        }
+
+        void submit(final Attempt<T> attempt) {
+            final StartAwareFutureTask task = new StartAwareFutureTask(attempt, tasks.size());
+            tasks.add(task);
+            outstanding++;
+            primaryRunning |= !attempt.replica;
+            executor.execute(task);
+        }
+
+        void completed(final Attempt<T> attempt) {
+            outstanding--;
+            primaryRunning &= attempt.replica;
+        }
+
+        /**
+         * Cancels the attempts that have not started, and the query of the
+         * attempt on the shard if it is running.
+         */
+        void cancelOutstanding() {
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i).cancel(INTERRUPT_IF_RUNNING)) {
+                    outstanding--;
+                    // the attempt on the shard is always submitted first
+                    primaryRunning &= i > 0;
+                }
+            }
+            if (primaryRunning) {
+                cancelPrimaryQuery();
+            }
+        }
+
+        private void cancelPrimaryQuery() {
+            if (!(operation instanceof ReadOnlyShardOperation)) {
+                // a write that was cut short might leave the shard in a state nobody asked for
+                return;
+            }
+            final Session session = shard.getSession();
+            if (session == null) {
+                return;
+            }
+            log.debug(String.format("Cancelling query of %s on shard %s", operation.getOperationName(), shard));
+            try {
+                session.cancelQuery();
+            } catch (HibernateException e) {
+                // the query may have completed in the meantime
+                log.debug(String.format("Unable to cancel query of %s on shard %s",
+                        operation.getOperationName(), shard), e);
+            }
+        }
+    }
+
+    /**
+     * Executes the operation against either the shard or its replica and
+     * reports back to the calling thread.
+     */
+    private final class Attempt<T> implements Callable<Void> {
+
+        private final Slot<T> slot;
+
+        private final Shard target;
+
+        private final ShardOperation<T> operation;
+
+        private final boolean replica;
+
+        private final BlockingQueue<Attempt<T>> completions;
+
+        private T result;
+
+        private RuntimeException failure;
+
+        Attempt(final Slot<T> slot,
+                final Shard target,
+                final ShardOperation<T> operation,
+                final boolean replica,
+                final BlockingQueue<Attempt<T>> completions) {
+
+            this.slot = slot;
+            this.target = target;
+            this.operation = operation;
+            this.replica = replica;
+            this.completions = completions;
+        }
+
+        @Override
+        public Void call() {
+            final long start = System.nanoTime();
+            try {
+                result = operation.execute(target);
+                if (!replica) {
+                    recordLatency(operation, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = new HibernateException(e);
+                throw e;
+            } finally {
+                if (replica) {
+                    closeReplicaSession();
+                }
+                completions.add(this);
+            }
+            return null;
+        }
+
+        private void closeReplicaSession() {
+            final Session session = target.getSession();
+            if (session != null) {
+                try {
+                    session.close();
+                } catch (HibernateException e) {
+                    log.warn(String.format("Failed to close replica session of shard %s", target), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+/**
+ * ShardAccessStrategy that does nothing for an operation against a single
+ * shard but run it on the calling thread.  A caller that already knows the
+ * single shard an operation needs may then run the operation against the
+ * shard itself, without building the shard list, the exit strategy and the
+ * collector that going through the strategy takes.
+ */
+public interface InlineShardAccessStrategy extends ShardAccessStrategy {
+
+    /**
+     * @return whether or not an operation against a single shard just runs on
+     *         the calling thread
+     */
+    boolean isSingleShardAccessInline();
+}
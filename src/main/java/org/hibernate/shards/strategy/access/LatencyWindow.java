@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Threadsafe sliding window over the most recent latencies of an operation.
+ */
+class LatencyWindow {
+
+    private final long[] samples;
+
+    // index at which the next sample will be recorded
+    private int next;
+
+    // number of samples in the window
+    private int size;
+
+    LatencyWindow(final int capacity) {
+        Preconditions.checkArgument(capacity > 0);
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(final long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param percentile the percentile to compute, between 0 and 1
+     * @return the given percentile of the latencies in the window, -1 if the window is empty
+     */
+    synchronized long percentile(final double percentile) {
+        Preconditions.checkArgument(percentile >= 0 && percentile <= 1);
+        if (size == 0) {
+            return -1;
+        }
+        final long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(percentile * size) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
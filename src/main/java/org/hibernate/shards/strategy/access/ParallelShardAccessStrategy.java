@@ -19,33 +19,109 @@
 package org.hibernate.shards.strategy.access;
 
 import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardId;
 import org.hibernate.shards.ShardOperation;
 import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
 import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.exit.PartialResultExitStrategy;
 import org.hibernate.shards.util.Lists;
 import org.hibernate.shards.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Invokes the given operation on the given shards in parallel.
- * TODO(maxr) Add support for rejected tasks
+ * <p/>
+ * Operations can be given a deadline, either for all operations via the
+ * constructor or for a single operation via
+ * {@link #apply(List, ShardOperation, ExitStrategy, ExitOperationsCollector, int)}.
+ * When the deadline expires the tasks that have not started yet are cancelled
+ * and the results of the shards that have not completed are discarded.
+ * Tasks that are already running are not interrupted, but since they use the
+ * sessions of their shards the strategy waits for them to stop, once more
+ * for as long as the deadline, before it returns.  If they don't stop in
+ * time the operation fails even if the exit strategy accepts partial
+ * results.  The deadline should also be applied as the JDBC query timeout of
+ * the operation on each shard.
+ * <p/>
+ * Once the exit strategy has everything it needs, the deadline has expired or
+ * the caller has cancelled an asynchronous operation, the queries that
+ * read-only operations are still running on other shards are cancelled via
+ * {@link org.hibernate.Session#cancelQuery()} so the shards don't keep
+ * working on results nobody will look at.
+ * <p/>
+ * Operations can also be applied without blocking the calling thread via
+ * {@link #applyAsync(List, ShardOperation, ExitStrategy, ExitOperationsCollector)}.
+ * <p/>
+ * If the operation fails on a shard the exception is rethrown once all the
+ * shards are done, unless the exit strategy is a
+ * {@link PartialResultExitStrategy}, which is told about the failed shard
+ * instead.
+ * <p/>
+ * If the executor rejects the task of any shard the tasks that have already
+ * been handed to it are abandoned before they access their shards, and the
+ * operation fails with a {@link ShardAccessRejectedException}.  Give the
+ * strategy a {@link BulkheadShardExecutor} to bound the number of waiting
+ * tasks and the number of tasks that run against the same shard.
  *
  * @author maxr@google.com (Max Ross)
  */
-public class ParallelShardAccessStrategy implements ShardAccessStrategy {
+public class ParallelShardAccessStrategy implements TimeoutAwareShardAccessStrategy, AsyncShardAccessStrategy {
 
-    private final ThreadPoolExecutor executor;
+    private static final boolean INTERRUPT_IF_RUNNING = false;
+
+    private final ShardExecutor executor;
+
+    // deadline in seconds for operations that don't specify one, 0 means no deadline
+    private final int defaultTimeoutInSeconds;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     public ParallelShardAccessStrategy(ThreadPoolExecutor executor) {
+        this(executor, 0);
+    }
+
+    /**
+     * @param executor                the executor that runs the operations
+     * @param defaultTimeoutInSeconds the deadline for operations that don't
+     *                                specify one, 0 means no deadline
+     */
+    public ParallelShardAccessStrategy(final ThreadPoolExecutor executor, final int defaultTimeoutInSeconds) {
+        this((Executor) executor, defaultTimeoutInSeconds);
+    }
+
+    /**
+     * @param executor                the executor that runs the operations
+     * @param defaultTimeoutInSeconds the deadline for operations that don't
+     *                                specify one, 0 means no deadline
+     */
+    public ParallelShardAccessStrategy(final Executor executor, final int defaultTimeoutInSeconds) {
+        this(new PlainShardExecutor(Preconditions.checkNotNull(executor)), defaultTimeoutInSeconds);
+    }
+
+    /**
+     * @param executor                the executor that runs the operations,
+     *                                typically shared by all the sessions of a
+     *                                sharded session factory
+     * @param defaultTimeoutInSeconds the deadline for operations that don't
+     *                                specify one, 0 means no deadline
+     */
+    public ParallelShardAccessStrategy(final ShardExecutor executor, final int defaultTimeoutInSeconds) {
         Preconditions.checkNotNull(executor);
+        Preconditions.checkArgument(defaultTimeoutInSeconds >= 0);
         this.executor = executor;
+        this.defaultTimeoutInSeconds = defaultTimeoutInSeconds;
     }
 
     public <T> T apply(final List<Shard> shards,
@@ -53,7 +129,117 @@ public class ParallelShardAccessStrategy implements ShardAccessStrategy {
                        final ExitStrategy<T> exitStrategy,
                        final ExitOperationsCollector exitOperationsCollector) {
 
+        return apply(shards, operation, exitStrategy, exitOperationsCollector, defaultTimeoutInSeconds);
+    }
+
+    public <T> T apply(final List<Shard> shards,
+                       final ShardOperation<T> operation,
+                       final ExitStrategy<T> exitStrategy,
+                       final ExitOperationsCollector exitOperationsCollector,
+                       final int timeoutInSeconds) {
+
+        Preconditions.checkArgument(timeoutInSeconds >= 0);
         final List<StartAwareFutureTask> tasks = Lists.newArrayListWithCapacity(shards.size());
+        final List<ParallelShardOperationCallable<T>> callables = Lists.newArrayListWithCapacity(shards.size());
+
+        /**
+         * Used to signal this thread that all processing is complete
+         */
+        final CountDownLatch doneSignal = new CountDownLatch(shards.size());
+
+        /**
+         * Used to tell the tasks that we stopped waiting for them
+         */
+        final AtomicBoolean expired = new AtomicBoolean(false);
+        submit(shards, operation, exitStrategy, doneSignal, expired, tasks, callables);
+        try {
+            log.debug("Waiting for threads to complete processing before proceeding.");
+            if (timeoutInSeconds == 0) {
+                // now we wait until all threads finish
+                doneSignal.await();
+            } else if (!doneSignal.await(timeoutInSeconds, TimeUnit.SECONDS)) {
+                handleTimeout(operation, exitStrategy, timeoutInSeconds, doneSignal, tasks, callables, expired);
+            }
+        } catch (InterruptedException e) {
+            // not sure why this would happen or what we should do if it does
+            log.error("Received unexpected exception while waiting for done signal.", e);
+        }
+
+        checkForFailure(callables);
+        log.debug("Compiling results.");
+        return exitStrategy.compileResults(exitOperationsCollector);
+    }
+
+    /**
+     * Submits the operation for every shard and returns right away.  The
+     * results are compiled in the thread that completes the last shard.
+     * Cancelling the returned future waits for the tasks that are already
+     * running to stop, after cancelling their queries, so once cancel()
+     * returns no task uses the sessions of the shards anymore.
+     */
+    @Override
+    public <T> Future<T> applyAsync(final List<Shard> shards,
+                                    final ShardOperation<T> operation,
+                                    final ExitStrategy<T> exitStrategy,
+                                    final ExitOperationsCollector exitOperationsCollector) {
+
+        final List<StartAwareFutureTask> tasks = Lists.newArrayListWithCapacity(shards.size());
+        final List<ParallelShardOperationCallable<T>> callables = Lists.newArrayListWithCapacity(shards.size());
+        final CompletionLatch doneSignal = new CompletionLatch(shards.size());
+        // set once the caller cancels, the results are not compiled then
+        final AtomicBoolean cancelling = new AtomicBoolean(false);
+        final FutureTask<T> result = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() {
+                checkForFailure(callables);
+                log.debug("Compiling results.");
+                return exitStrategy.compileResults(exitOperationsCollector);
+            }
+        }) {
+            @Override
+            public boolean cancel(final boolean mayInterruptIfRunning) {
+                if (isDone() || !cancelling.compareAndSet(false, true)) {
+                    return false;
+                }
+                for (final StartAwareFutureTask task : tasks) {
+                    // same bookkeeping as a short-circuit
+                    if (task.cancel(INTERRUPT_IF_RUNNING)) {
+                        doneSignal.countDown();
+                    } else {
+                        task.cancelRunning();
+                    }
+                }
+                // only complete the future once the running tasks are done with the shard sessions
+                awaitUninterruptibly(doneSignal);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        doneSignal.setOnCompletion(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelling.get()) {
+                    result.run();
+                }
+            }
+        });
+        submit(shards, operation, exitStrategy, doneSignal, new AtomicBoolean(false), tasks, callables);
+        return result;
+    }
+
+    /**
+     * Hands a task for each shard to the executor.  The tasks only start
+     * processing once all of them have been submitted.
+     *
+     * @throws ShardAccessRejectedException if the executor rejects any of the
+     *                                      tasks, none of the tasks access their shard then
+     */
+    private <T> void submit(final List<Shard> shards,
+                            final ShardOperation<T> operation,
+                            final ExitStrategy<T> exitStrategy,
+                            final CountDownLatch doneSignal,
+                            final AtomicBoolean expired,
+                            final List<StartAwareFutureTask> tasks,
+                            final List<ParallelShardOperationCallable<T>> callables) {
 
         int taskId = 0;
 
@@ -64,10 +250,6 @@ public class ParallelShardAccessStrategy implements ShardAccessStrategy {
          */
         final CountDownLatch startSignal = new CountDownLatch(1);
 
-        /**
-         * Used to signal this thread that all processing is complete
-         */
-        final CountDownLatch doneSignal = new CountDownLatch(shards.size());
         for (final Shard shard : shards) {
             // create a task for each shard
             ParallelShardOperationCallable<T> callable =
@@ -77,37 +259,188 @@ public class ParallelShardAccessStrategy implements ShardAccessStrategy {
                             exitStrategy,
                             operation,
                             shard,
-                            tasks);
+                            tasks,
+                            expired);
+            callables.add(callable);
 
             // wrap the task in a StartAwareFutureTask so that the task can be cancelled
             final StartAwareFutureTask ft = new StartAwareFutureTask(callable, taskId++);
             tasks.add(ft);
 
             // hand the task off to the executor for execution
-            executor.execute(ft);
+            try {
+                executor.execute(shard, ft);
+            } catch (ShardAccessRejectedException e) {
+                log.warn(String.format("Abandoning %s, the task for shard %s was rejected.",
+                        operation.getOperationName(), shard));
+                abandon(tasks, expired);
+                startSignal.countDown();
+                throw e;
+            }
         }
 
         // the tasks List is populated, release the threads!
         startSignal.countDown();
+    }
+
+    /**
+     * Makes sure none of the tasks accesses its shard.  Tasks that have not
+     * started are cancelled, tasks that have started skip the operation once
+     * they get the start signal.
+     */
+    private static void abandon(final List<StartAwareFutureTask> tasks, final AtomicBoolean expired) {
+        synchronized (expired) {
+            expired.set(true);
+        }
+        for (final StartAwareFutureTask task : tasks) {
+            task.cancel(INTERRUPT_IF_RUNNING);
+        }
+    }
+
+    /**
+     * Fails the operation with the first exception thrown on a shard, unless
+     * the exit strategy had everything it needed anyway.  Failures are only
+     * kept by the tasks if the exit strategy doesn't accept partial results.
+     */
+    private static <T> void checkForFailure(final List<ParallelShardOperationCallable<T>> callables) {
+        RuntimeException failure = null;
+        for (final ParallelShardOperationCallable<T> callable : callables) {
+            if (callable.isHalted()) {
+                return;
+            }
+            if (failure == null) {
+                failure = callable.getFailure();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Stops the shards that have not completed the operation from contributing
+     * to the result and waits for the tasks that are still running to stop.
+     * Throws unless the exit strategy accepts partial results or already has
+     * everything it needs, or if the tasks don't stop in time.
+     */
+    private <T> void handleTimeout(final ShardOperation<T> operation,
+                                   final ExitStrategy<T> exitStrategy,
+                                   final int timeoutInSeconds,
+                                   final CountDownLatch doneSignal,
+                                   final List<StartAwareFutureTask> tasks,
+                                   final List<ParallelShardOperationCallable<T>> callables,
+                                   final AtomicBoolean expired) {
+
+        // once we hold the lock no task can add its result anymore
+        synchronized (expired) {
+            expired.set(true);
+        }
+
+        final List<Shard> timedOutShards = Lists.newArrayList();
+        boolean halted = false;
+        for (int i = 0; i < callables.size(); i++) {
+            final ParallelShardOperationCallable<T> callable = callables.get(i);
+            halted |= callable.isHalted();
+            if (!callable.isCompleted()) {
+                // only cancels tasks that have not started yet
+                if (tasks.get(i).cancel(INTERRUPT_IF_RUNNING)) {
+                    doneSignal.countDown();
+                } else {
+                    callable.cancelRunningQuery();
+                }
+                timedOutShards.add(callable.getShard());
+            }
+        }
+
+        final List<ShardId> timedOutShardIds = Lists.newArrayList();
+        for (final Shard shard : timedOutShards) {
+            timedOutShardIds.addAll(shard.getShardIds());
+        }
+
+        // the running tasks use the sessions of their shards, which the caller goes on to use
+        if (!awaitUninterruptibly(doneSignal, timeoutInSeconds)) {
+            final String msg = String.format(
+                    "%s timed out after %d seconds on shards %s and is still running on some of them.",
+                    operation.getOperationName(), timeoutInSeconds, timedOutShardIds);
+            log.error(msg);
+            throw new ShardAccessTimeoutException(msg, timedOutShardIds);
+        }
+
+        if (halted) {
+            // the exit strategy had everything it needed before the deadline
+            return;
+        }
+
+        final String msg = String.format("%s timed out after %d seconds on shards %s.",
+                operation.getOperationName(), timeoutInSeconds, timedOutShardIds);
+        if (exitStrategy instanceof PartialResultExitStrategy) {
+            log.warn(msg + " Returning partial results.");
+            final PartialResultExitStrategy<T> partialResultExitStrategy = (PartialResultExitStrategy<T>) exitStrategy;
+            for (final Shard shard : timedOutShards) {
+                partialResultExitStrategy.addTimedOutShard(shard);
+            }
+            return;
+        }
+        log.error(msg);
+        throw new ShardAccessTimeoutException(msg, timedOutShardIds);
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return whether or not the latch reached zero before the timeout
+     */
+    private static boolean awaitUninterruptibly(final CountDownLatch latch, final int timeoutInSeconds) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutInSeconds);
+        boolean interrupted = false;
         try {
-            log.debug("Waiting for threads to complete processing before proceeding.");
-            //TODO(maxr) let users customize timeout behavior
-              /*
-              if(!doneSignal.await(10, TimeUnit.SECONDS)) {
-                final String msg = "Parallel operations timed out.";
-                log.error(msg);
-                throw new HibernateException(msg);
-              }
-              */
-
-            // now we wait until all threads finish
-            doneSignal.await();
-        } catch (InterruptedException e) {
-            // not sure why this would happen or what we should do if it does
-            log.error("Received unexpected exception while waiting for done signal.", e);
+            while (true) {
+                try {
+                    return latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
+    }
 
-        log.debug("Compiling results.");
-        return exitStrategy.compileResults(exitOperationsCollector);
+    /**
+     * Adapts a plain executor, which doesn't care which shard a task accesses.
+     */
+    private static final class PlainShardExecutor implements ShardExecutor {
+
+        private final Executor executor;
+
+        PlainShardExecutor(final Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(final Shard shard, final Runnable task) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                final List<ShardId> shardIds = Lists.newArrayList(shard.getShardIds());
+                throw new ShardAccessRejectedException(
+                        String.format("Executor rejected task for shard %s.", shardIds), shardIds, e);
+            }
+        }
     }
 }
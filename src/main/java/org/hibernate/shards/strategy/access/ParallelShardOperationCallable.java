@@ -19,15 +19,19 @@
 package org.hibernate.shards.strategy.access;
 
 import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.shards.ReadOnlyShardOperation;
 import org.hibernate.shards.Shard;
 import org.hibernate.shards.ShardOperation;
 import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.exit.PartialResultExitStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Runs a single operation on a single shard, collecting the result of the
@@ -56,6 +60,24 @@ class ParallelShardOperationCallable<T> implements Callable<Void> {
 
     private final List<StartAwareFutureTask> futureTasks;
 
+    // set once the deadline of the operation has expired or the operation has
+    // been abandoned, also guards the exit strategy so no results get added
+    // after the deadline
+    private final AtomicBoolean expired;
+
+    // whether or not our result made it into the exit strategy
+    private volatile boolean completed;
+
+    // whether or not the exit strategy told us to halt processing
+    private volatile boolean halted;
+
+    // the exception thrown by the operation, unless the exit strategy accepted it
+    private volatile /*@Nullable*/ RuntimeException failure;
+
+    // set once nobody is interested in our result anymore and the query on
+    // the shard may have been cancelled
+    private volatile boolean cancelled;
+
     public ParallelShardOperationCallable(final CountDownLatch startSignal,
                                           final CountDownLatch doneSignal,
                                           final ExitStrategy<T> exitStrategy,
@@ -63,23 +85,58 @@ class ParallelShardOperationCallable<T> implements Callable<Void> {
                                           final Shard shard,
                                           final List<StartAwareFutureTask> futureTasks) {
 
+        this(startSignal, doneSignal, exitStrategy, operation, shard, futureTasks, new AtomicBoolean(false));
+    }
+
+    public ParallelShardOperationCallable(final CountDownLatch startSignal,
+                                          final CountDownLatch doneSignal,
+                                          final ExitStrategy<T> exitStrategy,
+                                          final ShardOperation<T> operation,
+                                          final Shard shard,
+                                          final List<StartAwareFutureTask> futureTasks,
+                                          final AtomicBoolean expired) {
+
         this.startSignal = startSignal;
         this.doneSignal = doneSignal;
         this.exitStrategy = exitStrategy;
         this.operation = operation;
         this.shard = shard;
         this.futureTasks = futureTasks;
+        this.expired = expired;
     }
 
     public Void call() throws Exception {
         try {
             waitForStartSignal();
+            if (expired.get() || cancelled) {
+                log.debug(String.format("Skipping execution of %s against shard %s, the operation has been abandoned",
+                        operation.getOperationName(), shard));
+                return null;
+            }
             log.debug(String.format("Starting execution of %s against shard %s", operation.getOperationName(), shard));
+            final T result;
+            try {
+                result = operation.execute(shard);
+            } catch (RuntimeException e) {
+                handleFailure(e);
+                return null;
+            }
+            final boolean halt;
+            synchronized (expired) {
+                if (expired.get()) {
+                    log.debug(String.format("Discarding result of %s against shard %s, the deadline has expired",
+                            operation.getOperationName(), shard));
+                    return null;
+                }
+                halt = exitStrategy.addResult(result, shard);
+                completed = true;
+                halted = halt;
+            }
             /**
              * If addResult() returns true it means there is no more work to be
              * performed.  Cancel all the outstanding tasks.
              */
-            if (exitStrategy.addResult(operation.execute(shard), shard)) {
+            if (halt) {
                 log.debug(
                         String.format(
                                 "Short-circuiting execution of %s on other threads after execution against shard %s",
@@ -105,6 +162,7 @@ class ParallelShardOperationCallable<T> implements Callable<Void> {
                         doneSignal.countDown();
                     } else {
                         log.debug("Task cancel returned false, not decrementing counter on its behalf.");
+                        ft.cancelRunning();
                     }
                 }
             } else {
@@ -122,6 +180,89 @@ class ParallelShardOperationCallable<T> implements Callable<Void> {
         return null;
     }
 
+    /**
+     * Reports the failure to the exit strategy if it accepts partial results,
+     * otherwise keeps it for the thread that waits for the operation.
+     */
+    private void handleFailure(final RuntimeException e) {
+        if (cancelled) {
+            log.debug(String.format("Discarding failure of %s against shard %s, the operation was cancelled",
+                    operation.getOperationName(), shard), e);
+            return;
+        }
+        synchronized (expired) {
+            if (expired.get()) {
+                log.debug(String.format("Discarding failure of %s against shard %s, the deadline has expired",
+                        operation.getOperationName(), shard), e);
+                return;
+            }
+            if (exitStrategy instanceof PartialResultExitStrategy) {
+                log.warn(String.format("%s failed on shard %s, returning partial results",
+                        operation.getOperationName(), shard), e);
+                ((PartialResultExitStrategy<T>) exitStrategy).addFailedShard(shard, e);
+                completed = true;
+                return;
+            }
+            log.error(String.format("%s failed on shard %s", operation.getOperationName(), shard), e);
+            failure = e;
+        }
+    }
+
+    /**
+     * Cancels the query the operation is running on the shard, because the
+     * exit strategy already has what it needs, the deadline has expired or the
+     * caller has cancelled the operation.  The JDBC statement is cancelled via
+     * {@link Session#cancelQuery()}, which frees the shard right away rather
+     * than letting it run the query to completion.  If the operation has not
+     * reached the shard yet it won't start.  Only read-only operations are
+     * cancelled, since a write that was cut short might leave the shard in a
+     * state nobody asked for.  Safe to call from any thread.
+     */
+    void cancelRunningQuery() {
+        if (completed || !(operation instanceof ReadOnlyShardOperation)) {
+            return;
+        }
+        cancelled = true;
+        final Session session = shard.getSession();
+        if (session == null) {
+            return;
+        }
+        log.debug(String.format("Cancelling query of %s on shard %s", operation.getOperationName(), shard));
+        try {
+            session.cancelQuery();
+        } catch (HibernateException e) {
+            // the query may have completed in the meantime
+            log.debug(String.format("Unable to cancel query of %s on shard %s",
+                    operation.getOperationName(), shard), e);
+        }
+    }
+
+    /**
+     * @return whether or not the result of the operation has been added to the exit strategy
+     */
+    boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return whether or not the exit strategy indicated that processing could halt after adding our result
+     */
+    boolean isHalted() {
+        return halted;
+    }
+
+    /**
+     * @return the exception thrown by the operation, or null if it didn't
+     *         fail or the exit strategy accepted the failure
+     */
+    /*@Nullable*/ RuntimeException getFailure() {
+        return failure;
+    }
+
+    Shard getShard() {
+        return shard;
+    }
+
     private void waitForStartSignal() {
         try {
             startSignal.await();
@@ -22,15 +22,21 @@ import org.hibernate.shards.Shard;
 import org.hibernate.shards.ShardOperation;
 import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
 import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.exit.PartialResultExitStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 
 /**
+ * Invokes the given operation on the given shards one after the other.  The
+ * first exception thrown by the operation aborts it, unless the exit strategy
+ * is a {@link PartialResultExitStrategy}, which is told about the failed shard
+ * before the operation moves on to the next one.
+ *
  * @author maxr@google.com (Max Ross)
  */
-public class SequentialShardAccessStrategy implements ShardAccessStrategy {
+public class SequentialShardAccessStrategy implements InlineShardAccessStrategy {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -38,7 +44,19 @@ public class SequentialShardAccessStrategy implements ShardAccessStrategy {
                        final ExitOperationsCollector exitOperationsCollector) {
 
         for (final Shard shard : getNextOrderingOfShards(shards)) {
-            if (exitStrategy.addResult(operation.execute(shard), shard)) {
+            final T result;
+            try {
+                result = operation.execute(shard);
+            } catch (RuntimeException e) {
+                if (!(exitStrategy instanceof PartialResultExitStrategy)) {
+                    throw e;
+                }
+                log.warn(String.format("%s failed on shard %s, returning partial results",
+                        operation.getOperationName(), shard), e);
+                ((PartialResultExitStrategy<T>) exitStrategy).addFailedShard(shard, e);
+                continue;
+            }
+            if (exitStrategy.addResult(result, shard)) {
                 log.debug(
                         String.format(
                                 "Short-circuiting operation %s after execution against shard %s",
@@ -50,6 +68,17 @@ public class SequentialShardAccessStrategy implements ShardAccessStrategy {
         return exitStrategy.compileResults(exitOperationsCollector);
     }
 
+    /**
+     * Only true for this class itself.  A subclass may override
+     * {@link #apply(List, ShardOperation, ExitStrategy, ExitOperationsCollector)}
+     * to do more than run the operation, such as logging or routing, so it is
+     * only bypassed if it opts in by overriding this method.
+     */
+    @Override
+    public boolean isSingleShardAccessInline() {
+        return getClass() == SequentialShardAccessStrategy.class;
+    }
+
     /**
      * Override this method if you want to control the order in which the
      * shards are operated on (this comes in handy when paired with exit
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.HibernateException;
+import org.hibernate.shards.ShardId;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when an operation could not be started on a shard because the
+ * executor that runs the operations refused to accept it, typically because
+ * too many operations are already waiting.
+ */
+public class ShardAccessRejectedException extends HibernateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<ShardId> rejectedShardIds;
+
+    public ShardAccessRejectedException(final String message, final List<ShardId> rejectedShardIds) {
+        super(message);
+        this.rejectedShardIds = Collections.unmodifiableList(rejectedShardIds);
+    }
+
+    public ShardAccessRejectedException(final String message,
+                                        final List<ShardId> rejectedShardIds,
+                                        final Throwable cause) {
+
+        super(message, cause);
+        this.rejectedShardIds = Collections.unmodifiableList(rejectedShardIds);
+    }
+
+    /**
+     * @return the ids of the shard the operation could not be started on
+     */
+    public List<ShardId> getRejectedShardIds() {
+        return rejectedShardIds;
+    }
+}
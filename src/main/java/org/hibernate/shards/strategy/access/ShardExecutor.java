@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.Shard;
+
+/**
+ * Runs the tasks of a shard access strategy, knowing which shard each task
+ * is going to access.
+ */
+public interface ShardExecutor {
+
+    /**
+     * Runs the given task, which accesses the given shard, at some point in
+     * the future.
+     *
+     * @param shard the shard the task accesses
+     * @param task  the task to run
+     * @throws ShardAccessRejectedException if the task cannot be accepted
+     */
+    void execute(Shard shard, Runnable task) throws ShardAccessRejectedException;
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.util.Maps;
+import org.hibernate.shards.util.Preconditions;
+import org.hibernate.shards.util.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a circuit breaker for each physical shard.
+ * <p/>
+ * A closed circuit lets all operations through.  It opens after
+ * {@code failureThreshold} consecutive failures, or once at least
+ * {@code failureRateThreshold} of the last {@code windowSize} operations have
+ * failed.  An open circuit lets no operations through until
+ * {@code openDurationMillis} have passed.  After that it is half open and lets
+ * a single probe through: if the probe succeeds the circuit closes, if it
+ * fails the circuit opens again.  A probe that doesn't report back within
+ * {@code openDurationMillis}, for instance because it was cancelled, is
+ * given up on and the next operation gets to probe.
+ * <p/>
+ * Operations report their outcome with the {@link Permit} they were let
+ * through with.  Every time the state of a circuit changes the permits handed
+ * out before become stale, and their outcomes are ignored: an operation that
+ * was let through before the circuit opened can't close it again, and once
+ * a probe has been given up on only the next probe can close the circuit.
+ * <p/>
+ * Virtual shards that live on the same physical shard share a circuit.
+ * Threadsafe.
+ */
+public class ShardHealthTracker {
+
+    /**
+     * The state of the circuit of a shard.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    // consecutive failures after which the circuit opens
+    private final int failureThreshold;
+
+    // fraction of failures in the window after which the circuit opens
+    private final double failureRateThreshold;
+
+    // number of recent outcomes the failure rate is computed over, 0 to only count consecutive failures
+    private final int windowSize;
+
+    private final long openDurationNanos;
+
+    // keyed by the ids of a physical shard, guarded by this
+    private final Map<Set<ShardId>, Circuit> circuits = Maps.newHashMap();
+
+    /**
+     * Opens a circuit after the given number of consecutive failures only.
+     *
+     * @param failureThreshold   consecutive failures after which the circuit opens
+     * @param openDurationMillis time after which an open circuit lets a probe through
+     */
+    public ShardHealthTracker(final int failureThreshold, final long openDurationMillis) {
+        this(failureThreshold, 1.0, 0, openDurationMillis);
+    }
+
+    /**
+     * @param failureThreshold     consecutive failures after which the circuit opens
+     * @param failureRateThreshold fraction, between 0 and 1, of the operations in
+     *                             the window that have to fail for the circuit to open
+     * @param windowSize           number of recent operations the failure rate is
+     *                             computed over, 0 to ignore the failure rate
+     * @param openDurationMillis   time after which an open circuit lets a probe through
+     */
+    public ShardHealthTracker(final int failureThreshold,
+                              final double failureRateThreshold,
+                              final int windowSize,
+                              final long openDurationMillis) {
+
+        Preconditions.checkArgument(failureThreshold > 0);
+        Preconditions.checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 1);
+        Preconditions.checkArgument(windowSize >= 0);
+        Preconditions.checkArgument(openDurationMillis >= 0);
+        this.failureThreshold = failureThreshold;
+        this.failureRateThreshold = failureRateThreshold;
+        this.windowSize = windowSize;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+    }
+
+    /**
+     * Asks for permission to run an operation against the given shard.  If the
+     * circuit is half open the caller may get to run the probe.
+     *
+     * @return the permit to report the outcome of the operation with, or null
+     *         if the operation may not run
+     */
+    public synchronized /*@Nullable*/ Permit tryAcquire(final Shard shard) {
+        final Circuit circuit = getCircuit(shard);
+        if (circuit.state == State.CLOSED) {
+            return new Permit(circuit, circuit.generation);
+        }
+        // while open openedAt is when the circuit opened, while half open it is
+        // when the probe started
+        if (nanoTime() - circuit.openedAt < openDurationNanos) {
+            return null;
+        }
+        log.info(String.format("Probing shard %s", circuit.shardIds));
+        circuit.changeState(State.HALF_OPEN);
+        return new Permit(circuit, circuit.generation);
+    }
+
+    /**
+     * Records that an operation succeeded.  Ignored if the permit is stale.
+     *
+     * @param permit the permit the operation was let through with
+     */
+    public synchronized void recordSuccess(final Permit permit) {
+        final Circuit circuit = permit.circuit;
+        if (permit.generation != circuit.generation) {
+            return;
+        }
+        if (circuit.state == State.HALF_OPEN) {
+            // only the probe was let through since the circuit became half open
+            log.info(String.format("Closing circuit of shard %s", circuit.shardIds));
+            circuit.reset();
+            circuit.changeState(State.CLOSED);
+        }
+        circuit.consecutiveFailures = 0;
+        circuit.record(false);
+    }
+
+    /**
+     * Records that an operation failed.  Ignored if the permit is stale.
+     *
+     * @param permit the permit the operation was let through with
+     */
+    public synchronized void recordFailure(final Permit permit) {
+        final Circuit circuit = permit.circuit;
+        if (permit.generation != circuit.generation) {
+            return;
+        }
+        circuit.consecutiveFailures++;
+        circuit.record(true);
+        if (circuit.state == State.HALF_OPEN
+                || circuit.consecutiveFailures >= failureThreshold
+                || circuit.failureRateExceeded()) {
+            log.warn(String.format("Opening circuit of shard %s, %d consecutive failures",
+                    circuit.shardIds, circuit.consecutiveFailures));
+            circuit.changeState(State.OPEN);
+        }
+    }
+
+    /**
+     * @return the state of the circuit of the given shard
+     */
+    public synchronized State getState(final Shard shard) {
+        return getCircuit(shard).state;
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private Circuit getCircuit(final Shard shard) {
+        final Set<ShardId> shardIds = shard.getShardIds();
+        Circuit circuit = circuits.get(shardIds);
+        if (circuit == null) {
+            circuit = new Circuit(Sets.newHashSet(shardIds));
+            circuits.put(circuit.shardIds, circuit);
+        }
+        return circuit;
+    }
+
+    /**
+     * Lets one operation through to a shard, see {@link #tryAcquire(Shard)}.
+     */
+    public final class Permit {
+
+        private final Circuit circuit;
+
+        // the generation of the circuit when the permit was handed out
+        private final long generation;
+
+        private Permit(final Circuit circuit, final long generation) {
+            this.circuit = circuit;
+            this.generation = generation;
+        }
+    }
+
+    private final class Circuit {
+
+        private final Set<ShardId> shardIds;
+
+        private State state = State.CLOSED;
+
+        // incremented on every change of state, guarded by the tracker
+        private long generation;
+
+        // when the circuit opened or the probe started
+        private long openedAt;
+
+        private int consecutiveFailures;
+
+        // recent outcomes, true for a failure
+        private final boolean[] window = new boolean[windowSize];
+
+        // position in the window of the next outcome
+        private int next;
+
+        // number of outcomes in the window
+        private int outcomes;
+
+        // number of failures in the window
+        private int failures;
+
+        Circuit(final Set<ShardId> shardIds) {
+            this.shardIds = shardIds;
+        }
+
+        void changeState(final State state) {
+            this.state = state;
+            generation++;
+            openedAt = nanoTime();
+        }
+
+        void record(final boolean failure) {
+            if (windowSize == 0) {
+                return;
+            }
+            if (outcomes == windowSize) {
+                if (window[next]) {
+                    failures--;
+                }
+            } else {
+                outcomes++;
+            }
+            window[next] = failure;
+            if (failure) {
+                failures++;
+            }
+            next = (next + 1) % windowSize;
+        }
+
+        boolean failureRateExceeded() {
+            return windowSize > 0 && outcomes == windowSize && failures >= failureRateThreshold * windowSize;
+        }
+
+        void reset() {
+            consecutiveFailures = 0;
+            next = 0;
+            outcomes = 0;
+            failures = 0;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.HibernateException;
+import org.hibernate.shards.ShardId;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when an operation needs shards that are considered unavailable
+ * because they have been failing, and the exit strategy doesn't accept
+ * partial results.
+ */
+public class ShardUnavailableException extends HibernateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<ShardId> unavailableShardIds;
+
+    public ShardUnavailableException(final String message, final List<ShardId> unavailableShardIds) {
+        super(message);
+        this.unavailableShardIds = Collections.unmodifiableList(unavailableShardIds);
+    }
+
+    /**
+     * @return the ids of the shards the operation was not attempted on
+     */
+    public List<ShardId> getUnavailableShardIds() {
+        return unavailableShardIds;
+    }
+}
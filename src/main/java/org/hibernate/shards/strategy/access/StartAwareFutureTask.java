@@ -56,11 +56,14 @@ class StartAwareFutureTask extends FutureTask<Void> {
 
     private final int id;
 
+    private final Callable<Void> callable;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     public StartAwareFutureTask(final Callable<Void> callable, final int id) {
         super(callable);
         this.id = id;
+        this.callable = callable;
     }
 
     @Override
@@ -99,6 +102,17 @@ class StartAwareFutureTask extends FutureTask<Void> {
         return result;
     }
 
+    /**
+     * Asks a task that is already running to stop.  cancel() leaves running
+     * tasks alone, but a task that runs an operation against a shard can
+     * still have the query on the shard cancelled.
+     */
+    void cancelRunning() {
+        if (callable instanceof ParallelShardOperationCallable) {
+            ((ParallelShardOperationCallable<?>) callable).cancelRunningQuery();
+        }
+    }
+
     public int getId() {
         return id;
     }
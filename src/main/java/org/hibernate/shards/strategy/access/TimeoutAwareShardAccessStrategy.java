@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+
+import java.util.List;
+
+/**
+ * ShardAccessStrategy that can put a deadline on the time it waits for the
+ * shards to complete an operation.
+ */
+public interface TimeoutAwareShardAccessStrategy extends ShardAccessStrategy {
+
+    /**
+     * Applies the operation to the shards, giving up on the shards that have
+     * not completed the operation within the given number of seconds.  If the
+     * exit strategy is a {@link org.hibernate.shards.strategy.exit.PartialResultExitStrategy}
+     * the shards that timed out are reported to it and the results of the other
+     * shards are compiled, otherwise a {@link ShardAccessTimeoutException} is thrown.
+     * Implementations must not return while the operation still uses the
+     * session of a shard that timed out.
+     *
+     * @param timeoutInSeconds the deadline for the operation, 0 means no deadline
+     */
+    <T> T apply(List<Shard> shards,
+                ShardOperation<T> operation,
+                ExitStrategy<T> exitStrategy,
+                ExitOperationsCollector exitOperationsCollector,
+                int timeoutInSeconds);
+}
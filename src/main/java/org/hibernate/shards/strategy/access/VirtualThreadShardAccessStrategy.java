@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invokes the given operation on the given shards in parallel, running each
+ * operation on its own virtual thread when the runtime supports virtual
+ * threads.  A thread blocked on a JDBC call then doesn't hold on to a platform
+ * thread, so there is no pool to size for the number of concurrent requests
+ * times the number of shards.
+ * <p/>
+ * On runtimes without virtual threads the operations run on a pool of at most
+ * {@code fallbackPoolSize} daemon threads instead.  Operations queue up
+ * rather than being rejected when all of them are busy.
+ * <p/>
+ * Short-circuiting and deadlines behave exactly as they do for
+ * {@link ParallelShardAccessStrategy}: once the exit strategy has everything
+ * it needs, the operations that have not started yet are cancelled, and apply()
+ * does not return before every operation has either completed or been
+ * cancelled.  Once the deadline expires the operations that are still
+ * running get as long again to stop before apply() gives up on them.
+ */
+public class VirtualThreadShardAccessStrategy extends ParallelShardAccessStrategy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadShardAccessStrategy.class);
+
+    private final ExecutorService executor;
+
+    private final boolean virtualThreads;
+
+    /**
+     * @param fallbackPoolSize the maximum number of threads to run operations on
+     *                         if virtual threads are not available
+     */
+    public VirtualThreadShardAccessStrategy(final int fallbackPoolSize) {
+        this(fallbackPoolSize, 0);
+    }
+
+    /**
+     * @param fallbackPoolSize        the maximum number of threads to run operations
+     *                                on if virtual threads are not available
+     * @param defaultTimeoutInSeconds the deadline for operations that don't
+     *                                specify one, 0 means no deadline
+     */
+    public VirtualThreadShardAccessStrategy(final int fallbackPoolSize, final int defaultTimeoutInSeconds) {
+        this(newVirtualThreadPerTaskExecutor(), fallbackPoolSize, defaultTimeoutInSeconds);
+    }
+
+    VirtualThreadShardAccessStrategy(final /*@Nullable*/ ExecutorService virtualThreadExecutor,
+                                     final int fallbackPoolSize,
+                                     final int defaultTimeoutInSeconds) {
+
+        this(virtualThreadExecutor != null ? virtualThreadExecutor : newFallbackExecutor(fallbackPoolSize),
+                virtualThreadExecutor != null,
+                defaultTimeoutInSeconds);
+    }
+
+    private VirtualThreadShardAccessStrategy(final ExecutorService executor,
+                                             final boolean virtualThreads,
+                                             final int defaultTimeoutInSeconds) {
+
+        super(executor, defaultTimeoutInSeconds);
+        this.executor = executor;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * @return whether or not operations run on virtual threads
+     */
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops accepting operations.  Operations that have already been started
+     * are allowed to complete.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.  We
+     * compile against a JDK without virtual threads, so the factory method is
+     * looked up reflectively.
+     *
+     * @return the executor, or null if the runtime does not support virtual threads
+     */
+    static /*@Nullable*/ ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            final Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factoryMethod.invoke(null);
+        } catch (NoSuchMethodException e) {
+            LOG.debug("Virtual threads are not available, falling back to a thread pool.");
+        } catch (IllegalAccessException e) {
+            LOG.warn("Unable to create virtual thread executor, falling back to a thread pool.", e);
+        } catch (InvocationTargetException e) {
+            // e.g. virtual threads are a preview feature that is not enabled
+            LOG.warn("Unable to create virtual thread executor, falling back to a thread pool.", e.getCause());
+        }
+        return null;
+    }
+
+    static ExecutorService newFallbackExecutor(final int poolSize) {
+        Preconditions.checkArgument(poolSize > 0);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("hibernate-shards-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
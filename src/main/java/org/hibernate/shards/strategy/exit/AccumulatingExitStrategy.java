@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.List;
+
+/**
+ * Threadsafe ExitStrategy that folds the result of each shard into an
+ * accumulator as soon as the shard completes, rather than holding on to the
+ * results of all shards until the last one completes.  Memory use is that of
+ * the accumulator, and all that is left to do once the last shard completes
+ * is to read its value.
+ * <p/>
+ * The accumulator performs all the exit operations, so the collector passed
+ * to {@link #compileResults(ExitOperationsCollector)} is not consulted.
+ */
+public class AccumulatingExitStrategy implements ExitStrategy<List<Object>> {
+
+    private final ExitOperationAccumulator accumulator;
+
+    public AccumulatingExitStrategy(final ExitOperationAccumulator accumulator) {
+        this.accumulator = Preconditions.checkNotNull(accumulator);
+    }
+
+    @Override
+    public synchronized boolean addResult(final List<Object> oneResult, final Shard shard) {
+        accumulator.add(oneResult);
+        return false;
+    }
+
+    @Override
+    public synchronized List<Object> compileResults(final ExitOperationsCollector exitOperationsCollector) {
+        return accumulator.getResult();
+    }
+}
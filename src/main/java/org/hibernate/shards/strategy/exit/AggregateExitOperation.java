@@ -19,22 +19,25 @@
 package org.hibernate.shards.strategy.exit;
 
 import org.hibernate.criterion.AggregateProjection;
+import org.hibernate.engine.SessionFactoryImplementor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * @author Maulik Shah
  */
-public class AggregateExitOperation implements ProjectionExitOperation {
+public class AggregateExitOperation implements ProjectionExitOperation, IncrementalExitOperation {
 
     private final SupportedAggregations aggregate;
 
     private final String fieldName;
 
+    private final PropertyAccessorCache accessorCache;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private enum SupportedAggregations {
@@ -55,6 +58,12 @@ public class AggregateExitOperation implements ProjectionExitOperation {
     }
 
     public AggregateExitOperation(final AggregateProjection projection) {
+        this(projection, null);
+    }
+
+    public AggregateExitOperation(final AggregateProjection projection,
+                                  final /*@Nullable*/ SessionFactoryImplementor sessionFactoryImplementor) {
+        this.accessorCache = PropertyAccessorCache.forSessionFactory(sessionFactoryImplementor);
         /**
          * an aggregateProjection's toString returns
          * min( ..., max( ..., sum( ..., or avg( ...
@@ -74,37 +83,100 @@ public class AggregateExitOperation implements ProjectionExitOperation {
 
     @Override
     public List<Object> apply(final List<Object> results) {
+        final ExitOperationAccumulator accumulator = newAccumulator();
+        accumulator.add(results);
+        return accumulator.getResult();
+    }
 
-        final List<Object> nonNullResults = ExitOperationUtils.getNonNullList(results);
-
+    @Override
+    public ExitOperationAccumulator newAccumulator() {
         switch (aggregate) {
             case MAX:
-                return Collections.singletonList((Object) Collections.max(ExitOperationUtils.getComparableList(nonNullResults)));
+                return new ExtremeAccumulator(1);
             case MIN:
-                return Collections.singletonList((Object) Collections.min(ExitOperationUtils.getComparableList(nonNullResults)));
+                return new ExtremeAccumulator(-1);
             case SUM:
-                return Collections.<Object>singletonList(getSum(nonNullResults, fieldName));
+                return new SumAccumulator();
             default:
                 log.error("Aggregation Projection is unsupported: " + aggregate);
                 throw new UnsupportedOperationException("Aggregation Projection is unsupported: " + aggregate);
         }
     }
 
-    private BigDecimal getSum(final List<Object> results, final String fieldName) {
-        BigDecimal sum = BigDecimal.ZERO;
-        for (final Object obj : results) {
-            if (obj instanceof Number) {
-                final Number num = (Number)obj;
-                sum = sum.add(new BigDecimal(num.toString()));
-            } else {
-                final Number num = getNumber(obj, fieldName);
-                sum = sum.add(new BigDecimal(num.toString()));
+    private Number getNumber(final Object obj, final String fieldName) {
+        return (Number) accessorCache.getPropertyValue(obj, fieldName);
+    }
+
+    /**
+     * Keeps the greatest (sign 1) or least (sign -1) result seen so far.
+     */
+    private static final class ExtremeAccumulator implements ExitOperationAccumulator {
+
+        private final int sign;
+
+        private Comparable<Object> extreme;
+
+        ExtremeAccumulator(final int sign) {
+            this.sign = sign;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void add(final List<Object> oneResult) {
+            for (final Object obj : oneResult) {
+                if (obj != null && (extreme == null || sign * extreme.compareTo(obj) < 0)) {
+                    extreme = (Comparable<Object>) obj;
+                }
+            }
+        }
+
+        @Override
+        public List<Object> getResult() {
+            if (extreme == null) {
+                // same as Collections.max()/min() of nothing
+                throw new NoSuchElementException();
             }
+            return Collections.<Object>singletonList(extreme);
         }
-        return sum;
     }
 
-    private Number getNumber(final Object obj, final String fieldName) {
-        return (Number) ExitOperationUtils.getPropertyValue(obj, fieldName);
+    /**
+     * Adds up the values in the type the property is mapped with, so the sum
+     * has the same type as the sum the database would return.
+     */
+    private final class SumAccumulator implements ExitOperationAccumulator {
+
+        // created with the first value, once we know what kind of objects we sum up
+        private SumCombiner sum;
+
+        @Override
+        public void add(final List<Object> oneResult) {
+            for (final Object obj : oneResult) {
+                if (obj == null) {
+                    continue;
+                }
+                final Number num;
+                if (obj instanceof Number) {
+                    num = (Number) obj;
+                    if (sum == null) {
+                        sum = new SumCombiner();
+                    }
+                } else {
+                    num = getNumber(obj, fieldName);
+                    if (sum == null) {
+                        sum = new SumCombiner(accessorCache.getPropertyType(obj.getClass(), fieldName));
+                    }
+                }
+                if (num != null) {
+                    sum.add(num);
+                }
+            }
+        }
+
+        @Override
+        public List<Object> getResult() {
+            // like the database, the sum of nothing is null
+            return Collections.<Object>singletonList(sum == null ? null : sum.getResult());
+        }
     }
 }
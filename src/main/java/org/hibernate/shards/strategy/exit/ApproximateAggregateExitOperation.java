@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.criterion.Projection;
+import org.hibernate.criterion.Projections;
+import org.hibernate.shards.criteria.ApproximateProjection;
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Estimates an {@link ApproximateProjection} by sketching the values every
+ * shard returns and merging the sketches of the shards.
+ * <p/>
+ * The shards group by the property, so every shard returns each of its
+ * distinct values once: alone for a distinct count, along with the number of
+ * rows that have it for a percentile.  The values of a shard are folded into
+ * a sketch of their own as soon as the shard completes, which is then merged
+ * into the sketch of all the shards, so the values of the shards are never
+ * held all at once.  The shards still send every distinct value, so only
+ * the memory of the merge is bounded, not the data transferred.
+ */
+public class ApproximateAggregateExitOperation implements ProjectionExitOperation, IncrementalExitOperation {
+
+    private final ApproximateProjection projection;
+
+    public ApproximateAggregateExitOperation(final ApproximateProjection projection) {
+        this.projection = Preconditions.checkNotNull(projection);
+    }
+
+    /**
+     * @return the projection the shards run in place of the approximate
+     *         projection
+     */
+    public Projection getShardProjection() {
+        if (projection.getFunction() == ApproximateProjection.Function.COUNT_DISTINCT) {
+            return Projections.groupProperty(projection.getPropertyName());
+        }
+        return Projections.projectionList()
+                .add(Projections.groupProperty(projection.getPropertyName()))
+                .add(Projections.rowCount());
+    }
+
+    @Override
+    public List<Object> apply(final List<Object> results) {
+        final ExitOperationAccumulator accumulator = newAccumulator();
+        accumulator.add(results);
+        return accumulator.getResult();
+    }
+
+    @Override
+    public ExitOperationAccumulator newAccumulator() {
+        switch (projection.getFunction()) {
+            case COUNT_DISTINCT:
+                return new CountDistinctAccumulator();
+            case PERCENTILE:
+                return new PercentileAccumulator(projection.getQuantile());
+            default:
+                throw new UnsupportedOperationException("Approximation is unsupported: " + projection);
+        }
+    }
+
+    private static final class CountDistinctAccumulator implements ExitOperationAccumulator {
+
+        private final HyperLogLog sketch = new HyperLogLog();
+
+        @Override
+        public void add(final List<Object> oneResult) {
+            final HyperLogLog shardSketch = new HyperLogLog();
+            for (final Object value : oneResult) {
+                // like count(distinct), nulls aren't counted
+                if (value != null) {
+                    shardSketch.add(value);
+                }
+            }
+            sketch.merge(shardSketch);
+        }
+
+        @Override
+        public List<Object> getResult() {
+            return Collections.<Object>singletonList(sketch.estimate());
+        }
+    }
+
+    private static final class PercentileAccumulator implements ExitOperationAccumulator {
+
+        private final double quantile;
+
+        private final TDigest digest = new TDigest();
+
+        PercentileAccumulator(final double quantile) {
+            this.quantile = quantile;
+        }
+
+        @Override
+        public void add(final List<Object> oneResult) {
+            final TDigest shardDigest = new TDigest();
+            for (final Object row : oneResult) {
+                // the value and the number of rows that have it
+                final Object[] columns = (Object[]) row;
+                if (columns[0] != null) {
+                    shardDigest.add(((Number) columns[0]).doubleValue(), ((Number) columns[1]).doubleValue());
+                }
+            }
+            digest.merge(shardDigest);
+        }
+
+        @Override
+        public List<Object> getResult() {
+            return Collections.<Object>singletonList(digest.quantile(quantile));
+        }
+    }
+}
@@ -45,57 +45,35 @@ public class AvgResultsExitOperation implements ExitOperation {
     public List<Object> apply(List<Object> results) {
 
         final List<Object> nonNullResults = ExitOperationUtils.getNonNullList(results);
-        Double total = null;
-        int numResults = 0;
-        Boolean shardAvgIsDouble = null;
+        double total = 0;
+        long numResults = 0;
 
         for (final Object result : nonNullResults) {
-
-            // TODO: (ammachado) there must be a better way to discover the results type from the avg operation.
             /**
              * We expect all entries to be Object arrays.
              * the first entry in the array is the average and
              * the second entry in the array is the number of rows that were examined
              * to arrive at the average.
-             *
-             * for properties mapped as Long, Short, Integer, or primitive integer types, a Long value is returned;
-             * for properties mapped as Float, Double, or primitive floating point types, a Double value is returned.
              */
             final Pair<Object, Object> pair = getResultPair(result);
-            final String shardAvgStringValue = String.valueOf(pair.first);
-            final String shardResultsStringValue = String.valueOf(pair.second);
-            final boolean shardAvgStringValueIsNull = "null".equals(shardAvgStringValue);
-
-            if (!shardAvgStringValueIsNull && shardAvgIsDouble == null) {
-                shardAvgIsDouble = pair.first instanceof Double;
-            }
-
-            final Double shardAvg = shardAvgStringValueIsNull ? null : Double.valueOf(shardAvgStringValue);
-            if (shardAvg == null) {
+            if (pair.first == null) {
                 // if there's no result from this shard it doesn't go into the
                 // calculation.  This is consistent with how avg is implemented
                 // in the database
                 continue;
             }
 
-            final Long shardResults = Long.valueOf(shardResultsStringValue);
-            final Double shardTotal = shardAvg * shardResults;
-            if (total == null) {
-                total = shardTotal;
-            } else {
-                total += shardTotal;
-            }
+            final long shardResults = ((Number) pair.second).longValue();
+            total += ((Number) pair.first).doubleValue() * shardResults;
             numResults += shardResults;
         }
 
-        if (numResults == 0 || total == null) {
+        if (numResults == 0) {
             return Collections.singletonList(null);
         }
 
-        final Object result = shardAvgIsDouble ? Double.valueOf(String.valueOf(total / numResults))
-                : Long.valueOf(String.valueOf(total / numResults));
-
-        return Collections.singletonList(result);
+        // Hibernate returns a Double for avg, whatever the type of the property
+        return Collections.<Object>singletonList(total / numResults);
     }
 
     private Pair<Object, Object> getResultPair(final Object result) {
@@ -19,28 +19,49 @@
 package org.hibernate.shards.strategy.exit;
 
 import org.hibernate.criterion.Projection;
+import org.hibernate.shards.criteria.InMemoryOrderBy;
 import org.hibernate.shards.util.Lists;
-import org.hibernate.shards.util.Sets;
 
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
 
 /**
+ * Removes the duplicate rows of a distinct projection that were returned by
+ * more than one shard.  Each shard only returns distinct rows, so the
+ * duplicates are rows that exist on several shards.
+ *
  * @author Maulik Shah
  */
 public class DistinctExitOperation implements ExitOperation {
 
     private final Projection distinct;
 
-    public DistinctExitOperation(Projection distinct) {
+    public DistinctExitOperation(final Projection distinct) {
         this.distinct = distinct;
-        //TODO (maulik) Make Distinct Work
-        throw new UnsupportedOperationException();
     }
 
-    public List<Object> apply(List<Object> results) {
-        final Set<Object> uniqueSet = Sets.newHashSet();
-        uniqueSet.addAll(ExitOperationUtils.getNonNullList(results));
-        return Lists.newArrayList(uniqueSet);
+    /**
+     * Keeps the first of every set of equal rows, in the order they come in.
+     */
+    @Override
+    public List<Object> apply(final List<Object> results) {
+        final DistinctResultSet seen = new DistinctResultSet(results.size());
+        final List<Object> distinctResults = Lists.newArrayList();
+        for (final Object result : results) {
+            if (result != null && seen.add(result)) {
+                distinctResults.add(result);
+            }
+        }
+        return distinctResults;
+    }
+
+    /**
+     * @param orderByList the order-by clauses, most significant first
+     * @return a comparator that orders the rows of this projection the way the
+     *         given order-by clauses describe
+     * @see ProjectedRowComparator
+     */
+    public Comparator<Object> buildComparator(final List<InMemoryOrderBy> orderByList) {
+        return new ProjectedRowComparator(distinct, orderByList);
     }
 }
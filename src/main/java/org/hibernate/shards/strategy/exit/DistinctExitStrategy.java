@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.util.Lists;
+
+import java.util.List;
+
+/**
+ * Threadsafe ExitStrategy for unordered distinct projections.  Every shard
+ * returns its own distinct rows, and rows that more than one shard returned
+ * are dropped as the results of the shards come in, so the duplicates are
+ * never collected.
+ * <p/>
+ * Every distinct row is held in memory.  Rows are deduplicated in an
+ * open-addressing hash set, which takes far less memory per row than a
+ * {@link java.util.HashSet}, but results larger than the heap can't be
+ * deduplicated here.
+ */
+public class DistinctExitStrategy implements ExitStrategy<List<Object>> {
+
+    private final DistinctResultSet distinctResults = new DistinctResultSet();
+
+    // the distinct rows, in the order they were first seen
+    private final List<Object> results = Lists.newArrayList();
+
+    @Override
+    public synchronized boolean addResult(final List<Object> oneResult, final Shard shard) {
+        for (final Object result : oneResult) {
+            if (result != null && distinctResults.add(result)) {
+                results.add(result);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The rows are not ordered, so the remaining operations are applied as if
+     * the rows were already in order.
+     */
+    @Override
+    public List<Object> compileResults(final ExitOperationsCollector exitOperationsCollector) {
+        final List<Object> distinct;
+        synchronized (this) {
+            distinct = results;
+        }
+        return exitOperationsCollector.applyToOrderedResult(distinct);
+    }
+}
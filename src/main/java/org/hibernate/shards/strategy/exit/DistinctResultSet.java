@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash set of query results.  Projected rows are compared
+ * by their contents rather than by identity, so a row returned by two shards
+ * is only kept once.
+ * <p/>
+ * Slots are probed linearly and the table is kept at most half full, so a
+ * lookup touches a couple of adjacent slots rather than following the entry
+ * chains of a {@link java.util.HashSet}, and adding a result allocates
+ * nothing unless the table has to grow.
+ */
+final class DistinctResultSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // the results, null for empty slots; the length is a power of two
+    private Object[] table;
+
+    private int size;
+
+    DistinctResultSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize the number of results the set should be able to hold
+     *                     without growing
+     */
+    DistinctResultSet(final int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0);
+        table = new Object[capacityFor(expectedSize)];
+    }
+
+    /**
+     * @param result the result to add, not null
+     * @return true if no equal result was in the set yet
+     */
+    boolean add(final Object result) {
+        final int hash = hash(result);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        Object existing;
+        while ((existing = table[slot]) != null) {
+            if (resultsEqual(existing, result)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (2 * (size + 1) > table.length) {
+            resize(table.length * 2);
+            mask = table.length - 1;
+            slot = hash & mask;
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        table[slot] = result;
+        size++;
+        return true;
+    }
+
+    boolean contains(final Object result) {
+        final int mask = table.length - 1;
+        int slot = hash(result) & mask;
+        Object existing;
+        while ((existing = table[slot]) != null) {
+            if (resultsEqual(existing, result)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all results, keeping the table allocated if it is small.
+     */
+    void clear() {
+        if (size == 0) {
+            return;
+        }
+        if (table.length > MIN_CAPACITY * 4) {
+            table = new Object[MIN_CAPACITY];
+        } else {
+            Arrays.fill(table, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * Projected rows with several columns are returned as arrays, which have to
+     * be hashed by their contents.  The hash is spread so that results whose
+     * hash codes only differ in the high bits don't end up in the same slot.
+     */
+    static int hash(final Object result) {
+        final int h = result instanceof Object[] ? Arrays.deepHashCode((Object[]) result) : result.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    static boolean resultsEqual(final Object r1, final Object r2) {
+        if (r1 instanceof Object[] && r2 instanceof Object[]) {
+            return Arrays.deepEquals((Object[]) r1, (Object[]) r2);
+        }
+        return r1.equals(r2);
+    }
+
+    private void resize(final int capacity) {
+        final Object[] oldTable = table;
+        table = new Object[capacity];
+        final int mask = capacity - 1;
+        for (final Object result : oldTable) {
+            if (result != null) {
+                int slot = hash(result) & mask;
+                while (table[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = result;
+            }
+        }
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * expectedSize && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
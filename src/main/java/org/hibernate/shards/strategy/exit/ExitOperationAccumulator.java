@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import java.util.List;
+
+/**
+ * Folds the results of the shards into a small running value one shard at a
+ * time, so the results of a shard can be dropped as soon as they have been
+ * added.  Not threadsafe.
+ */
+public interface ExitOperationAccumulator {
+
+    /**
+     * Folds the results of a single shard into the running value.
+     */
+    void add(List<Object> oneResult);
+
+    /**
+     * @return the same result the exit operation would produce when applied to
+     *         the concatenation of all the results that have been added
+     */
+    List<Object> getResult();
+}
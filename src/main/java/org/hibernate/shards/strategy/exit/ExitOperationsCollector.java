@@ -36,6 +36,13 @@ public interface ExitOperationsCollector {
 
   List<Object> apply(List<Object> result);
 
+  /**
+   * Same as {@link #apply(List)}, but for a result that is already in the
+   * order described by the collected order-by clauses, so no in-memory
+   * sorting needs to be performed.
+   */
+  List<Object> applyToOrderedResult(List<Object> result);
+
   void setSessionFactory(SessionFactoryImplementor sessionFactoryImplementor);
 
 }
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import java.util.Date;
+
+/**
+ * Estimates the number of distinct values it has seen in a fixed 16KB,
+ * with a standard error of about 0.8%.  Sketches of different sets of
+ * values can be merged into a sketch of their union, so every shard's
+ * values can be sketched on their own.
+ * <p/>
+ * Every value is hashed to 64 bits.  The first bits pick one of the
+ * registers, which keeps the longest run of leading zeros among the rest of
+ * the bits of its values.  Small counts, where many registers are still
+ * empty, are estimated by linear counting instead.
+ * <p/>
+ * Not threadsafe.
+ */
+final class HyperLogLog {
+
+    private static final int PRECISION = 14;
+
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+
+    // one more than the number of leading zeros of the longest run seen, per register
+    private final byte[] registers = new byte[REGISTER_COUNT];
+
+    /**
+     * @param value the value to add, not null
+     */
+    void add(final Object value) {
+        final long hash = hash(value);
+        final int index = (int) (hash >>> (64 - PRECISION));
+        // the low bit stops the run once all the remaining bits are used up
+        final long rest = (hash << PRECISION) | (1L << (PRECISION - 1));
+        final byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Adds all the values the other sketch has seen.
+     */
+    void merge(final HyperLogLog other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    long estimate() {
+        double sum = 0;
+        int emptyRegisters = 0;
+        for (final byte rank : registers) {
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                emptyRegisters++;
+            }
+        }
+        final double alpha = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+        double estimate = alpha * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && emptyRegisters > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / emptyRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Equal values have to hash the same on every shard, so the hash only
+     * depends on the value, and the 32 bits of hashCode() are only used for
+     * values we can't hash to 64 bits ourselves.
+     */
+    static long hash(final Object value) {
+        long h;
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            h = ((Number) value).longValue();
+        } else if (value instanceof Double || value instanceof Float) {
+            h = Double.doubleToLongBits(((Number) value).doubleValue());
+        } else if (value instanceof String) {
+            final String s = (String) value;
+            h = 1125899906842597L;
+            for (int i = 0; i < s.length(); i++) {
+                h = 31 * h + s.charAt(i);
+            }
+        } else if (value instanceof Date) {
+            h = ((Date) value).getTime();
+        } else {
+            h = value.hashCode();
+        }
+        // the finalizer of MurmurHash3 spreads every input bit over the whole hash
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
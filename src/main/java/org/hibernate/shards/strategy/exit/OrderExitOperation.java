@@ -18,81 +18,307 @@
 
 package org.hibernate.shards.strategy.exit;
 
+import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.shards.criteria.InMemoryOrderBy;
 import org.hibernate.shards.util.Lists;
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
 /**
+ * Sorts results in memory by the given order-by clauses.
+ * <p/>
+ * Null property values sort before all other values, so they come first in
+ * ascending order and last in descending order.
+ *
  * @author Maulik Shah
  */
 public class OrderExitOperation implements ExitOperation {
 
-    private final List<InMemoryOrderBy> orderByList;
+    private final PropertyAccessorCache accessorCache;
 
-    private static final Comparator<Object> EQUALS = new Comparator<Object>() {
-        @Override
-        public int compare(Object o1, Object o2) {
-            return 0;
-        }
-    };
+    // the properties to sort by, most significant first
+    private final String[] propertyNames;
+
+    // whether or not the property with the same index is sorted ascending
+    private final boolean[] ascending;
 
     public OrderExitOperation(final List<InMemoryOrderBy> orderByList) {
-        this.orderByList = Lists.newArrayList(orderByList);
-        // need to reverse the list so we build the comparator from the inside out
-        Collections.reverse(this.orderByList);
+        this(orderByList, null);
     }
 
+    /**
+     * @param orderByList               the order-by clauses, most significant first
+     * @param sessionFactoryImplementor the session factory the results belong to,
+     *                                  used to read properties the way Hibernate does,
+     *                                  or null to read them through their getters
+     */
+    public OrderExitOperation(final List<InMemoryOrderBy> orderByList,
+                              final /*@Nullable*/ SessionFactoryImplementor sessionFactoryImplementor) {
+        this.accessorCache = PropertyAccessorCache.forSessionFactory(sessionFactoryImplementor);
+        this.propertyNames = getPropertyNames(orderByList);
+        this.ascending = getAscending(orderByList);
+    }
+
+    /**
+     * Reads the sort keys of every result once, sorts the positions of the
+     * results by their keys and then puts the results in that order.  The sort
+     * is stable.
+     */
     @Override
     public List<Object> apply(final List<Object> results) {
         final List<Object> nonNullList = ExitOperationUtils.getNonNullList(results);
-        final Comparator<Object> comparator = buildComparator();
-        Collections.sort(nonNullList, comparator);
+        if (nonNullList.size() < 2 || propertyNames.length == 0) {
+            return nonNullList;
+        }
 
-        return nonNullList;
-    }
+        final SortKeyColumn[] columns = new SortKeyColumn[propertyNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = SortKeyColumn.extract(nonNullList, accessorCache, propertyNames[i], ascending[i]);
+        }
 
-    private Comparator<Object> buildComparator() {
-        // the most-inner comparator is one that returns 0 for everything.
-        Comparator<Object> inner = EQUALS;
-        for (final InMemoryOrderBy order : orderByList) {
-            inner = new PropertyComparator(order.getExpression(), inner);
-            if (!order.isAscending()) {
-                inner = Collections.reverseOrder(inner);
+        final Integer[] positions = new Integer[nonNullList.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer p1, final Integer p2) {
+                for (final SortKeyColumn column : columns) {
+                    final int result = column.compare(p1, p2);
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return 0;
             }
+        });
+
+        final List<Object> sorted = Lists.newArrayListWithCapacity(positions.length);
+        for (final Integer position : positions) {
+            sorted.add(nonNullList.get(position));
         }
-        return inner;
+        return sorted;
+    }
+
+    /**
+     * @param orderByList the order-by clauses, most significant first
+     * @return a comparator that orders objects the way the given order-by
+     *         clauses describe
+     */
+    public static Comparator<Object> buildComparator(final List<InMemoryOrderBy> orderByList) {
+        return buildComparator(orderByList, null);
     }
 
+    /**
+     * @param orderByList               the order-by clauses, most significant first
+     * @param sessionFactoryImplementor the session factory the objects belong to,
+     *                                  or null to read their properties through getters
+     * @return a comparator that orders objects the way the given order-by
+     *         clauses describe
+     */
+    public static Comparator<Object> buildComparator(final List<InMemoryOrderBy> orderByList,
+                                                     final /*@Nullable*/ SessionFactoryImplementor sessionFactoryImplementor) {
+        return new PropertyComparator(PropertyAccessorCache.forSessionFactory(sessionFactoryImplementor),
+                getPropertyNames(orderByList), getAscending(orderByList));
+    }
+
+    /**
+     * Compares two sort keys, either of which may be null.  Null is less than
+     * every other value.
+     */
+    @SuppressWarnings("unchecked")
+    static int compareValues(final /*@Nullable*/ Object v1, final /*@Nullable*/ Object v2) {
+        if (v1 == v2) {
+            return 0;
+        }
+        if (v1 == null) {
+            return -1;
+        }
+        if (v2 == null) {
+            return 1;
+        }
+        return ((Comparable<Object>) v1).compareTo(v2);
+    }
+
+    private static String[] getPropertyNames(final List<InMemoryOrderBy> orderByList) {
+        final String[] propertyNames = new String[orderByList.size()];
+        for (int i = 0; i < propertyNames.length; i++) {
+            propertyNames[i] = orderByList.get(i).getExpression();
+        }
+        return propertyNames;
+    }
+
+    private static boolean[] getAscending(final List<InMemoryOrderBy> orderByList) {
+        final boolean[] ascending = new boolean[orderByList.size()];
+        for (int i = 0; i < ascending.length; i++) {
+            ascending[i] = orderByList.get(i).isAscending();
+        }
+        return ascending;
+    }
+
+    /**
+     * Compares objects by all sort properties in turn.  Used where objects are
+     * compared a handful of times each, such as when merging already sorted
+     * results, so the sort keys are read on every comparison.
+     */
     private static final class PropertyComparator implements Comparator<Object> {
 
-        private final String propertyName;
-        private final Comparator<Object> tieBreaker;
+        private final PropertyAccessorCache accessorCache;
+        private final String[] propertyNames;
+        private final boolean[] ascending;
 
-        public PropertyComparator(final String propertyName, final Comparator<Object> tieBreaker) {
-            this.propertyName = propertyName;
-            this.tieBreaker = tieBreaker;
+        PropertyComparator(final PropertyAccessorCache accessorCache,
+                           final String[] propertyNames,
+                           final boolean[] ascending) {
+            this.accessorCache = accessorCache;
+            this.propertyNames = propertyNames;
+            this.ascending = ascending;
         }
 
+        @Override
         public int compare(final Object o1, final Object o2) {
-            int result;
             if (o1 == o2) {
-                result = 0;
-            } else {
-                final Comparable<Object> o1Value = ExitOperationUtils.getPropertyValue(o1, propertyName);
-                final Comparable<Object> o2Value = ExitOperationUtils.getPropertyValue(o2, propertyName);
-                if (o1Value == null) {
-                    result = -1;
-                } else {
-                    result = o1Value.compareTo(o2Value);
+                return 0;
+            }
+            for (int i = 0; i < propertyNames.length; i++) {
+                final int result = compareValues(
+                        accessorCache.getPropertyValue(o1, propertyNames[i]),
+                        accessorCache.getPropertyValue(o2, propertyNames[i]));
+                if (result != 0) {
+                    return ascending[i] ? result : -result;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * The values of one sort property for all results being sorted, indexed by
+     * the position of the result.  Integral, floating point and date values
+     * are held in primitive arrays so comparing them needs no unboxing or
+     * virtual calls.
+     */
+    private abstract static class SortKeyColumn {
+
+        private final boolean ascending;
+
+        SortKeyColumn(final boolean ascending) {
+            this.ascending = ascending;
+        }
+
+        final int compare(final int p1, final int p2) {
+            final int result = compareAscending(p1, p2);
+            return ascending ? result : -result;
+        }
+
+        abstract int compareAscending(int p1, int p2);
+
+        static SortKeyColumn extract(final List<Object> results,
+                                     final PropertyAccessorCache accessorCache,
+                                     final String propertyName,
+                                     final boolean ascending) {
+
+            final Object[] values = new Object[results.size()];
+            boolean integral = true;
+            boolean floatingPoint = true;
+            boolean temporal = true;
+            for (int i = 0; i < values.length; i++) {
+                final Object value = accessorCache.getPropertyValue(results.get(i), propertyName);
+                values[i] = value;
+                if (value != null) {
+                    integral &= isIntegral(value);
+                    floatingPoint &= value instanceof Double || value instanceof Float;
+                    temporal &= isTemporal(value);
                 }
             }
-            if (result == 0) {
-                result = tieBreaker.compare(o1, o2);
+
+            if (integral || floatingPoint || temporal) {
+                final boolean[] nulls = new boolean[values.length];
+                if (floatingPoint && !integral) {
+                    final double[] doubles = new double[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        nulls[i] = values[i] == null;
+                        doubles[i] = nulls[i] ? 0 : ((Number) values[i]).doubleValue();
+                    }
+                    return new DoubleColumn(doubles, nulls, ascending);
+                }
+                final long[] longs = new long[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    nulls[i] = values[i] == null;
+                    if (!nulls[i]) {
+                        longs[i] = integral ? ((Number) values[i]).longValue() : ((java.util.Date) values[i]).getTime();
+                    }
+                }
+                return new LongColumn(longs, nulls, ascending);
             }
-            return result;
+            return new ObjectColumn(values, ascending);
+        }
+
+        private static boolean isIntegral(final Object value) {
+            return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+        }
+
+        private static boolean isTemporal(final Object value) {
+            // Timestamps carry nanoseconds that getTime() doesn't, so they are not included
+            final Class<?> clazz = value.getClass();
+            return clazz == java.util.Date.class || clazz == java.sql.Date.class || clazz == java.sql.Time.class;
+        }
+    }
+
+    private static final class LongColumn extends SortKeyColumn {
+
+        private final long[] values;
+        private final boolean[] nulls;
+
+        LongColumn(final long[] values, final boolean[] nulls, final boolean ascending) {
+            super(ascending);
+            this.values = values;
+            this.nulls = nulls;
+        }
+
+        @Override
+        int compareAscending(final int p1, final int p2) {
+            if (nulls[p1] || nulls[p2]) {
+                return nulls[p1] == nulls[p2] ? 0 : (nulls[p1] ? -1 : 1);
+            }
+            return values[p1] < values[p2] ? -1 : (values[p1] == values[p2] ? 0 : 1);
+        }
+    }
+
+    private static final class DoubleColumn extends SortKeyColumn {
+
+        private final double[] values;
+        private final boolean[] nulls;
+
+        DoubleColumn(final double[] values, final boolean[] nulls, final boolean ascending) {
+            super(ascending);
+            this.values = values;
+            this.nulls = nulls;
+        }
+
+        @Override
+        int compareAscending(final int p1, final int p2) {
+            if (nulls[p1] || nulls[p2]) {
+                return nulls[p1] == nulls[p2] ? 0 : (nulls[p1] ? -1 : 1);
+            }
+            return Double.compare(values[p1], values[p2]);
+        }
+    }
+
+    private static final class ObjectColumn extends SortKeyColumn {
+
+        private final Object[] values;
+
+        ObjectColumn(final Object[] values, final boolean ascending) {
+            super(ascending);
+            this.values = values;
+        }
+
+        @Override
+        int compareAscending(final int p1, final int p2) {
+            return compareValues(values[p1], values[p2]);
         }
     }
 }
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.criteria.InMemoryOrderBy;
+import org.hibernate.shards.util.Iterators;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Threadsafe ExitStrategy for ordered queries.  Each shard has already sorted
+ * its results by the pushed-down order-by clauses, so instead of concatenating
+ * the results and sorting them again we keep one cursor per shard and perform
+ * a k-way merge.  The merge stops as soon as {@code resultLimit} results have
+ * been produced, so results that would be discarded by firstResult/maxResults
+ * processing are never looked at.
+ * <p/>
+ * This relies on the ordering applied by the database agreeing with the
+ * in-memory ordering of the sort properties.
+ * <p/>
+ * For distinct projections, equal rows from different shards come out of the
+ * merge next to each other, among the rows that are equal in sort order.  So
+ * duplicates are dropped during the merge by remembering only the rows of the
+ * current run of equally ordered rows.
+ */
+public class OrderedMergeExitStrategy implements ExitStrategy<List<Object>> {
+
+    private final List<List<Object>> shardResults = Lists.newArrayList();
+
+    private final Comparator<Object> comparator;
+
+    // maximum number of merged results we need to produce, null if unbounded
+    private final Integer resultLimit;
+
+    // whether or not rows that more than one shard returned should be dropped
+    private final boolean distinct;
+
+    /**
+     * Construct an OrderedMergeExitStrategy
+     *
+     * @param orderByList the order-by clauses each shard sorted its results by
+     * @param resultLimit the maximum number of merged results to produce, or null
+     *                    if all results are needed
+     */
+    public OrderedMergeExitStrategy(final List<InMemoryOrderBy> orderByList, final Integer resultLimit) {
+        this(OrderExitOperation.buildComparator(Preconditions.checkNotNull(orderByList)), resultLimit);
+    }
+
+    /**
+     * Construct an OrderedMergeExitStrategy
+     *
+     * @param comparator  the comparator each shard sorted its results by
+     * @param resultLimit the maximum number of merged results to produce, or null
+     *                    if all results are needed
+     */
+    public OrderedMergeExitStrategy(final Comparator<Object> comparator, final Integer resultLimit) {
+        this(comparator, resultLimit, false);
+    }
+
+    /**
+     * Construct an OrderedMergeExitStrategy
+     *
+     * @param comparator  the comparator each shard sorted its results by
+     * @param resultLimit the maximum number of merged results to produce, or null
+     *                    if all results are needed
+     * @param distinct    whether or not the results are the rows of a distinct
+     *                    projection, each of which should only be produced once
+     */
+    public OrderedMergeExitStrategy(final Comparator<Object> comparator,
+                                    final Integer resultLimit,
+                                    final boolean distinct) {
+        Preconditions.checkNotNull(comparator);
+        Preconditions.checkArgument(resultLimit == null || resultLimit >= 0);
+        this.comparator = comparator;
+        this.resultLimit = resultLimit;
+        this.distinct = distinct;
+    }
+
+    @Override
+    public synchronized boolean addResult(final List<Object> oneResult, final Shard shard) {
+        if (!oneResult.isEmpty()) {
+            shardResults.add(oneResult.contains(null) ? ExitOperationUtils.getNonNullList(oneResult) : oneResult);
+        }
+        return false;
+    }
+
+    @Override
+    public List<Object> compileResults(final ExitOperationsCollector exitOperationsCollector) {
+        return exitOperationsCollector.applyToOrderedResult(merge());
+    }
+
+    List<Object> merge() {
+        int total = 0;
+        final List<Iterator<Object>> cursors = Lists.newArrayListWithCapacity(shardResults.size());
+        for (final List<Object> shardResult : shardResults) {
+            total += shardResult.size();
+            cursors.add(shardResult.iterator());
+        }
+
+        final int limit = resultLimit == null ? total : Math.min(total, resultLimit);
+        final List<Object> merged = Lists.newArrayListWithCapacity(limit);
+        final Iterator<Object> iterator = Iterators.mergeSorted(cursors, comparator);
+        if (!distinct) {
+            while (merged.size() < limit && iterator.hasNext()) {
+                merged.add(iterator.next());
+            }
+            return merged;
+        }
+
+        // the rows of the current run of equally ordered rows
+        final DistinctResultSet run = new DistinctResultSet();
+        Object runHead = null;
+        while (merged.size() < limit && iterator.hasNext()) {
+            final Object result = iterator.next();
+            if (runHead == null || comparator.compare(runHead, result) != 0) {
+                run.clear();
+                runHead = result;
+            }
+            if (run.add(result)) {
+                merged.add(result);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of an operation compiled from the shards that succeeded, along
+ * with the shards that did not contribute to it.
+ */
+public class PartialResult<T> {
+
+    private final T result;
+
+    private final List<ShardFailure> failures;
+
+    public PartialResult(final T result, final List<ShardFailure> failures) {
+        this.result = result;
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return the result compiled from the shards that succeeded
+     */
+    public T getResult() {
+        return result;
+    }
+
+    /**
+     * @return the shards that failed, timed out or were skipped, in the order
+     *         in which they were reported
+     */
+    public List<ShardFailure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return whether or not every shard contributed to the result
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+}
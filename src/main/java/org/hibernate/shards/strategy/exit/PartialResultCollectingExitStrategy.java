@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.List;
+
+/**
+ * Accepts partial results on behalf of any other exit strategy.  The results
+ * of the shards are handed to the given strategy, and the shards that did not
+ * produce a result are kept as {@link ShardFailure}s.
+ */
+public class PartialResultCollectingExitStrategy<T> implements PartialResultExitStrategy<T> {
+
+    private final ExitStrategy<T> exitStrategy;
+
+    // guarded by itself
+    private final List<ShardFailure> failures = Lists.newArrayList();
+
+    public PartialResultCollectingExitStrategy(final ExitStrategy<T> exitStrategy) {
+        this.exitStrategy = Preconditions.checkNotNull(exitStrategy);
+    }
+
+    @Override
+    public boolean addResult(final T result, final Shard shard) {
+        return exitStrategy.addResult(result, shard);
+    }
+
+    @Override
+    public void addTimedOutShard(final Shard shard) {
+        addFailure(new ShardFailure(shard, ShardFailure.Reason.TIMED_OUT, null));
+    }
+
+    @Override
+    public void addSkippedShard(final Shard shard) {
+        addFailure(new ShardFailure(shard, ShardFailure.Reason.SKIPPED, null));
+    }
+
+    @Override
+    public void addFailedShard(final Shard shard, final RuntimeException cause) {
+        addFailure(new ShardFailure(shard, ShardFailure.Reason.FAILED, Preconditions.checkNotNull(cause)));
+    }
+
+    @Override
+    public T compileResults(final ExitOperationsCollector exitOperationsCollector) {
+        return exitStrategy.compileResults(exitOperationsCollector);
+    }
+
+    /**
+     * @return the shards reported so far that did not produce a result
+     */
+    public List<ShardFailure> getFailures() {
+        synchronized (failures) {
+            return Lists.newArrayList(failures);
+        }
+    }
+
+    private void addFailure(final ShardFailure failure) {
+        synchronized (failures) {
+            failures.add(failure);
+        }
+    }
+}
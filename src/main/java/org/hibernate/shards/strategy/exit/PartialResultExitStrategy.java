@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.shards.Shard;
+
+/**
+ * ExitStrategy that can compile a meaningful result when some shards did not
+ * produce a result.  Access strategies that enforce a deadline report the
+ * shards that timed out, access strategies that keep track of the health of
+ * the shards report the shards they skipped, and all access strategies report
+ * the shards the operation failed on, rather than failing the whole operation.
+ */
+public interface PartialResultExitStrategy<T> extends ExitStrategy<T> {
+
+    /**
+     * Invoked instead of {@link #addResult(Object, Shard)} for a shard that did
+     * not produce a result before the deadline expired.
+     *
+     * @param shard the shard that timed out
+     */
+    void addTimedOutShard(Shard shard);
+
+    /**
+     * Invoked instead of {@link #addResult(Object, Shard)} for a shard that the
+     * operation was not attempted on because the shard is considered unavailable.
+     *
+     * @param shard the shard that was skipped
+     */
+    void addSkippedShard(Shard shard);
+
+    /**
+     * Invoked instead of {@link #addResult(Object, Shard)} for a shard that the
+     * operation failed on.
+     *
+     * @param shard the shard that failed
+     * @param cause the exception thrown by the operation
+     */
+    void addFailedShard(Shard shard, RuntimeException cause);
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.criterion.Projection;
+import org.hibernate.shards.criteria.InMemoryOrderBy;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders the rows of a projection.  Rows of a projection are scalars or
+ * arrays, not entities, so an order-by clause can only be applied to them if
+ * it refers to one of the projected columns, either by property name or by
+ * alias.
+ */
+public class ProjectedRowComparator implements Comparator<Object> {
+
+    // whether rows are arrays of columns or single values
+    private final boolean multiColumn;
+
+    // the column of each order-by clause, most significant first
+    private final int[] columnIndexes;
+
+    private final boolean[] ascending;
+
+    /**
+     * @param projection  the projection whose rows are compared
+     * @param orderByList the order-by clauses, most significant first
+     * @throws UnsupportedOperationException if an order-by clause refers to a
+     *                                       property that is not projected
+     */
+    public ProjectedRowComparator(final Projection projection, final List<InMemoryOrderBy> orderByList) {
+        final String[] columns = getColumns(projection);
+        this.multiColumn = columns.length > 1;
+        this.columnIndexes = new int[orderByList.size()];
+        this.ascending = new boolean[orderByList.size()];
+        for (int i = 0; i < columnIndexes.length; i++) {
+            columnIndexes[i] = getColumnIndex(projection, columns, orderByList.get(i).getExpression());
+            ascending[i] = orderByList.get(i).isAscending();
+        }
+    }
+
+    @Override
+    public int compare(final Object row1, final Object row2) {
+        for (int i = 0; i < columnIndexes.length; i++) {
+            final int result = OrderExitOperation.compareValues(
+                    getColumn(row1, columnIndexes[i]), getColumn(row2, columnIndexes[i]));
+            if (result != 0) {
+                return ascending[i] ? result : -result;
+            }
+        }
+        return 0;
+    }
+
+    private Object getColumn(final Object row, final int index) {
+        return multiColumn ? ((Object[]) row)[index] : row;
+    }
+
+    /**
+     * This relies on the format the projections' toString() uses: an optional
+     * "distinct " followed by either a single column or a list of columns in
+     * square brackets, each column being a property name or an aggregate,
+     * optionally followed by " as " and its alias.
+     */
+    private static String[] getColumns(final Projection projection) {
+        String str = projection.toString();
+        if (str.startsWith("distinct ")) {
+            str = str.substring("distinct ".length());
+        }
+        final String[] columns;
+        if (str.startsWith("[") && str.endsWith("]")) {
+            columns = str.substring(1, str.length() - 1).split(", ");
+        } else {
+            columns = new String[]{str};
+        }
+        if (columns.length != projection.getAliases().length) {
+            throw new UnsupportedOperationException(
+                    "Can't tell the columns of projection " + projection + " apart to order its rows");
+        }
+        return columns;
+    }
+
+    private static int getColumnIndex(final Projection projection, final String[] columns, final String propertyName) {
+        for (int i = 0; i < columns.length; i++) {
+            final String column = columns[i];
+            if (column.equals(propertyName)
+                    || column.startsWith(propertyName + " as ")
+                    || column.endsWith(" as " + propertyName)) {
+                return i;
+            }
+        }
+        throw new UnsupportedOperationException(
+                "Can't order the rows of projection " + projection + " by " + propertyName + ", it isn't projected");
+    }
+}
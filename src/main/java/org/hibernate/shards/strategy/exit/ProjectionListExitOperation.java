@@ -0,0 +1,315 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.criterion.Projection;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Maps;
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the partial aggregates of a projection list of aggregates, so that
+ * all the aggregates of the list are computed in one query per shard.
+ * <p/>
+ * Every shard groups and aggregates its own rows, so a group that has rows
+ * on several shards comes back as one partial row from each of them.  A list
+ * without group properties has a single group, and every shard returns one
+ * row for it.  The
+ * partial rows are merged in a hash map keyed by the values of the group
+ * columns: counts and sums are added up, and the least or greatest of the
+ * minimums or maximums is kept.  An average can't be computed from the
+ * averages of the shards, so the shards are asked for the sum and the count
+ * of the averaged property instead, see {@link #getShardProjection()}.
+ * <p/>
+ * The projection list may only contain group properties, row counts, counts,
+ * sums, minimums, maximums and averages.  Distinct counts can't be merged.
+ */
+public class ProjectionListExitOperation implements ProjectionExitOperation, IncrementalExitOperation {
+
+    private enum Aggregate {
+        GROUP, COUNT, SUM, MIN, MAX, AVG
+    }
+
+    // the aggregate of each column of the result rows
+    private final Aggregate[] aggregates;
+
+    // how each column of the rows the shards return is merged
+    private final Aggregate[] shardAggregates;
+
+    // for an average, the column of the shard rows holding the count, -1 otherwise
+    private final int[] countColumns;
+
+    private final ProjectionList projectionList;
+
+    private final ProjectionList shardProjection;
+
+    /**
+     * @param projectionList the projection list
+     * @throws UnsupportedOperationException if the projection list contains a
+     *                                       projection that can't be merged
+     */
+    public ProjectionListExitOperation(final ProjectionList projectionList) {
+        Preconditions.checkArgument(projectionList.getLength() > 0);
+        this.projectionList = projectionList;
+        final int columnCount = projectionList.getLength();
+        this.aggregates = new Aggregate[columnCount];
+        this.countColumns = new int[columnCount];
+        this.shardProjection = Projections.projectionList();
+
+        final List<String> averagedProperties = Lists.newArrayList();
+        for (int i = 0; i < columnCount; i++) {
+            final Projection projection = projectionList.getProjection(i);
+            final String str = projection.toString();
+            final int aliasStart = str.indexOf(" as ");
+            final String alias = aliasStart < 0 ? null : str.substring(aliasStart + " as ".length());
+            final String expression = aliasStart < 0 ? str : str.substring(0, aliasStart);
+
+            aggregates[i] = getAggregate(projection, expression);
+            countColumns[i] = -1;
+            if (aggregates[i] == Aggregate.AVG) {
+                final String propertyName = expression.substring("avg(".length(), expression.length() - 1);
+                countColumns[i] = columnCount + averagedProperties.size();
+                averagedProperties.add(propertyName);
+                addToShardProjection(Projections.sum(propertyName), alias);
+            } else {
+                // the alias is already part of the projection
+                shardProjection.add(projection);
+            }
+        }
+        for (final String propertyName : averagedProperties) {
+            shardProjection.add(Projections.count(propertyName));
+        }
+
+        this.shardAggregates = new Aggregate[shardProjection.getLength()];
+        for (int i = 0; i < shardAggregates.length; i++) {
+            if (i >= columnCount) {
+                shardAggregates[i] = Aggregate.COUNT;
+            } else if (aggregates[i] == Aggregate.AVG) {
+                shardAggregates[i] = Aggregate.SUM;
+            } else {
+                shardAggregates[i] = aggregates[i];
+            }
+        }
+    }
+
+    /**
+     * @return the projection list whose rows are produced
+     */
+    public ProjectionList getProjectionList() {
+        return projectionList;
+    }
+
+    /**
+     * @return the projection list the shards should run, which is the original
+     *         projection list except that every average is replaced by the sum
+     *         of the property, and its count is added at the end
+     */
+    public Projection getShardProjection() {
+        return shardProjection;
+    }
+
+    @Override
+    public List<Object> apply(final List<Object> results) {
+        final ExitOperationAccumulator accumulator = newAccumulator();
+        accumulator.add(results);
+        return accumulator.getResult();
+    }
+
+    @Override
+    public ExitOperationAccumulator newAccumulator() {
+        return new GroupAccumulator();
+    }
+
+    private void addToShardProjection(final Projection projection, final /*@Nullable*/ String alias) {
+        if (alias == null) {
+            shardProjection.add(projection);
+        } else {
+            shardProjection.add(projection, alias);
+        }
+    }
+
+    /**
+     * This relies on the format the aggregate projections' toString() uses:
+     * the name of the function followed by its argument in parentheses, with
+     * "distinct " in front of distinct counts.
+     */
+    private static Aggregate getAggregate(final Projection projection, final String expression) {
+        if (projection.isGrouped()) {
+            return Aggregate.GROUP;
+        }
+        if (expression.startsWith("count(")) {
+            return Aggregate.COUNT;
+        }
+        if (expression.startsWith("sum(")) {
+            return Aggregate.SUM;
+        }
+        if (expression.startsWith("min(")) {
+            return Aggregate.MIN;
+        }
+        if (expression.startsWith("max(")) {
+            return Aggregate.MAX;
+        }
+        if (expression.startsWith("avg(")) {
+            return Aggregate.AVG;
+        }
+        throw new UnsupportedOperationException(
+                "Can't merge projection " + projection + " across shards in a projection list");
+    }
+
+    private static /*@Nullable*/ Object extreme(final Aggregate aggregate,
+                                                final /*@Nullable*/ Object v1, final /*@Nullable*/ Object v2) {
+        if (v1 == null) {
+            return v2;
+        }
+        if (v2 == null) {
+            return v1;
+        }
+        final int comparison = OrderExitOperation.compareValues(v1, v2);
+        return (aggregate == Aggregate.MIN ? comparison <= 0 : comparison >= 0) ? v1 : v2;
+    }
+
+    private final class GroupAccumulator implements ExitOperationAccumulator {
+
+        // the merged partial aggregates of every group, in the order the groups were first seen;
+        // counts and sums are kept as SumCombiners
+        private final Map<GroupKey, Object[]> groups = Maps.newLinkedHashMap();
+
+        @Override
+        public void add(final List<Object> oneResult) {
+            for (final Object row : oneResult) {
+                if (row == null) {
+                    continue;
+                }
+                final Object[] columns = shardAggregates.length == 1 ? new Object[]{row} : (Object[]) row;
+                final GroupKey key = new GroupKey(columns);
+                Object[] partial = groups.get(key);
+                if (partial == null) {
+                    partial = columns.clone();
+                    for (int i = 0; i < partial.length; i++) {
+                        if (shardAggregates[i] == Aggregate.COUNT || shardAggregates[i] == Aggregate.SUM) {
+                            // the shards already return the type Hibernate sums this column in
+                            partial[i] = new SumCombiner();
+                        }
+                    }
+                    groups.put(key, partial);
+                }
+                for (int i = 0; i < partial.length; i++) {
+                    switch (shardAggregates[i]) {
+                        case COUNT:
+                        case SUM:
+                            if (columns[i] != null) {
+                                ((SumCombiner) partial[i]).add((Number) columns[i]);
+                            }
+                            break;
+                        case MIN:
+                        case MAX:
+                            partial[i] = extreme(shardAggregates[i], partial[i], columns[i]);
+                            break;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public List<Object> getResult() {
+            if (groups.isEmpty() && !projectionList.isGrouped()) {
+                // no shard was queried, aggregate over no rows at all
+                final Object[] row = new Object[aggregates.length];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = aggregates[i] == Aggregate.COUNT ? 0L : null;
+                }
+                return Collections.<Object>singletonList(row.length == 1 ? row[0] : row);
+            }
+            final List<Object> results = Lists.newArrayListWithCapacity(groups.size());
+            for (final Object[] partial : groups.values()) {
+                final Object[] row = new Object[aggregates.length];
+                for (int i = 0; i < row.length; i++) {
+                    if (aggregates[i] == Aggregate.AVG) {
+                        row[i] = average(valueOf(partial[i]), valueOf(partial[countColumns[i]]));
+                    } else if (aggregates[i] == Aggregate.COUNT) {
+                        final Object count = valueOf(partial[i]);
+                        row[i] = count == null ? 0L : count;
+                    } else {
+                        row[i] = valueOf(partial[i]);
+                    }
+                }
+                results.add(row.length == 1 ? row[0] : row);
+            }
+            return results;
+        }
+
+        private /*@Nullable*/ Double average(final /*@Nullable*/ Object sum, final /*@Nullable*/ Object count) {
+            if (sum == null || count == null || ((Number) count).longValue() == 0) {
+                return null;
+            }
+            return ((Number) sum).doubleValue() / ((Number) count).longValue();
+        }
+
+        private /*@Nullable*/ Object valueOf(final /*@Nullable*/ Object partial) {
+            return partial instanceof SumCombiner ? ((SumCombiner) partial).getResult() : partial;
+        }
+    }
+
+    /**
+     * The values of the group columns of a row.
+     */
+    private final class GroupKey {
+
+        private final Object[] columns;
+
+        private final int hash;
+
+        GroupKey(final Object[] columns) {
+            this.columns = columns;
+            int h = 1;
+            for (int i = 0; i < columns.length; i++) {
+                if (shardAggregates[i] == Aggregate.GROUP) {
+                    h = 31 * h + (columns[i] == null ? 0 : columns[i].hashCode());
+                }
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof GroupKey)) {
+                return false;
+            }
+            final Object[] otherColumns = ((GroupKey) obj).columns;
+            for (int i = 0; i < columns.length; i++) {
+                if (shardAggregates[i] == Aggregate.GROUP
+                        && !(columns[i] == null ? otherColumns[i] == null : columns[i].equals(otherColumns[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.EntityMode;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.property.Getter;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.shards.util.Preconditions;
+import org.hibernate.shards.util.StringUtil;
+import org.hibernate.tuple.entity.EntityTuplizer;
+import org.hibernate.type.ComponentType;
+import org.hibernate.type.Type;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reads (possibly nested) property values of result objects, such as the
+ * properties results are ordered or aggregated by.
+ * <p/>
+ * The first time a property path is read for a class it is resolved into a
+ * chain of accessors, one per path segment, which is cached so later reads
+ * don't need to do any lookups.  When a session factory is available, the
+ * properties of mapped entities and components are read the way Hibernate
+ * reads them, so mappings that use field access are respected.  Everything
+ * else, as well as every property when no session factory is available, is
+ * read through its getter, which may be private.
+ * <p/>
+ * A cache doesn't keep its session factory from being collected: it only
+ * holds the factory, and the Hibernate types it hands out, through weak
+ * references, and reads mapped properties through Hibernate's getters,
+ * which don't refer to the factory.
+ * <p/>
+ * Instances are threadsafe.
+ */
+public class PropertyAccessorCache {
+
+    // used when we don't know the session factory
+    private static final PropertyAccessorCache REFLECTIVE = new PropertyAccessorCache(null);
+
+    // one cache per session factory, weakly held so factories can be collected
+    private static final Map<SessionFactoryImplementor, PropertyAccessorCache> CACHES =
+            new WeakHashMap<SessionFactoryImplementor, PropertyAccessorCache>();
+
+    // weak so our entry in CACHES doesn't keep the factory alive, null if we don't know the factory
+    private final /*@Nullable*/ WeakReference<SessionFactoryImplementor> sessionFactoryImplementor;
+
+    // resolved property paths by property path, by class of the root object
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, ResolvedPath>> paths =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<String, ResolvedPath>>();
+
+    PropertyAccessorCache(final /*@Nullable*/ SessionFactoryImplementor sessionFactoryImplementor) {
+        this.sessionFactoryImplementor = sessionFactoryImplementor == null
+                ? null
+                : new WeakReference<SessionFactoryImplementor>(sessionFactoryImplementor);
+    }
+
+    /**
+     * @param sessionFactoryImplementor the session factory the objects whose
+     *                                  properties we read belong to, or null if unknown
+     * @return the cache for the given session factory
+     */
+    public static PropertyAccessorCache forSessionFactory(
+            final /*@Nullable*/ SessionFactoryImplementor sessionFactoryImplementor) {
+
+        if (sessionFactoryImplementor == null) {
+            return REFLECTIVE;
+        }
+        synchronized (CACHES) {
+            PropertyAccessorCache cache = CACHES.get(sessionFactoryImplementor);
+            if (cache == null) {
+                cache = new PropertyAccessorCache(sessionFactoryImplementor);
+                CACHES.put(sessionFactoryImplementor, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * @param obj          the object to read the property of
+     * @param propertyPath the name of the property, components of nested
+     *                     properties are separated by dots
+     * @return the value of the property, or null if it or any of the properties
+     *         leading up to it is null
+     */
+    public Object getPropertyValue(final Object obj, final String propertyPath) {
+        Preconditions.checkNotNull(obj);
+        Object value = obj;
+        for (final Accessor accessor : getResolvedPath(obj.getClass(), propertyPath).chain) {
+            value = accessor.get(value);
+            if (value == null) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param clazz        the class of the objects to read the property of
+     * @param propertyPath the name of the property, components of nested
+     *                     properties are separated by dots
+     * @return the Hibernate type the property is mapped with, or null if it
+     *         isn't a mapped property
+     */
+    public /*@Nullable*/ Type getPropertyType(final Class<?> clazz, final String propertyPath) {
+        final WeakReference<Type> type = getResolvedPath(clazz, propertyPath).type;
+        return type == null ? null : type.get();
+    }
+
+    private ResolvedPath getResolvedPath(final Class<?> clazz, final String propertyPath) {
+        ConcurrentMap<String, ResolvedPath> byPath = paths.get(clazz);
+        if (byPath == null) {
+            paths.putIfAbsent(clazz, new ConcurrentHashMap<String, ResolvedPath>());
+            byPath = paths.get(clazz);
+        }
+        ResolvedPath path = byPath.get(propertyPath);
+        if (path == null) {
+            // resolving the same path twice is harmless
+            path = resolve(clazz, propertyPath);
+            byPath.put(propertyPath, path);
+        }
+        return path;
+    }
+
+    private ResolvedPath resolve(final Class<?> clazz, final String propertyPath) {
+        final String[] propertyNames = propertyPath.split("\\.");
+        final Accessor[] chain = new Accessor[propertyNames.length];
+        Class<?> currentClass = clazz;
+        // the type of the component we are in, null if we aren't in a component
+        ComponentType currentComponent = null;
+        Type propertyType = null;
+        for (int i = 0; i < propertyNames.length; i++) {
+            final String propertyName = propertyNames[i];
+            propertyType = null;
+            if (currentComponent != null) {
+                final int index = currentComponent.getPropertyIndex(propertyName);
+                chain[i] = new ComponentPropertyAccessor(
+                        currentComponent.getTuplizerMapping().getTuplizer(EntityMode.POJO).getGetter(index));
+                propertyType = currentComponent.getSubtypes()[index];
+            } else {
+                final EntityPersister persister = findPersister(currentClass);
+                if (persister != null) {
+                    final EntityTuplizer tuplizer = persister.getEntityMetamodel().getTuplizer(EntityMode.POJO);
+                    if (propertyName.equals(persister.getIdentifierPropertyName())) {
+                        if (tuplizer.getIdentifierGetter() != null) {
+                            chain[i] = new IdentifierAccessor(tuplizer.getIdentifierGetter());
+                            propertyType = persister.getIdentifierType();
+                        }
+                    } else {
+                        final Integer index = persister.getEntityMetamodel().getPropertyIndexOrNull(propertyName);
+                        if (index != null) {
+                            chain[i] = new EntityPropertyAccessor(tuplizer.getGetter(index));
+                            propertyType = persister.getPropertyTypes()[index];
+                        }
+                    }
+                }
+            }
+
+            if (propertyType != null) {
+                currentClass = propertyType.getReturnedClass();
+                currentComponent = propertyType instanceof ComponentType ? (ComponentType) propertyType : null;
+            } else {
+                final Method getter = findGetter(currentClass, propertyName);
+                chain[i] = new GetterAccessor(getter);
+                currentClass = getter.getReturnType();
+                currentComponent = null;
+            }
+        }
+        return new ResolvedPath(chain, propertyType);
+    }
+
+    private /*@Nullable*/ EntityPersister findPersister(final Class<?> clazz) {
+        final SessionFactoryImplementor sessionFactoryImplementor =
+                this.sessionFactoryImplementor == null ? null : this.sessionFactoryImplementor.get();
+        if (sessionFactoryImplementor == null) {
+            return null;
+        }
+        // walk up the hierarchy so we also find the persister of proxy classes
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            final ClassMetadata metadata = sessionFactoryImplementor.getClassMetadata(c);
+            if (metadata != null) {
+                return sessionFactoryImplementor.getEntityPersister(metadata.getEntityName());
+            }
+        }
+        return null;
+    }
+
+    private static Method findGetter(final Class<?> clazz, final String propertyName) {
+        try {
+            final Method getter = ExitOperationUtils.findPotentiallyPrivateMethod(clazz, "get" + StringUtil.capitalize(propertyName));
+            getter.setAccessible(true);
+            return getter;
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Object unproxy(final Object obj) {
+        if (obj instanceof HibernateProxy) {
+            return ((HibernateProxy) obj).getHibernateLazyInitializer().getImplementation();
+        }
+        return obj;
+    }
+
+    private static final class ResolvedPath {
+
+        // one accessor per path segment
+        private final Accessor[] chain;
+
+        // the mapped type of the last segment, null if it is read through a
+        // getter, weak since mapped types may refer to the session factory
+        private final /*@Nullable*/ WeakReference<Type> type;
+
+        ResolvedPath(final Accessor[] chain, final /*@Nullable*/ Type type) {
+            this.chain = chain;
+            this.type = type == null ? null : new WeakReference<Type>(type);
+        }
+    }
+
+    /**
+     * Reads a single, non-nested property of an object.
+     */
+    private interface Accessor {
+        Object get(Object owner);
+    }
+
+    private static final class IdentifierAccessor implements Accessor {
+
+        private final Getter getter;
+
+        IdentifierAccessor(final Getter getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        public Object get(final Object owner) {
+            if (owner instanceof HibernateProxy) {
+                // no need to initialize the proxy to get its id
+                return ((HibernateProxy) owner).getHibernateLazyInitializer().getIdentifier();
+            }
+            return getter.get(owner);
+        }
+    }
+
+    private static final class EntityPropertyAccessor implements Accessor {
+
+        private final Getter getter;
+
+        EntityPropertyAccessor(final Getter getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        public Object get(final Object owner) {
+            return getter.get(unproxy(owner));
+        }
+    }
+
+    private static final class ComponentPropertyAccessor implements Accessor {
+
+        private final Getter getter;
+
+        ComponentPropertyAccessor(final Getter getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        public Object get(final Object owner) {
+            return getter.get(owner);
+        }
+    }
+
+    private static final class GetterAccessor implements Accessor {
+
+        private final Method getter;
+
+        GetterAccessor(final Method getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        public Object get(final Object owner) {
+            try {
+                return getter.invoke(owner);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            } catch (InvocationTargetException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -28,14 +28,33 @@ import java.util.List;
 /**
  * @author Maulik Shah
  */
-public class RowCountExitOperation implements ProjectionExitOperation {
+public class RowCountExitOperation implements ProjectionExitOperation, IncrementalExitOperation {
 
   public RowCountExitOperation(Projection projection) {
     Preconditions.checkState(projection instanceof RowCountProjection);
   }
 
   public List<Object> apply(List<Object> results) {
-    List<Object> nonNullResults = ExitOperationUtils.getNonNullList(results);
-    return Collections.singletonList((Object) nonNullResults.size());
+    ExitOperationAccumulator accumulator = newAccumulator();
+    accumulator.add(results);
+    return accumulator.getResult();
+  }
+
+  public ExitOperationAccumulator newAccumulator() {
+    return new ExitOperationAccumulator() {
+      private int count;
+
+      public void add(List<Object> oneResult) {
+        for (Object obj : oneResult) {
+          if (obj != null) {
+            count++;
+          }
+        }
+      }
+
+      public List<Object> getResult() {
+        return Collections.singletonList((Object) count);
+      }
+    };
   }
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.util.Lists;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a shard that did not contribute to a partial result.
+ */
+public class ShardFailure {
+
+    /**
+     * Why a shard did not contribute to the result.
+     */
+    public enum Reason {
+        // the operation failed on the shard
+        FAILED,
+        // the shard did not produce a result before the deadline expired
+        TIMED_OUT,
+        // the operation was not attempted because the shard is considered unavailable
+        SKIPPED
+    }
+
+    private final List<ShardId> shardIds;
+
+    private final Reason reason;
+
+    // the exception thrown by the operation, only set if it failed
+    private final /*@Nullable*/ RuntimeException cause;
+
+    public ShardFailure(final Shard shard, final Reason reason, final /*@Nullable*/ RuntimeException cause) {
+        this.shardIds = Collections.unmodifiableList(Lists.newArrayList(shard.getShardIds()));
+        this.reason = reason;
+        this.cause = cause;
+    }
+
+    /**
+     * @return the ids of the virtual shards that live on the shard
+     */
+    public List<ShardId> getShardIds() {
+        return shardIds;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return the exception thrown by the operation, or null if the shard
+     *         timed out or was skipped
+     */
+    public /*@Nullable*/ RuntimeException getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardFailure{" + shardIds + ", " + reason + (cause == null ? "" : ", " + cause) + "}";
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.type.Type;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Adds up numbers exactly, in the representation a database sum of the
+ * same type would have: integral values are summed into a primitive long,
+ * floating point values into a primitive double, and only
+ * {@link BigDecimal} and {@link BigInteger} values are summed as objects.
+ * So the result is a Long, a Double, a BigDecimal or a BigInteger, which is
+ * what Hibernate returns for the sum of a property of that type.
+ * <p/>
+ * If a long sum overflows it continues as a BigInteger rather than
+ * wrapping around, and if values of different kinds are mixed the sum
+ * continues as a BigDecimal.
+ * <p/>
+ * Not threadsafe.
+ */
+final class SumCombiner {
+
+    private enum Mode {
+        LONG, DOUBLE, BIG_INTEGER, BIG_DECIMAL
+    }
+
+    // null until the first value is added, unless the type of the values is known
+    private Mode mode;
+
+    private boolean empty = true;
+
+    private long longSum;
+
+    private double doubleSum;
+
+    private BigInteger bigIntegerSum = BigInteger.ZERO;
+
+    private BigDecimal bigDecimalSum;
+
+    /**
+     * Creates a sum whose representation is picked by the class of the first
+     * value added.
+     */
+    SumCombiner() {
+    }
+
+    /**
+     * @param type the Hibernate type of the values to add up, or null if unknown
+     */
+    SumCombiner(final /*@Nullable*/ Type type) {
+        this.mode = type == null ? null : modeOf(type.getReturnedClass());
+    }
+
+    /**
+     * @param value the value to add, not null
+     */
+    void add(final Number value) {
+        if (mode == null) {
+            mode = modeOf(value.getClass());
+            if (mode == null) {
+                mode = Mode.BIG_DECIMAL;
+                bigDecimalSum = BigDecimal.ZERO;
+            }
+        }
+        empty = false;
+        switch (mode) {
+            case LONG:
+                if (isIntegral(value)) {
+                    final long v = value.longValue();
+                    final long sum = longSum + v;
+                    if (((longSum ^ sum) & (v ^ sum)) < 0) {
+                        // overflow
+                        mode = Mode.BIG_INTEGER;
+                        bigIntegerSum = BigInteger.valueOf(longSum).add(BigInteger.valueOf(v));
+                    } else {
+                        longSum = sum;
+                    }
+                } else if (value instanceof BigInteger) {
+                    mode = Mode.BIG_INTEGER;
+                    bigIntegerSum = BigInteger.valueOf(longSum).add((BigInteger) value);
+                } else {
+                    mode = Mode.BIG_DECIMAL;
+                    bigDecimalSum = BigDecimal.valueOf(longSum).add(toBigDecimal(value));
+                }
+                break;
+            case DOUBLE:
+                if (value instanceof Double || value instanceof Float || isIntegral(value)) {
+                    doubleSum += value.doubleValue();
+                } else {
+                    mode = Mode.BIG_DECIMAL;
+                    bigDecimalSum = BigDecimal.valueOf(doubleSum).add(toBigDecimal(value));
+                }
+                break;
+            case BIG_INTEGER:
+                if (value instanceof BigInteger) {
+                    bigIntegerSum = bigIntegerSum.add((BigInteger) value);
+                } else if (isIntegral(value)) {
+                    bigIntegerSum = bigIntegerSum.add(BigInteger.valueOf(value.longValue()));
+                } else {
+                    mode = Mode.BIG_DECIMAL;
+                    bigDecimalSum = new BigDecimal(bigIntegerSum).add(toBigDecimal(value));
+                }
+                break;
+            case BIG_DECIMAL:
+                bigDecimalSum = bigDecimalSum == null ? toBigDecimal(value) : bigDecimalSum.add(toBigDecimal(value));
+                break;
+        }
+    }
+
+    /**
+     * @return the sum, or null if no value was added, like a database sum of
+     *         no rows
+     */
+    /*@Nullable*/ Number getResult() {
+        if (empty) {
+            return null;
+        }
+        switch (mode) {
+            case LONG:
+                return longSum;
+            case DOUBLE:
+                return doubleSum;
+            case BIG_INTEGER:
+                return bigIntegerSum;
+            default:
+                return bigDecimalSum;
+        }
+    }
+
+    private static /*@Nullable*/ Mode modeOf(final Class<?> clazz) {
+        if (clazz == Long.class || clazz == Integer.class || clazz == Short.class || clazz == Byte.class
+                || clazz == long.class || clazz == int.class || clazz == short.class || clazz == byte.class) {
+            return Mode.LONG;
+        }
+        if (clazz == Double.class || clazz == Float.class || clazz == double.class || clazz == float.class) {
+            return Mode.DOUBLE;
+        }
+        if (clazz == BigInteger.class) {
+            return Mode.BIG_INTEGER;
+        }
+        if (clazz == BigDecimal.class) {
+            return Mode.BIG_DECIMAL;
+        }
+        return null;
+    }
+
+    private static boolean isIntegral(final Number value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    private static BigDecimal toBigDecimal(final Number value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (isIntegral(value)) {
+            return BigDecimal.valueOf(value.longValue());
+        }
+        return BigDecimal.valueOf(value.doubleValue());
+    }
+}
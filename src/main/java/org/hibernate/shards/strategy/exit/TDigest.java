@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Estimates quantiles of the values it has seen from a bounded number of
+ * weighted centroids.  Digests of different sets of values can be merged
+ * into a digest of their union, so every shard's values can be digested on
+ * their own.
+ * <p/>
+ * Centroids near the tails hold few values and centroids near the median
+ * many, so extreme quantiles are estimated as precisely as the median.  With
+ * the default compression of 100 there are at most a couple of hundred
+ * centroids, and quantiles are off by well under 1% of the values.
+ * <p/>
+ * Added values are buffered and merged into the centroids once the buffer
+ * is full, or when a quantile is asked for.
+ * <p/>
+ * Not threadsafe.
+ */
+final class TDigest {
+
+    static final double DEFAULT_COMPRESSION = 100;
+
+    private static final Comparator<Centroid> BY_MEAN = new Comparator<Centroid>() {
+        @Override
+        public int compare(final Centroid c1, final Centroid c2) {
+            return Double.compare(c1.mean, c2.mean);
+        }
+    };
+
+    private final double compression;
+
+    // the merged centroids, ordered by mean
+    private List<Centroid> centroids = Lists.newArrayList();
+
+    // values added since the centroids were last merged
+    private final List<Centroid> buffer;
+
+    private final int bufferCapacity;
+
+    private double totalWeight;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    TDigest(final double compression) {
+        Preconditions.checkArgument(compression >= 10);
+        this.compression = compression;
+        this.bufferCapacity = (int) (5 * compression);
+        this.buffer = Lists.newArrayListWithCapacity(bufferCapacity);
+    }
+
+    /**
+     * @param value  the value to add
+     * @param weight the number of times the value occurs, positive
+     */
+    void add(final double value, final double weight) {
+        Preconditions.checkArgument(weight > 0);
+        buffer.add(new Centroid(value, weight));
+        totalWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (buffer.size() >= bufferCapacity) {
+            compress();
+        }
+    }
+
+    /**
+     * Adds all the values the other digest has seen.
+     */
+    void merge(final TDigest other) {
+        for (final Centroid centroid : other.centroids) {
+            add(centroid.mean, centroid.weight);
+        }
+        for (final Centroid centroid : other.buffer) {
+            add(centroid.mean, centroid.weight);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @param q the fraction of values below the quantile
+     * @return the estimated quantile, or null if no value was added
+     */
+    /*@Nullable*/ Double quantile(final double q) {
+        Preconditions.checkArgument(q >= 0 && q <= 1);
+        compress();
+        if (centroids.isEmpty()) {
+            return null;
+        }
+        // the weight up to the quantile; every centroid is centered on its mean
+        final double index = q * totalWeight;
+        final Centroid first = centroids.get(0);
+        if (index <= first.weight / 2) {
+            return interpolate(min, first.mean, index / (first.weight / 2));
+        }
+        double center = first.weight / 2;
+        for (int i = 1; i < centroids.size(); i++) {
+            final Centroid previous = centroids.get(i - 1);
+            final Centroid current = centroids.get(i);
+            final double nextCenter = center + (previous.weight + current.weight) / 2;
+            if (index <= nextCenter) {
+                return interpolate(previous.mean, current.mean, (index - center) / (nextCenter - center));
+            }
+            center = nextCenter;
+        }
+        final Centroid last = centroids.get(centroids.size() - 1);
+        return interpolate(last.mean, max, (index - center) / (last.weight / 2));
+    }
+
+    /**
+     * Merges the buffered values into the centroids.  Neighboring centroids
+     * are combined as long as the combined centroid doesn't span more than
+     * one unit of the scale function, which is steep near the tails.
+     */
+    private void compress() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        final List<Centroid> all = Lists.newArrayListWithCapacity(centroids.size() + buffer.size());
+        all.addAll(centroids);
+        all.addAll(buffer);
+        buffer.clear();
+        Collections.sort(all, BY_MEAN);
+
+        final List<Centroid> merged = Lists.newArrayList();
+        double weightSoFar = 0;
+        double weightLimit = totalWeight * nextQuantileLimit(0);
+        Centroid current = new Centroid(all.get(0).mean, all.get(0).weight);
+        for (int i = 1; i < all.size(); i++) {
+            final Centroid next = all.get(i);
+            if (weightSoFar + current.weight + next.weight <= weightLimit) {
+                current.weight += next.weight;
+                current.mean += (next.mean - current.mean) * next.weight / current.weight;
+            } else {
+                weightSoFar += current.weight;
+                merged.add(current);
+                weightLimit = totalWeight * nextQuantileLimit(weightSoFar / totalWeight);
+                current = new Centroid(next.mean, next.weight);
+            }
+        }
+        merged.add(current);
+        centroids = merged;
+    }
+
+    /**
+     * @return the quantile one unit of the scale function
+     *         k(q) = compression / 2pi * asin(2q - 1) beyond q
+     */
+    private double nextQuantileLimit(final double q) {
+        final double k = compression / (2 * Math.PI) * Math.asin(2 * q - 1) + 1;
+        final double angle = Math.min(Math.PI / 2, k * 2 * Math.PI / compression);
+        return (Math.sin(angle) + 1) / 2;
+    }
+
+    private static double interpolate(final double from, final double to, final double fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    private static final class Centroid {
+
+        private double mean;
+
+        private double weight;
+
+        Centroid(final double mean, final double weight) {
+            this.mean = mean;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.criteria.InMemoryOrderBy;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Preconditions;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Threadsafe ExitStrategy for ordered queries that only need the first
+ * {@code resultLimit} results, typically firstResult + maxResults.  Instead
+ * of holding on to the results of every shard we keep a bounded heap of the
+ * best {@code resultLimit} results seen so far, so memory use does not grow
+ * with the number of shards.
+ * <p/>
+ * Each shard has already sorted its results by the pushed-down order-by
+ * clauses, so once a result of a shard doesn't make it into a full heap none
+ * of the remaining results of that shard will either.
+ */
+public class TopNExitStrategy implements ExitStrategy<List<Object>> {
+
+    private final Comparator<Object> comparator;
+
+    private final int resultLimit;
+
+    // the worst of the best results seen so far is at the head
+    private final PriorityQueue<Candidate> heap;
+
+    // arrival order of results, used to break ties
+    private long sequence;
+
+    /**
+     * Construct a TopNExitStrategy
+     *
+     * @param orderByList the order-by clauses each shard sorted its results by
+     * @param resultLimit the maximum number of results to produce
+     */
+    public TopNExitStrategy(final List<InMemoryOrderBy> orderByList, final int resultLimit) {
+        this(OrderExitOperation.buildComparator(Preconditions.checkNotNull(orderByList)), resultLimit);
+    }
+
+    /**
+     * Construct a TopNExitStrategy
+     *
+     * @param comparator  the comparator each shard sorted its results by
+     * @param resultLimit the maximum number of results to produce
+     */
+    public TopNExitStrategy(final Comparator<Object> comparator, final int resultLimit) {
+        Preconditions.checkNotNull(comparator);
+        Preconditions.checkArgument(resultLimit >= 0);
+        this.comparator = comparator;
+        this.resultLimit = resultLimit;
+        this.heap = new PriorityQueue<Candidate>(Math.max(1, resultLimit), Collections.reverseOrder());
+    }
+
+    @Override
+    public synchronized boolean addResult(final List<Object> oneResult, final Shard shard) {
+        if (resultLimit == 0) {
+            return false;
+        }
+        for (final Object result : oneResult) {
+            if (result == null) {
+                continue;
+            }
+            if (heap.size() < resultLimit) {
+                heap.add(new Candidate(result, sequence++));
+            } else if (comparator.compare(result, heap.peek().result) < 0) {
+                heap.poll();
+                heap.add(new Candidate(result, sequence++));
+            } else {
+                // the rest of this shard's results can only be worse
+                break;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<Object> compileResults(final ExitOperationsCollector exitOperationsCollector) {
+        return exitOperationsCollector.applyToOrderedResult(drain());
+    }
+
+    synchronized List<Object> drain() {
+        final List<Candidate> candidates = Lists.newArrayList(heap);
+        Collections.sort(candidates);
+        final List<Object> results = Lists.newArrayListWithCapacity(candidates.size());
+        for (final Candidate candidate : candidates) {
+            results.add(candidate.result);
+        }
+        return results;
+    }
+
+    private final class Candidate implements Comparable<Candidate> {
+
+        private final Object result;
+        private final long sequence;
+
+        Candidate(final Object result, final long sequence) {
+            this.result = result;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(final Candidate other) {
+            final int order = comparator.compare(result, other.result);
+            if (order != 0) {
+                return order;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+}
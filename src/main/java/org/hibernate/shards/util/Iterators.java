@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.util;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Helper methods related to {@link Iterator}s.
+ */
+public class Iterators {
+
+    private Iterators() {
+    }
+
+    /**
+     * Returns an iterator over the merged contents of all the given iterators,
+     * which must each already be sorted according to the given comparator.
+     * Only the current element of each underlying iterator is held at any time,
+     * and an underlying iterator is only advanced when its current element has
+     * been returned.  Equal elements are returned in the order of the iterators
+     * that supplied them.
+     *
+     * @param iterators  the sorted iterators to merge
+     * @param comparator the comparator by which the iterators are sorted
+     * @return an iterator over the merged, sorted contents of the given iterators
+     */
+    public static <T> Iterator<T> mergeSorted(final Iterable<? extends Iterator<? extends T>> iterators,
+                                              final Comparator<? super T> comparator) {
+
+        Preconditions.checkNotNull(iterators);
+        Preconditions.checkNotNull(comparator);
+        return new MergingIterator<T>(iterators, comparator);
+    }
+
+    private static final class MergingIterator<T> implements Iterator<T> {
+
+        private final PriorityQueue<Cursor<T>> queue;
+
+        MergingIterator(final Iterable<? extends Iterator<? extends T>> iterators,
+                        final Comparator<? super T> comparator) {
+
+            queue = new PriorityQueue<Cursor<T>>(11, new Comparator<Cursor<T>>() {
+                @Override
+                public int compare(final Cursor<T> c1, final Cursor<T> c2) {
+                    final int result = comparator.compare(c1.head, c2.head);
+                    // fall back to the position of the iterators so the merge is stable
+                    return result != 0 ? result : c1.index - c2.index;
+                }
+            });
+
+            int index = 0;
+            for (final Iterator<? extends T> iterator : iterators) {
+                final Cursor<T> cursor = new Cursor<T>(iterator, index++);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            final Cursor<T> cursor = queue.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+            final T result = cursor.head;
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class Cursor<T> {
+
+        private final Iterator<? extends T> iterator;
+        private final int index;
+        private T head;
+
+        Cursor(final Iterator<? extends T> iterator, final int index) {
+            this.iterator = iterator;
+            this.index = index;
+        }
+
+        boolean advance() {
+            if (iterator.hasNext()) {
+                head = iterator.next();
+                return true;
+            }
+            head = null;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+/**
+ * Map that compares its keys by identity rather than equality and holds them
+ * weakly, so an entry disappears once its key is no longer strongly
+ * reachable.  Entries whose keys have been collected are purged whenever the
+ * map is accessed.
+ * <p/>
+ * Null keys are not supported.  Instances are threadsafe: a session's index
+ * of the objects it loaded is written from the threads of parallel shard
+ * access strategies.
+ */
+public class WeakIdentityMap<K, V> {
+
+    private final Map<IdentityWeakReference, V> map = Maps.newHashMap();
+
+    // references to keys that have been collected
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+    /**
+     * @return the value mapped to the given key, or null if there is none
+     */
+    public synchronized /*@Nullable*/ V get(final K key) {
+        Preconditions.checkNotNull(key);
+        expungeStaleEntries();
+        return map.get(new IdentityWeakReference(key, null));
+    }
+
+    public synchronized void put(final K key, final V value) {
+        Preconditions.checkNotNull(key);
+        expungeStaleEntries();
+        map.put(new IdentityWeakReference(key, queue), value);
+    }
+
+    public synchronized void remove(final K key) {
+        Preconditions.checkNotNull(key);
+        expungeStaleEntries();
+        map.remove(new IdentityWeakReference(key, null));
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        // the references we just dropped can't be found in the map anymore
+        while (queue.poll() != null) {
+            // keep polling
+        }
+    }
+
+    public synchronized int size() {
+        expungeStaleEntries();
+        return map.size();
+    }
+
+    private void expungeStaleEntries() {
+        Object reference;
+        while ((reference = queue.poll()) != null) {
+            map.remove(reference);
+        }
+    }
+
+    /**
+     * Weak reference that is equal to another reference to the same object.
+     * The identity hash code of the referent is remembered so a reference
+     * can still be found, and removed, once its referent has been collected.
+     */
+    private static final class IdentityWeakReference extends WeakReference<Object> {
+
+        private final int hashCode;
+
+        IdentityWeakReference(final Object referent, final /*@Nullable*/ ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hashCode = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof IdentityWeakReference)) {
+                return false;
+            }
+            final Object referent = get();
+            return referent != null && referent == ((IdentityWeakReference) obj).get();
+        }
+    }
+}
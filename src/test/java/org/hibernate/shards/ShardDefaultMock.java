@@ -20,6 +20,8 @@ package org.hibernate.shards;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.classic.Session;
 import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.shards.criteria.CriteriaEvent;
@@ -30,6 +32,7 @@ import org.hibernate.shards.query.QueryId;
 import org.hibernate.shards.query.ShardedQuery;
 import org.hibernate.shards.session.OpenSessionEvent;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -118,4 +121,19 @@ public class ShardDefaultMock implements Shard {
     public Object uniqueResult(QueryId queryId) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public ScrollableResults scroll(CriteriaId criteriaId, ScrollMode scrollMode) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<Object> iterate(QueryId queryId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScrollableResults scroll(QueryId queryId, ScrollMode scrollMode) {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -29,9 +29,11 @@ import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projection;
+import org.hibernate.shards.strategy.exit.PartialResult;
 import org.hibernate.transform.ResultTransformer;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * @author maxr@google.com (Max Ross)
@@ -48,6 +50,26 @@ public class ShardedCriteriaDefaultMock implements ShardedCriteria {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Future<List<Object>> listAsync() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PartialResult<List<Object>> listPartial() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Future<Object> uniqueResultAsync() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ShardedCriteria seekAfter(Object... lastSortKey) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public String getAlias() {
         throw new UnsupportedOperationException();
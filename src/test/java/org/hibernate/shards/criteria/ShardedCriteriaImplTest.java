@@ -19,6 +19,8 @@ package org.hibernate.shards.criteria;
 
 import junit.framework.TestCase;
 import org.hibernate.Criteria;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
 import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.shards.Shard;
 import org.hibernate.shards.ShardDefaultMock;
@@ -149,4 +151,30 @@ public class ShardedCriteriaImplTest extends TestCase {
         assertEquals(7, ((SetMaxResultsEvent) events.get(0)).getMaxResults());
         assertEquals(8, ((SetMaxResultsEvent) events.get(1)).getMaxResults());
     }
+
+    public void testBuildSeekCriterion() {
+        final List<InMemoryOrderBy> orders = Lists.newArrayList(
+                new InMemoryOrderBy(null, Order.asc("name")),
+                new InMemoryOrderBy(null, Order.desc("id")));
+        final Criterion criterion = ShardedCriteriaImpl.buildSeekCriterion(orders, new Object[]{"b2", 7});
+        assertEquals("((name>b2) or (name=b2 and id<7))", criterion.toString());
+    }
+
+    public void testBuildSeekCriterionRejectsNullKeys() {
+        final List<InMemoryOrderBy> orders = Lists.newArrayList(
+                new InMemoryOrderBy(null, Order.asc("name")),
+                new InMemoryOrderBy(null, Order.desc("id")));
+        try {
+            ShardedCriteriaImpl.buildSeekCriterion(orders, new Object[]{null, 7});
+            fail("expected iae");
+        } catch (IllegalArgumentException iae) {
+            // good
+        }
+        try {
+            ShardedCriteriaImpl.buildSeekCriterion(orders, new Object[]{"b2", null});
+            fail("expected iae");
+        } catch (IllegalArgumentException iae) {
+            // good
+        }
+    }
 }
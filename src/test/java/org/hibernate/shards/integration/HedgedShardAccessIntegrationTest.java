@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.integration;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.engine.ShardedSessionFactoryImplementor;
+import org.hibernate.shards.loadbalance.RoundRobinShardLoadBalancer;
+import org.hibernate.shards.model.Building;
+import org.hibernate.shards.session.ShardedSession;
+import org.hibernate.shards.strategy.ShardStrategy;
+import org.hibernate.shards.strategy.ShardStrategyFactory;
+import org.hibernate.shards.strategy.ShardStrategyImpl;
+import org.hibernate.shards.strategy.access.HedgedShardAccessStrategy;
+import org.hibernate.shards.strategy.access.ShardAccessStrategy;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.resolution.AllShardsShardResolutionStrategy;
+import org.hibernate.shards.strategy.selection.RoundRobinShardSelectionStrategy;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hibernate.shards.integration.model.ModelDataFactory.building;
+
+/**
+ * Runs real criteria and gets through a {@link HedgedShardAccessStrategy}
+ * that hedges right away, against replicas that answer faster than the
+ * shards themselves.
+ */
+public class HedgedShardAccessIntegrationTest extends BaseShardingIntegrationTestCase {
+
+    // the strategy the shard strategy delegates to, the replicas are only known once the factory is built
+    private final DelegatingShardAccessStrategy accessStrategy = new DelegatingShardAccessStrategy();
+
+    public HedgedShardAccessIntegrationTest() {
+        super(Permutation.DEFAULT);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // every shard is its own replica, but sessions on the replica are
+        // opened without the slow interceptor, so the hedge always wins
+        final Map<ShardId, SessionFactoryImplementor> replicas = Maps.newHashMap();
+        for (final Map.Entry<SessionFactoryImplementor, Set<ShardId>> entry
+                : ((ShardedSessionFactoryImplementor) sf).getSessionFactoryShardIdMap().entrySet()) {
+            for (final ShardId shardId : entry.getValue()) {
+                replicas.put(shardId, entry.getKey());
+            }
+        }
+        executor = new ThreadPoolExecutor(10, 10, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        accessStrategy.delegate = new HedgedShardAccessStrategy(executor, replicas, 0.95, 0);
+    }
+
+    @Override
+    protected ShardStrategyFactory buildShardStrategyFactory() {
+        return new ShardStrategyFactory() {
+            public ShardStrategy newShardStrategy(final List<ShardId> shardIds) {
+                return new ShardStrategyImpl(
+                        new RoundRobinShardSelectionStrategy(new RoundRobinShardLoadBalancer(shardIds)),
+                        new AllShardsShardResolutionStrategy(shardIds),
+                        accessStrategy);
+            }
+        };
+    }
+
+    @Test
+    public void testRestrictedOrderedCriteria() {
+        session.beginTransaction();
+        for (final String name : new String[]{"a", "b", "c", "d", "e", "f"}) {
+            session.save(building(name));
+        }
+        session.getTransaction().commit();
+
+        final ShardedSession slowSession = sf.openSession(new SlowInterceptor());
+        try {
+            final List<?> buildings = slowSession.createCriteria(Building.class)
+                    .add(Restrictions.in("name", Lists.newArrayList("b", "c", "e")))
+                    .addOrder(Order.desc("name"))
+                    .list();
+            final List<String> names = Lists.newArrayList();
+            for (final Object b : buildings) {
+                names.add(((Building) b).getName());
+            }
+            Assert.assertEquals(Lists.newArrayList("e", "c", "b"), names);
+        } finally {
+            slowSession.close();
+        }
+    }
+
+    @Test
+    public void testGetIsHedged() {
+        session.beginTransaction();
+        final Building b = building("yam");
+        session.save(b);
+        session.getTransaction().commit();
+
+        final ShardedSession slowSession = sf.openSession(new SlowInterceptor());
+        try {
+            final Building reloaded = (Building) slowSession.get(Building.class, b.getBuildingId());
+            Assert.assertEquals("yam", reloaded.getName());
+            // read from a replica session, which is closed right away
+            Assert.assertFalse(slowSession.contains(reloaded));
+        } finally {
+            slowSession.close();
+        }
+    }
+
+    /**
+     * Makes every statement against the shards take a while.
+     */
+    private static class SlowInterceptor extends EmptyInterceptor {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String onPrepareStatement(final String sql) {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return sql;
+        }
+    }
+
+    private static class DelegatingShardAccessStrategy implements ShardAccessStrategy {
+
+        private volatile ShardAccessStrategy delegate;
+
+        @Override
+        public <T> T apply(final List<Shard> shards,
+                           final ShardOperation<T> operation,
+                           final ExitStrategy<T> exitStrategy,
+                           final ExitOperationsCollector exitOperationsCollector) {
+            return delegate.apply(shards, operation, exitStrategy, exitOperationsCollector);
+        }
+    }
+}
@@ -19,16 +19,21 @@
 package org.hibernate.shards.integration.model;
 
 import org.hibernate.Criteria;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.shards.PermutationHelper;
+import org.hibernate.shards.criteria.ShardedCriteria;
+import org.hibernate.shards.criteria.ShardedProjections;
 import org.hibernate.shards.integration.BaseShardingIntegrationTestCase;
 import org.hibernate.shards.integration.Permutation;
 import org.hibernate.shards.model.Building;
 import org.hibernate.shards.model.Floor;
 import org.hibernate.shards.model.Office;
+import org.hibernate.shards.strategy.exit.PartialResult;
 import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Sets;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -36,6 +41,8 @@ import org.junit.runners.Parameterized;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author maxr@google.com (Max Ross)
@@ -297,6 +304,80 @@ public class ModelCriteriaPermutedIntegrationTest extends BaseShardingIntegratio
         Assert.assertEquals(b2, buildings.get(1));
     }
 
+    @Test
+    public void testScrollWithFirstAndMaxResults() {
+        Building b3 = ModelDataFactory.building("b3");
+        Building b4 = ModelDataFactory.building("b4");
+        Building b5 = ModelDataFactory.building("b5");
+        session.beginTransaction();
+        session.save(b5);
+        session.save(b3);
+        session.save(b4);
+        commitAndResetSession();
+
+        final ScrollableResults results = session.createCriteria(Building.class)
+                .addOrder(Order.desc("name"))
+                .setFirstResult(1)
+                .setMaxResults(3)
+                .scroll();
+        try {
+            final List<Building> buildings = Lists.newArrayList();
+            while (results.next()) {
+                buildings.add((Building) results.get(0));
+            }
+            Assert.assertEquals(Lists.newArrayList(b4, b3, b2), buildings);
+        } finally {
+            results.close();
+        }
+    }
+
+    @Test
+    public void testSeekAfter() {
+        Building b3 = ModelDataFactory.building("b3");
+        Building b4 = ModelDataFactory.building("b4");
+        Building b5 = ModelDataFactory.building("b5");
+        session.beginTransaction();
+        session.save(b5);
+        session.save(b3);
+        session.save(b4);
+        commitAndResetSession();
+
+        ShardedCriteria crit = (ShardedCriteria) session.createCriteria(Building.class)
+                .addOrder(Order.asc("name"))
+                .setMaxResults(2);
+        List<?> page = crit.list();
+        Assert.assertEquals(Lists.newArrayList(b1, b2), page);
+
+        crit = (ShardedCriteria) session.createCriteria(Building.class)
+                .addOrder(Order.asc("name"))
+                .setMaxResults(2);
+        page = crit.seekAfter(((Building) page.get(1)).getName()).list();
+        Assert.assertEquals(Lists.newArrayList(b3, b4), page);
+
+        crit = (ShardedCriteria) session.createCriteria(Building.class)
+                .addOrder(Order.asc("name"))
+                .setMaxResults(2);
+        page = crit.seekAfter(((Building) page.get(1)).getName()).list();
+        Assert.assertEquals(Lists.newArrayList(b5), page);
+    }
+
+    @Test
+    public void testListAsync() throws Exception {
+        final ShardedCriteria crit = (ShardedCriteria) session.createCriteria(Building.class)
+                .addOrder(Order.asc("name"));
+        final Future<List<Object>> buildings = crit.listAsync();
+        Assert.assertEquals(Lists.<Object>newArrayList(b1, b2), buildings.get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testListPartial() {
+        final ShardedCriteria crit = (ShardedCriteria) session.createCriteria(Building.class)
+                .addOrder(Order.asc("name"));
+        final PartialResult<List<Object>> buildings = crit.listPartial();
+        Assert.assertTrue(buildings.isComplete());
+        Assert.assertEquals(Lists.<Object>newArrayList(b1, b2), buildings.getResult());
+    }
+
     @Test
     public void testFirstAndMaxResultsWithSubCrit() {
         Building b3 = ModelDataFactory.building("b3");
@@ -327,9 +408,110 @@ public class ModelCriteriaPermutedIntegrationTest extends BaseShardingIntegratio
     @Test
     public void testAggregateProjection() throws Exception {
         final Criteria criteria = session.createCriteria(Floor.class).setProjection(Projections.sum("number"));
-        final List<BigDecimal> l = list(criteria);
+        final List<Long> l = list(criteria);
+        Assert.assertEquals(1, l.size());
+        Assert.assertEquals(Long.valueOf(7), l.get(0));
+    }
+
+    @Test
+    public void testDistinctProjection() {
+        final Criteria criteria = session.createCriteria(Floor.class)
+                .setProjection(Projections.distinct(Projections.property("number")));
+        final List<Integer> numbers = list(criteria);
+        Assert.assertEquals(3, numbers.size());
+        Assert.assertEquals(Sets.newHashSet(1, 2, 3), Sets.newHashSet(numbers));
+    }
+
+    @Test
+    public void testOrderedDistinctProjection() {
+        final Criteria criteria = session.createCriteria(Floor.class)
+                .setProjection(Projections.distinct(Projections.projectionList()
+                        .add(Projections.property("number"))
+                        .add(Projections.property("squareFeet"))))
+                .addOrder(Order.desc("number"))
+                .addOrder(Order.asc("squareFeet"))
+                .setMaxResults(3);
+        final List<Object[]> rows = list(criteria);
+        Assert.assertEquals(3, rows.size());
+        Assert.assertEquals(3, rows.get(0)[0]);
+        Assert.assertEquals(2, rows.get(1)[0]);
+        Assert.assertEquals(1, rows.get(2)[0]);
+        Assert.assertEquals(0, BigDecimal.TEN.compareTo((BigDecimal) rows.get(2)[1]));
+    }
+
+    @Test
+    public void testGroupedProjection() {
+        final Criteria criteria = session.createCriteria(Floor.class)
+                .setProjection(Projections.projectionList()
+                        .add(Projections.groupProperty("number"))
+                        .add(Projections.rowCount(), "floors")
+                        .add(Projections.sum("squareFeet"))
+                        .add(Projections.avg("squareFeet"))
+                        .add(Projections.max("squareFeet")))
+                .addOrder(Order.asc("number"))
+                .setMaxResults(2);
+        final List<Object[]> rows = list(criteria);
+        Assert.assertEquals(2, rows.size());
+
+        final Object[] first = rows.get(0);
+        Assert.assertEquals(1, first[0]);
+        Assert.assertEquals(2L, ((Number) first[1]).longValue());
+        Assert.assertEquals(0, new BigDecimal(30).compareTo((BigDecimal) first[2]));
+        Assert.assertEquals(15.0, (Double) first[3], 0.0001);
+        Assert.assertEquals(0, new BigDecimal(20).compareTo((BigDecimal) first[4]));
+
+        final Object[] second = rows.get(1);
+        Assert.assertEquals(2, second[0]);
+        Assert.assertEquals(1L, ((Number) second[1]).longValue());
+    }
+
+    @Test
+    public void testGroupedProjectionOrderedByAggregate() {
+        final Criteria criteria = session.createCriteria(Office.class)
+                .setProjection(Projections.projectionList()
+                        .add(Projections.groupProperty("label"))
+                        .add(Projections.rowCount(), "offices"))
+                .addOrder(Order.desc("offices"));
+        final List<Object[]> rows = list(criteria);
+        Assert.assertEquals(2, rows.size());
+        Assert.assertEquals("LAHGE", rows.get(0)[0]);
+        Assert.assertEquals(2L, ((Number) rows.get(0)[1]).longValue());
+        Assert.assertEquals("NOT LAHGE", rows.get(1)[0]);
+    }
+
+    @Test
+    public void testAggregateProjectionList() {
+        final Criteria criteria = session.createCriteria(Floor.class)
+                .setProjection(Projections.projectionList()
+                        .add(Projections.sum("number"))
+                        .add(Projections.max("squareFeet"))
+                        .add(Projections.rowCount())
+                        .add(Projections.avg("squareFeet")));
+        final List<Object[]> rows = list(criteria);
+        Assert.assertEquals(1, rows.size());
+        final Object[] row = rows.get(0);
+        Assert.assertEquals(7L, ((Number) row[0]).longValue());
+        Assert.assertEquals(0, new BigDecimal(30).compareTo((BigDecimal) row[1]));
+        Assert.assertEquals(4L, ((Number) row[2]).longValue());
+        Assert.assertEquals(20.0, (Double) row[3], 0.0001);
+    }
+
+    @Test
+    public void testApproximateCountDistinct() throws Exception {
+        final Criteria criteria = session.createCriteria(Floor.class)
+                .setProjection(ShardedProjections.approxCountDistinct("number"));
+        final List<Long> l = list(criteria);
+        Assert.assertEquals(1, l.size());
+        Assert.assertEquals(Long.valueOf(3), l.get(0));
+    }
+
+    @Test
+    public void testApproximatePercentile() throws Exception {
+        final Criteria criteria = session.createCriteria(Floor.class)
+                .setProjection(ShardedProjections.approxPercentile("squareFeet", 0.5));
+        final List<Double> l = list(criteria);
         Assert.assertEquals(1, l.size());
-        Assert.assertEquals(BigDecimal.valueOf(7), l.get(0));
+        Assert.assertEquals(20.0, l.get(0), 0.0001);
     }
 
     @Test
@@ -348,9 +530,9 @@ public class ModelCriteriaPermutedIntegrationTest extends BaseShardingIntegratio
                 .setFirstResult(2)
                 .setMaxResults(3)
                 .setProjection(Projections.sum("number"));
-        final List<BigDecimal> results = list(criteria);
+        final List<Long> results = list(criteria);
         Assert.assertEquals(1, results.size());
-        Assert.assertEquals(BigDecimal.valueOf(204), results.get(0));
+        Assert.assertEquals(Long.valueOf(204), results.get(0));
     }
 
     @Test
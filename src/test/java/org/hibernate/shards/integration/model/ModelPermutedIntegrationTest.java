@@ -53,6 +53,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -174,6 +176,74 @@ public class ModelPermutedIntegrationTest extends BaseShardingIntegrationTestCas
         }
     }
 
+    @Test
+    public void testGetAll() {
+        session.beginTransaction();
+        final List<Building> buildings = Lists.newArrayList();
+        for (int i = 0; i < getNumShards() * 2; i++) {
+            final Building b = building("building" + i);
+            session.save(b);
+            buildings.add(b);
+        }
+        commitAndResetSession();
+        session.beginTransaction();
+        final Building deleted = reloadAssertNotNull(buildings.get(0));
+        session.delete(deleted);
+        commitAndResetSession();
+
+        // reverse order, a duplicate and a missing id
+        final List<Serializable> ids = Lists.newArrayList();
+        for (int i = buildings.size() - 1; i >= 0; i--) {
+            ids.add(buildings.get(i).getBuildingId());
+        }
+        ids.add(buildings.get(1).getBuildingId());
+        final List<Object> results = session.getAll(Building.class, ids);
+        assertEquals(ids.size(), results.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i).equals(deleted.getBuildingId())) {
+                Assert.assertNull(results.get(i));
+            } else {
+                final Building b = (Building) results.get(i);
+                assertEquals(ids.get(i), b.getBuildingId());
+                assertEquals(b.getShardId(), getShardIdForObject(b));
+            }
+        }
+        Assert.assertSame(results.get(buildings.size() - 2), results.get(buildings.size()));
+        Assert.assertTrue(session.getAll(Building.class, Collections.<Serializable>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testGetAllWithIdsOfAnotherNumericType() {
+        session.beginTransaction();
+        final List<Building> buildings = Lists.newArrayList();
+        for (int i = 0; i < getNumShards() * 2; i++) {
+            final Building b = building("building" + i);
+            session.save(b);
+            buildings.add(b);
+        }
+        commitAndResetSession();
+
+        // Integers for long ids, BigDecimals for big_integer ones
+        final List<Serializable> ids = Lists.newArrayList();
+        for (final Building b : buildings) {
+            final Serializable id = b.getBuildingId();
+            if (id instanceof Long) {
+                ids.add(((Long) id).intValue());
+            } else {
+                ids.add(new BigDecimal((BigInteger) id));
+            }
+            assertFalse(id.getClass() == ids.get(ids.size() - 1).getClass());
+        }
+        final List<Object> results = session.getAll(Building.class, ids);
+        assertEquals(buildings.size(), results.size());
+        for (int i = 0; i < buildings.size(); i++) {
+            final Building b = (Building) results.get(i);
+            assertNotNull(b);
+            assertEquals(buildings.get(i).getBuildingId(), b.getBuildingId());
+            assertEquals(b.getShardId(), getShardIdForObject(b));
+        }
+    }
+
     @Test
     public void testSaveOrUpdateAttached() {
         session.beginTransaction();
@@ -22,6 +22,7 @@ import static org.junit.Assert.*;
 
 import org.hibernate.Query;
 import org.hibernate.QueryException;
+import org.hibernate.ScrollableResults;
 import org.hibernate.shards.integration.BaseShardingIntegrationTestCase;
 import org.hibernate.shards.integration.Permutation;
 import org.hibernate.shards.PermutationHelper;
@@ -35,6 +36,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -184,6 +186,45 @@ public class ModelQueryPermutedIntegrationTest extends BaseShardingIntegrationTe
         assertEquals(2, floors.size());
     }
 
+    @Test
+    public void testSetFirstResultAndMaxResults() {
+        final String queryString = "select f from Floor as f";
+        final Query query = session.createQuery(queryString).setMaxResults(2).setFirstResult(1);
+        @SuppressWarnings("unchecked")
+        List<Floor> floors = query.list();
+        assertEquals(2, floors.size());
+        @SuppressWarnings("unchecked")
+        List<Floor> allFloors = session.createQuery(queryString).list();
+        assertTrue(allFloors.containsAll(floors));
+    }
+
+    @Test
+    public void testIterate() {
+        final String queryString = "select f from Floor as f";
+        final Iterator<?> iterator = session.createQuery(queryString).setMaxResults(3).iterate();
+        final List<Floor> floors = Lists.newArrayList();
+        while (iterator.hasNext()) {
+            floors.add((Floor) iterator.next());
+        }
+        assertEquals(3, floors.size());
+        assertTrue(Lists.newArrayList(b1f1, b1f2, b1f3, b2f1).containsAll(floors));
+    }
+
+    @Test
+    public void testScroll() {
+        final String queryString = "select f from Floor as f";
+        final ScrollableResults results = session.createQuery(queryString).setFirstResult(1).scroll();
+        try {
+            final List<Floor> floors = Lists.newArrayList();
+            while (results.next()) {
+                floors.add((Floor) results.get(0));
+            }
+            assertEquals(3, floors.size());
+        } finally {
+            results.close();
+        }
+    }
+
     @Test
     @Ignore
     public void testAggregating() {
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.query;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.util.Lists;
+import org.junit.Test;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedIteratorTest {
+
+    @Test
+    public void testShardsAreIteratedLazily() {
+        final Shard shard1 = new ShardDefaultMock();
+        final Shard shard2 = new ShardDefaultMock();
+        final Shard shard3 = new ShardDefaultMock();
+        final RecordingOperation operation = new RecordingOperation();
+        operation.rows.put(shard1, Lists.<Object>newArrayList(1, 2));
+        operation.rows.put(shard2, Lists.<Object>newArrayList());
+        operation.rows.put(shard3, Lists.<Object>newArrayList(3));
+
+        final Iterator<?> iterator = new ShardedIterator(Lists.newArrayList(shard1, shard2, shard3), operation, 0, null);
+        assertEquals(1, iterator.next());
+        assertEquals(2, iterator.next());
+        assertEquals(Lists.newArrayList(shard1), operation.opened);
+
+        assertTrue(iterator.hasNext());
+        assertEquals(Lists.newArrayList(shard1, shard2, shard3), operation.opened);
+        assertEquals(3, iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testFirstAndMaxResults() {
+        final Shard shard1 = new ShardDefaultMock();
+        final Shard shard2 = new ShardDefaultMock();
+        final Shard shard3 = new ShardDefaultMock();
+        final RecordingOperation operation = new RecordingOperation();
+        operation.rows.put(shard1, Lists.<Object>newArrayList(1, 2));
+        operation.rows.put(shard2, Lists.<Object>newArrayList(3, 4));
+        operation.rows.put(shard3, Lists.<Object>newArrayList(5));
+
+        final Iterator<?> iterator = new ShardedIterator(Lists.newArrayList(shard1, shard2, shard3), operation, 1, 2);
+        final List<Object> results = Lists.newArrayList();
+        while (iterator.hasNext()) {
+            results.add(iterator.next());
+        }
+        assertEquals(Lists.<Object>newArrayList(2, 3), results);
+        assertEquals(Lists.newArrayList(shard1, shard2), operation.opened);
+    }
+
+    @Test
+    public void testClose() {
+        final Shard shard1 = new ShardDefaultMock();
+        final Shard shard2 = new ShardDefaultMock();
+        final RecordingOperation operation = new RecordingOperation();
+        operation.rows.put(shard1, Lists.<Object>newArrayList(1, 2));
+        operation.rows.put(shard2, Lists.<Object>newArrayList(3));
+
+        final ShardedIterator iterator = new ShardedIterator(Lists.newArrayList(shard1, shard2), operation, 0, null);
+        assertEquals(1, iterator.next());
+        iterator.close();
+        assertFalse(iterator.hasNext());
+        assertEquals(Lists.newArrayList(shard1), operation.opened);
+    }
+
+    private static class RecordingOperation implements ShardOperation<Iterator<Object>> {
+
+        private final Map<Shard, List<Object>> rows = new IdentityHashMap<Shard, List<Object>>();
+        private final List<Shard> opened = Lists.newArrayList();
+
+        @Override
+        public Iterator<Object> execute(final Shard shard) {
+            opened.add(shard);
+            return rows.get(shard).iterator();
+        }
+
+        @Override
+        public String getOperationName() {
+            return "iterate()";
+        }
+    }
+}
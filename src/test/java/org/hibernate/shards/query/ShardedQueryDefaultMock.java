@@ -26,6 +26,7 @@ import org.hibernate.LockOptions;
 import org.hibernate.Query;
 import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
+import org.hibernate.shards.strategy.exit.PartialResult;
 import org.hibernate.transform.ResultTransformer;
 import org.hibernate.type.Type;
 
@@ -39,6 +40,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * @author Maulik Shah
@@ -50,6 +52,21 @@ public class ShardedQueryDefaultMock implements ShardedQuery {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Future<List<Object>> listAsync() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PartialResult<List<Object>> listPartial() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Future<Object> uniqueResultAsync() {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public QueryFactory getQueryFactory() {
         throw new UnsupportedOperationException();
@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.query;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.defaultmock.ScrollableResultsDefaultMock;
+import org.hibernate.shards.util.Lists;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedScrollableResultsTest {
+
+    private static final Comparator<Object> NATURAL_ORDER = new Comparator<Object>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(final Object o1, final Object o2) {
+            return ((Comparable<Object>) o1).compareTo(o2);
+        }
+    };
+
+    @Test
+    public void testConcatenateOpensShardsLazily() {
+        final Shard shard1 = new ShardDefaultMock();
+        final Shard shard2 = new ShardDefaultMock();
+        final RecordingOperation operation = new RecordingOperation();
+        operation.rows.put(shard1, Lists.<Object>newArrayList(1, 2));
+        operation.rows.put(shard2, Lists.<Object>newArrayList(3));
+
+        final ScrollableResults results =
+                new ShardedScrollableResults(Lists.newArrayList(shard1, shard2), operation, null, 0, null);
+        assertTrue(results.next());
+        assertEquals(1, results.get(0));
+        assertTrue(results.isFirst());
+        assertTrue(results.next());
+        assertEquals(2, results.get(0));
+        assertEquals(Lists.newArrayList(shard1), operation.opened);
+
+        assertTrue(results.next());
+        assertEquals(3, results.get(0));
+        assertEquals(2, results.getRowNumber());
+        assertEquals(Lists.newArrayList(shard1, shard2), operation.opened);
+        assertFalse(results.next());
+        results.close();
+    }
+
+    @Test
+    public void testMerge() {
+        final Shard shard1 = new ShardDefaultMock();
+        final Shard shard2 = new ShardDefaultMock();
+        final Shard shard3 = new ShardDefaultMock();
+        final RecordingOperation operation = new RecordingOperation();
+        operation.rows.put(shard1, Lists.<Object>newArrayList(1, 4, 6));
+        operation.rows.put(shard2, Lists.<Object>newArrayList());
+        operation.rows.put(shard3, Lists.<Object>newArrayList(2, 3, 5));
+
+        final ScrollableResults results = new ShardedScrollableResults(
+                Lists.newArrayList(shard1, shard2, shard3), operation, NATURAL_ORDER, 0, null);
+        assertEquals(Lists.<Object>newArrayList(1, 2, 3, 4, 5, 6), drain(results));
+    }
+
+    @Test
+    public void testFirstAndMaxResults() {
+        final Shard shard1 = new ShardDefaultMock();
+        final Shard shard2 = new ShardDefaultMock();
+        final RecordingOperation operation = new RecordingOperation();
+        operation.rows.put(shard1, Lists.<Object>newArrayList(1, 3, 5));
+        operation.rows.put(shard2, Lists.<Object>newArrayList(2, 4, 6));
+
+        final ScrollableResults results = new ShardedScrollableResults(
+                Lists.newArrayList(shard1, shard2), operation, NATURAL_ORDER, 2, 3);
+        assertEquals(Lists.<Object>newArrayList(3, 4, 5), drain(results));
+    }
+
+    @Test
+    public void testScroll() {
+        final Shard shard1 = new ShardDefaultMock();
+        final RecordingOperation operation = new RecordingOperation();
+        operation.rows.put(shard1, Lists.<Object>newArrayList(1, 2, 3));
+
+        final ScrollableResults results =
+                new ShardedScrollableResults(Lists.newArrayList(shard1), operation, null, 0, null);
+        assertTrue(results.scroll(2));
+        assertEquals(2, results.get(0));
+        assertFalse(results.scroll(2));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPrevious() {
+        new ShardedScrollableResults(Lists.<Shard>newArrayList(), new RecordingOperation(), null, 0, null).previous();
+    }
+
+    private static List<Object> drain(final ScrollableResults results) {
+        final List<Object> rows = Lists.newArrayList();
+        while (results.next()) {
+            rows.add(results.get(0));
+        }
+        results.close();
+        return rows;
+    }
+
+    private static class ListScrollableResults extends ScrollableResultsDefaultMock {
+
+        private final List<Object> rows;
+        private int position = -1;
+
+        ListScrollableResults(final List<Object> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean next() {
+            return ++position < rows.size();
+        }
+
+        @Override
+        public Object get(final int i) {
+            return rows.get(position);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class RecordingOperation implements ShardOperation<ScrollableResults> {
+
+        private final Map<Shard, List<Object>> rows = new IdentityHashMap<Shard, List<Object>>();
+        private final List<Shard> opened = Lists.newArrayList();
+
+        @Override
+        public ScrollableResults execute(final Shard shard) {
+            opened.add(shard);
+            return new ListScrollableResults(rows.get(shard));
+        }
+
+        @Override
+        public String getOperationName() {
+            return "scroll()";
+        }
+    }
+}
@@ -27,11 +27,16 @@ import org.hibernate.cfg.Settings;
 import org.hibernate.engine.SessionFactoryImplementor;
 import org.hibernate.metadata.ClassMetadata;
 import org.hibernate.shards.ShardId;
+import org.hibernate.shards.cfg.ShardedEnvironment;
 import org.hibernate.shards.defaultmock.SessionFactoryDefaultMock;
+import org.hibernate.shards.strategy.ExecutorAwareShardStrategyFactory;
 import org.hibernate.shards.strategy.ShardStrategy;
 import org.hibernate.shards.strategy.ShardStrategyDefaultMock;
 import org.hibernate.shards.strategy.ShardStrategyFactory;
 import org.hibernate.shards.strategy.ShardStrategyFactoryDefaultMock;
+import org.hibernate.shards.strategy.access.BulkheadShardExecutor;
+import org.hibernate.shards.strategy.access.ShardExecutor;
+import org.hibernate.shards.util.Lists;
 import org.hibernate.shards.util.Maps;
 import org.hibernate.shards.util.Sets;
 
@@ -70,6 +75,13 @@ public class ShardedSessionFactoryImplTest extends TestCase {
             public Map<String, ClassMetadata> getAllClassMetadata() throws HibernateException {
                 return Collections.emptyMap();
             }
+
+            @Override
+            public Properties getProperties() {
+                Properties prop = new Properties();
+                prop.setProperty(ShardedEnvironment.EXECUTOR_MAX_THREADS, "2");
+                return prop;
+            }
         };
         shardId = new ShardId(1);
     }
@@ -346,6 +358,56 @@ public class ShardedSessionFactoryImplTest extends TestCase {
         assertFalse(closeCalled[0]);
     }
 
+    public void testExecutorAwareShardStrategyFactory() {
+        final List<ShardExecutor> executors = Lists.newArrayList();
+        ShardStrategyFactory shardStrategyFactory = new ExecutorAwareShardStrategyFactory() {
+            public ShardStrategy newShardStrategy(List<ShardId> shardIds, ShardExecutor executor) {
+                executors.add(executor);
+                return new ShardStrategyDefaultMock();
+            }
+
+            public ShardStrategy newShardStrategy(List<ShardId> shardIds) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        Map<SessionFactoryImplementor, Set<ShardId>> sfMap = Maps.newHashMap();
+        sfMap.put(sf, Sets.newHashSet(shardId));
+
+        ShardedSessionFactoryImpl ssf =
+                new ShardedSessionFactoryImpl(
+                        sfMap,
+                        shardStrategyFactory,
+                        Collections.<Class<?>>emptySet(),
+                        false);
+        BulkheadShardExecutor executor = ssf.getShardExecutor();
+        assertNotNull(executor);
+        assertEquals(Collections.singletonList(executor), executors);
+
+        // a subset shares the executor but doesn't shut it down
+        ShardedSessionFactoryImpl subset = (ShardedSessionFactoryImpl)
+                ssf.getSessionFactory(Collections.singletonList(shardId), shardStrategyFactory);
+        assertSame(executor, subset.getShardExecutor());
+        assertSame(executor, executors.get(1));
+        subset.close();
+        assertFalse(executor.isShutdown());
+
+        ssf.close();
+        assertTrue(executor.isShutdown());
+    }
+
+    public void testWithoutExecutorAwareShardStrategyFactory() {
+        Map<SessionFactoryImplementor, Set<ShardId>> sfMap = Maps.newHashMap();
+        sfMap.put(sf, Sets.newHashSet(shardId));
+        ShardedSessionFactoryImpl ssf =
+                new ShardedSessionFactoryImpl(
+                        sfMap,
+                        buildStrategyFactoryDefaultMock(),
+                        Collections.<Class<?>>emptySet(),
+                        false);
+        assertNull(ssf.getShardExecutor());
+        ssf.close();
+    }
+
     public void testFailsWhenMultipleSessionFactoriesHaveSameShardId() {
         Map<SessionFactoryImplementor, Set<ShardId>> sfMap = Maps.newHashMap();
         Set<Class<?>> crsl = Collections.emptySet();
@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.session;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Interceptor;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+import org.hibernate.cfg.Settings;
+import org.hibernate.classic.Session;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.ShardedSessionFactoryDefaultMock;
+import org.hibernate.shards.defaultmock.SessionDefaultMock;
+import org.hibernate.shards.defaultmock.SessionFactoryDefaultMock;
+import org.hibernate.shards.strategy.ShardStrategyDefaultMock;
+import org.hibernate.shards.strategy.access.ParallelShardAccessStrategy;
+import org.hibernate.shards.strategy.access.SequentialShardAccessStrategy;
+import org.hibernate.shards.strategy.access.ShardAccessStrategy;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.resolution.ShardResolutionStrategy;
+import org.hibernate.shards.strategy.selection.ShardResolutionStrategyData;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Maps;
+import org.hibernate.shards.util.Sets;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a get() that resolves to a single shard skips the shard access
+ * strategy, and measures what that saves in allocations.  Also checks that
+ * gets index the shard of what they load.
+ */
+public class SingleShardGetTest {
+
+    private static final int WARMUP_GETS = 20000;
+
+    private static final int MEASURED_GETS = 100000;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final Object entity = new Object();
+
+    private final EntitySessionFactory sessionFactory0 = new EntitySessionFactory("0");
+
+    private final EntitySessionFactory sessionFactory1 = new EntitySessionFactory("1");
+
+    @Test
+    public void testSingleShardGetSkipsAccessStrategy() {
+        final CountingSequentialShardAccessStrategy accessStrategy = new CountingSequentialShardAccessStrategy(true);
+        final ShardedSessionImpl session = newSession(accessStrategy, Collections.singletonList(new ShardId(0)));
+
+        assertSame(entity, session.get(Object.class, 7));
+        assertSame(entity, session.get(Object.class.getName(), 7));
+        assertEquals(0, accessStrategy.applications);
+        assertEquals(new ShardId(0), session.getShardIdForObject(entity));
+    }
+
+    @Test
+    public void testSingleShardGetUsesSubclassedAccessStrategy() {
+        final CountingSequentialShardAccessStrategy accessStrategy = new CountingSequentialShardAccessStrategy(false);
+        final ShardedSessionImpl session = newSession(accessStrategy, Collections.singletonList(new ShardId(0)));
+
+        assertSame(entity, session.get(Object.class, 7));
+        assertSame(entity, session.get(Object.class.getName(), 7));
+        assertEquals(2, accessStrategy.applications);
+        assertEquals(new ShardId(0), session.getShardIdForObject(entity));
+    }
+
+    @Test
+    public void testMultiShardGetUsesAccessStrategy() {
+        final CountingSequentialShardAccessStrategy accessStrategy = new CountingSequentialShardAccessStrategy(true);
+        final ShardedSessionImpl session =
+                newSession(accessStrategy, Lists.newArrayList(new ShardId(0), new ShardId(1)));
+
+        assertSame(entity, session.get(Object.class, 7));
+        assertEquals(1, accessStrategy.applications);
+    }
+
+    @Test
+    public void testAsyncGetIndexesResult() throws Exception {
+        final ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(2, 2, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        try {
+            final ShardedSessionImpl session = newSession(
+                    new ParallelShardAccessStrategy(executor), Collections.singletonList(new ShardId(1)));
+            // both sessions are open, and would both claim the entity if asked
+            for (final Shard shard : session.getShards()) {
+                shard.establishSession();
+            }
+
+            assertSame(entity, session.getAsync(Object.class, 7).get(30, TimeUnit.SECONDS));
+            assertEquals(new ShardId(1), session.getShardIdForObject(entity));
+            // found through the index rather than by asking every shard's session in turn
+            assertEquals(0, sessionFactory0.containsCalls);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSingleShardGetAllocations() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        final List<ShardId> shardIds = Collections.singletonList(new ShardId(0));
+        final ShardedSessionImpl inlineSession = newSession(new SequentialShardAccessStrategy(), shardIds);
+        final ShardedSessionImpl delegatingSession = newSession(new DelegatingShardAccessStrategy(), shardIds);
+
+        final long inlineBytes = allocatedBytesPerGet(inlineSession);
+        final long delegatingBytes = allocatedBytesPerGet(delegatingSession);
+        log.info(String.format("Single shard get() allocates %d bytes inline, %d bytes through the access strategy",
+                inlineBytes, delegatingBytes));
+        assertTrue(inlineBytes < delegatingBytes);
+    }
+
+    private long allocatedBytesPerGet(final ShardedSessionImpl session) {
+        final com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_GETS; i++) {
+            session.get(Object.class, 7);
+        }
+        final long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_GETS; i++) {
+            session.get(Object.class, 7);
+        }
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - before) / MEASURED_GETS;
+    }
+
+    /**
+     * Builds a session on two physical shards whose get() always returns our
+     * entity, resolving every id to the given shards.
+     */
+    private ShardedSessionImpl newSession(final ShardAccessStrategy accessStrategy, final List<ShardId> resolvedShardIds) {
+        // linked so the session lists shard 0 first
+        final Map<SessionFactoryImplementor, Set<ShardId>> sessionFactoryShardIdMap = Maps.newLinkedHashMap();
+        sessionFactoryShardIdMap.put(sessionFactory0, Sets.newHashSet(new ShardId(0)));
+        sessionFactoryShardIdMap.put(sessionFactory1, Sets.newHashSet(new ShardId(1)));
+
+        final ShardedSessionFactoryDefaultMock sessionFactory = new ShardedSessionFactoryDefaultMock() {
+            @Override
+            public Map<SessionFactoryImplementor, Set<ShardId>> getSessionFactoryShardIdMap() {
+                return sessionFactoryShardIdMap;
+            }
+
+            @Override
+            public IdentifierGenerator getIdentifierGenerator(final String rootEntityName) {
+                return null;
+            }
+        };
+        final ShardStrategyDefaultMock shardStrategy = new ShardStrategyDefaultMock() {
+            @Override
+            public ShardAccessStrategy getShardAccessStrategy() {
+                return accessStrategy;
+            }
+
+            @Override
+            public ShardResolutionStrategy getShardResolutionStrategy() {
+                return new ShardResolutionStrategy() {
+                    @Override
+                    public List<ShardId> selectShardIdsFromShardResolutionStrategyData(
+                            final ShardResolutionStrategyData shardResolutionStrategyData) {
+                        return resolvedShardIds;
+                    }
+                };
+            }
+        };
+        return new ShardedSessionImpl(sessionFactory, shardStrategy, Collections.<Class<?>>emptySet(), false);
+    }
+
+    private class EntitySessionFactory extends SessionFactoryDefaultMock {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Settings settings;
+
+        private int containsCalls;
+
+        EntitySessionFactory(final String name) {
+            final Properties properties = new Properties();
+            properties.setProperty(Environment.SESSION_FACTORY_NAME, name);
+            properties.setProperty(Environment.DIALECT, "org.hibernate.dialect.HSQLDialect");
+            settings = new Configuration().buildSettings(properties);
+        }
+
+        @Override
+        public Settings getSettings() {
+            return settings;
+        }
+
+        @Override
+        public Session openSession(final Interceptor interceptor) throws HibernateException {
+            return new SessionDefaultMock() {
+                @Override
+                @SuppressWarnings("rawtypes")
+                public Object get(final Class clazz, final Serializable id) {
+                    return entity;
+                }
+
+                @Override
+                public Object get(final String entityName, final Serializable id) {
+                    return entity;
+                }
+
+                @Override
+                public boolean contains(final Object object) {
+                    containsCalls++;
+                    return object == entity;
+                }
+            };
+        }
+    }
+
+    private static class CountingSequentialShardAccessStrategy extends SequentialShardAccessStrategy {
+
+        private final boolean inline;
+
+        private int applications;
+
+        CountingSequentialShardAccessStrategy(final boolean inline) {
+            this.inline = inline;
+        }
+
+        @Override
+        public boolean isSingleShardAccessInline() {
+            return inline;
+        }
+
+        @Override
+        public <T> T apply(final List<Shard> shards,
+                           final ShardOperation<T> operation,
+                           final ExitStrategy<T> exitStrategy,
+                           final ExitOperationsCollector exitOperationsCollector) {
+
+            applications++;
+            return super.apply(shards, operation, exitStrategy, exitOperationsCollector);
+        }
+    }
+
+    /**
+     * Same as sequential access, but not recognizable as such.
+     */
+    private static class DelegatingShardAccessStrategy implements ShardAccessStrategy {
+
+        private final ShardAccessStrategy sequentialStrategy = new SequentialShardAccessStrategy();
+
+        @Override
+        public <T> T apply(final List<Shard> shards,
+                           final ShardOperation<T> operation,
+                           final ExitStrategy<T> exitStrategy,
+                           final ExitOperationsCollector exitOperationsCollector) {
+
+            return sequentialStrategy.apply(shards, operation, exitStrategy, exitOperationsCollector);
+        }
+    }
+}
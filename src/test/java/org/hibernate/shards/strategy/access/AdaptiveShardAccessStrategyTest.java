@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.strategy.exit.ConcatenateListsExitStrategy;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.exit.FirstNonNullResultExitStrategy;
+import org.hibernate.shards.util.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveShardAccessStrategyTest {
+
+    private ThreadPoolExecutor executor;
+
+    private ParallelShardAccessStrategy parallelStrategy;
+
+    @Before
+    public void setUp() {
+        executor = new ThreadPoolExecutor(3, 3, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        parallelStrategy = new ParallelShardAccessStrategy(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSingleShardRunsInline() {
+        final AdaptiveShardAccessStrategy strategy = new AdaptiveShardAccessStrategy(parallelStrategy);
+        final List<Object> threads = strategy.apply(
+                Lists.newArrayList(newShard(0)), new ThreadOperation(), new ThreadsExitStrategy(), null);
+        assertEquals(Collections.<Object>singletonList(Thread.currentThread()), threads);
+        assertEquals(0, executor.getCompletedTaskCount());
+    }
+
+    @Test
+    public void testSubclassesAreNotBypassedUnlessTheyOptIn() {
+        assertTrue(new SequentialShardAccessStrategy().isSingleShardAccessInline());
+        assertTrue(new AdaptiveShardAccessStrategy(parallelStrategy).isSingleShardAccessInline());
+
+        // subclasses may do more in apply(), such as logging or routing
+        assertFalse(new SequentialShardAccessStrategy() {
+        }.isSingleShardAccessInline());
+        assertFalse(new AdaptiveShardAccessStrategy(parallelStrategy) {
+        }.isSingleShardAccessInline());
+
+        assertTrue(new SequentialShardAccessStrategy() {
+            @Override
+            public boolean isSingleShardAccessInline() {
+                return true;
+            }
+        }.isSingleShardAccessInline());
+    }
+
+    @Test
+    public void testFanOutRunsInParallel() {
+        final AdaptiveShardAccessStrategy strategy = new AdaptiveShardAccessStrategy(parallelStrategy);
+        final List<Object> threads = strategy.apply(
+                Lists.newArrayList(newShard(0), newShard(1)), new ThreadOperation(), new ThreadsExitStrategy(), null, 5);
+        assertEquals(2, threads.size());
+        assertFalse(threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void testFirstResultThreshold() {
+        final AdaptiveShardAccessStrategy strategy =
+                new AdaptiveShardAccessStrategy(new SequentialShardAccessStrategy(), parallelStrategy, 1, 3);
+        final List<Shard> shards = Lists.newArrayList(newShard(0), newShard(1), newShard(2));
+
+        assertTrue(strategy.isInline(shards, new FirstNonNullResultExitStrategy<List<Object>>()));
+        assertFalse(strategy.isInline(shards, new ConcatenateListsExitStrategy()));
+        shards.add(newShard(3));
+        assertFalse(strategy.isInline(shards, new FirstNonNullResultExitStrategy<List<Object>>()));
+
+        // stops at the first shard, which is the calling thread
+        shards.remove(3);
+        final List<Object> threads = strategy.apply(
+                shards, new ThreadOperation(), new FirstNonNullResultExitStrategy<List<Object>>(), null);
+        assertEquals(Collections.<Object>singletonList(Thread.currentThread()), threads);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeThreshold() {
+        new AdaptiveShardAccessStrategy(new SequentialShardAccessStrategy(), parallelStrategy, -1, 1);
+    }
+
+    private static Shard newShard(final int id) {
+        return new ShardDefaultMock() {
+            @Override
+            public Set<ShardId> getShardIds() {
+                return Collections.singleton(new ShardId(id));
+            }
+        };
+    }
+
+    private static class ThreadsExitStrategy implements ExitStrategy<List<Object>> {
+
+        private final List<Object> threads = Lists.newArrayList();
+
+        @Override
+        public synchronized boolean addResult(final List<Object> oneResult, final Shard shard) {
+            threads.addAll(oneResult);
+            return false;
+        }
+
+        @Override
+        public synchronized List<Object> compileResults(final ExitOperationsCollector exitOperationsCollector) {
+            return threads;
+        }
+    }
+
+    /**
+     * Returns the thread the operation ran on.
+     */
+    private static class ThreadOperation implements ShardOperation<List<Object>> {
+
+        @Override
+        public List<Object> execute(final Shard shard) {
+            return Collections.<Object>singletonList(Thread.currentThread());
+        }
+
+        @Override
+        public String getOperationName() {
+            return "thread()";
+        }
+    }
+}
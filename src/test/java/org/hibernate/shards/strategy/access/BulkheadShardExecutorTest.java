@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.util.Sets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkheadShardExecutorTest {
+
+    // released at the end of each test so blocked tasks don't hold on to threads
+    private CountDownLatch release;
+
+    private BulkheadShardExecutor executor;
+
+    @Before
+    public void setUp() {
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSlowShardDoesNotStarveOthers() throws Exception {
+        executor = new BulkheadShardExecutor(4, 1, 10);
+        final Shard slowShard = newShard(0);
+        final CountDownLatch slowStarted = new CountDownLatch(1);
+        final CountDownLatch slowCompleted = new CountDownLatch(2);
+        executor.execute(slowShard, new BlockingTask(slowStarted, slowCompleted));
+        executor.execute(slowShard, new BlockingTask(new CountDownLatch(1), slowCompleted));
+        assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+
+        // the second task for the slow shard waits without holding on to a thread
+        assertEquals(1, executor.getQueuedTaskCount());
+        final CountDownLatch otherCompleted = new CountDownLatch(1);
+        executor.execute(newShard(1), new CountDownTask(otherCompleted));
+        assertTrue(otherCompleted.await(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        assertTrue(slowCompleted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getQueuedTaskCount());
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        executor = new BulkheadShardExecutor(1, 1, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(2);
+        executor.execute(newShard(0), new BlockingTask(started, completed));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(newShard(0), new CountDownTask(completed));
+        assertEquals(1, executor.getQueuedTaskCount());
+
+        try {
+            // the shard is available but there is no thread and no room to wait
+            executor.execute(newShard(1), new CountDownTask(new CountDownLatch(1)));
+            fail("expected ShardAccessRejectedException");
+        } catch (ShardAccessRejectedException e) {
+            assertEquals(Collections.singletonList(new ShardId(1)), e.getRejectedShardIds());
+        }
+
+        release.countDown();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testVirtualShardsShareALimit() throws Exception {
+        executor = new BulkheadShardExecutor(4, 1, 0);
+        final CountDownLatch started = new CountDownLatch(1);
+        // two shard objects for the same physical shard, as two sessions would have
+        executor.execute(newPhysicalShard(), new BlockingTask(started, new CountDownLatch(1)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        try {
+            executor.execute(newPhysicalShard(), new CountDownTask(new CountDownLatch(1)));
+            fail("expected ShardAccessRejectedException");
+        } catch (ShardAccessRejectedException e) {
+            // good
+        }
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        executor = new BulkheadShardExecutor(1, 1, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(2);
+        executor.execute(newShard(0), new BlockingTask(started, completed));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(newShard(0), new CountDownTask(completed));
+
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        try {
+            executor.execute(newShard(1), new CountDownTask(new CountDownLatch(1)));
+            fail("expected ShardAccessRejectedException");
+        } catch (ShardAccessRejectedException e) {
+            // good
+        }
+
+        // tasks accepted before the shutdown still run
+        release.countDown();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveConcurrencyPerShard() {
+        new BulkheadShardExecutor(1, 0, 0);
+    }
+
+    private static Shard newShard(final int id) {
+        return new ShardDefaultMock() {
+            @Override
+            public Set<ShardId> getShardIds() {
+                return Collections.singleton(new ShardId(id));
+            }
+        };
+    }
+
+    private static Shard newPhysicalShard() {
+        return new ShardDefaultMock() {
+            @Override
+            public Set<ShardId> getShardIds() {
+                return Sets.newHashSet(new ShardId(0), new ShardId(1));
+            }
+        };
+    }
+
+    private static class CountDownTask implements Runnable {
+
+        private final CountDownLatch completed;
+
+        CountDownTask(final CountDownLatch completed) {
+            this.completed = completed;
+        }
+
+        @Override
+        public void run() {
+            completed.countDown();
+        }
+    }
+
+    /**
+     * Blocks until the test is over.
+     */
+    private class BlockingTask extends CountDownTask {
+
+        private final CountDownLatch started;
+
+        BlockingTask(final CountDownLatch started, final CountDownLatch completed) {
+            super(completed);
+            this.started = started;
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.run();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.HibernateException;
+import org.hibernate.shards.ReadOnlyShardOperation;
+import org.hibernate.shards.ReplicableShardOperation;
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.exit.PartialResultExitStrategy;
+import org.hibernate.shards.util.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakingShardAccessStrategyTest {
+
+    private final Shard goodShard = newShard(0);
+
+    private final Shard badShard = newShard(1);
+
+    @Test
+    public void testFailsFastOnceCircuitIsOpen() {
+        final ShardHealthTracker tracker = new ShardHealthTracker(2, 60000);
+        final CircuitBreakingShardAccessStrategy strategy =
+                new CircuitBreakingShardAccessStrategy(new SequentialShardAccessStrategy(), tracker);
+        final NameOperation operation = new NameOperation();
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                strategy.apply(Lists.newArrayList(goodShard, badShard), operation, new NamesExitStrategy(), null);
+                fail("expected HibernateException");
+            } catch (HibernateException e) {
+                // the bad shard failed
+            }
+        }
+        assertEquals(ShardHealthTracker.State.OPEN, tracker.getState(badShard));
+        assertEquals(ShardHealthTracker.State.CLOSED, tracker.getState(goodShard));
+
+        operation.executions = 0;
+        try {
+            strategy.apply(Lists.newArrayList(goodShard, badShard), operation, new NamesExitStrategy(), null);
+            fail("expected ShardUnavailableException");
+        } catch (ShardUnavailableException e) {
+            assertEquals(Collections.singletonList(new ShardId(1)), e.getUnavailableShardIds());
+        }
+        assertEquals(0, operation.executions);
+    }
+
+    @Test
+    public void testSkipsUnavailableShardsForPartialResults() {
+        final ShardHealthTracker tracker = new ShardHealthTracker(1, 60000);
+        tracker.recordFailure(tracker.tryAcquire(badShard));
+        final CircuitBreakingShardAccessStrategy strategy =
+                new CircuitBreakingShardAccessStrategy(new SequentialShardAccessStrategy(), tracker);
+        final NameOperation operation = new NameOperation();
+        final PartialNamesExitStrategy exitStrategy = new PartialNamesExitStrategy();
+
+        final String names = strategy.apply(Lists.newArrayList(goodShard, badShard), operation, exitStrategy, null, 5);
+        assertEquals("[shard 0]", names);
+        assertEquals(Collections.singletonList(badShard), exitStrategy.skippedShards);
+        assertEquals(1, operation.executions);
+    }
+
+    @Test
+    public void testFailedShardsForPartialResults() {
+        final ShardHealthTracker tracker = new ShardHealthTracker(2, 60000);
+        final CircuitBreakingShardAccessStrategy strategy =
+                new CircuitBreakingShardAccessStrategy(new SequentialShardAccessStrategy(), tracker);
+        final PartialNamesExitStrategy exitStrategy = new PartialNamesExitStrategy();
+
+        final String names = strategy.apply(
+                Lists.newArrayList(badShard, goodShard), new NameOperation(), exitStrategy, null);
+        assertEquals("[shard 0]", names);
+        assertEquals(Collections.singletonList(badShard), exitStrategy.failedShards);
+        assertTrue(exitStrategy.skippedShards.isEmpty());
+        // the failure still counts against the shard
+        strategy.apply(Lists.newArrayList(badShard), new NameOperation(), new PartialNamesExitStrategy(), null);
+        assertEquals(ShardHealthTracker.State.OPEN, tracker.getState(badShard));
+    }
+
+    @Test
+    public void testReadOnlyOperationsStayReadOnly() {
+        final ShardHealthTracker tracker = new ShardHealthTracker(1, 60000);
+        final RecordingStrategy recordingStrategy = new RecordingStrategy();
+        final CircuitBreakingShardAccessStrategy strategy =
+                new CircuitBreakingShardAccessStrategy(recordingStrategy, tracker);
+
+        strategy.apply(Lists.newArrayList(goodShard), new ReadOnlyNameOperation(), new NamesExitStrategy(), null);
+        assertTrue(recordingStrategy.operation instanceof ReadOnlyShardOperation);
+        assertTrue(!(recordingStrategy.operation instanceof ReplicableShardOperation));
+
+        strategy.apply(Lists.newArrayList(goodShard), new ReplicableNameOperation(), new NamesExitStrategy(), null);
+        assertTrue(recordingStrategy.operation instanceof ReplicableShardOperation);
+    }
+
+    private static Shard newShard(final int id) {
+        return new ShardDefaultMock() {
+            @Override
+            public Set<ShardId> getShardIds() {
+                return Collections.singleton(new ShardId(id));
+            }
+        };
+    }
+
+    /**
+     * Returns the name of the shard, failing on shard 1.
+     */
+    private static class NameOperation implements ShardOperation<String> {
+
+        private int executions;
+
+        @Override
+        public String execute(final Shard shard) {
+            executions++;
+            final int id = shard.getShardIds().iterator().next().getId();
+            if (id == 1) {
+                throw new HibernateException("shard 1 is down");
+            }
+            return "shard " + id;
+        }
+
+        @Override
+        public String getOperationName() {
+            return "name()";
+        }
+    }
+
+    private static class ReplicableNameOperation extends NameOperation implements ReplicableShardOperation<String> {
+    }
+
+    private static class ReadOnlyNameOperation extends NameOperation implements ReadOnlyShardOperation<String> {
+    }
+
+    private static class NamesExitStrategy implements ExitStrategy<String> {
+
+        private final List<String> names = Lists.newArrayList();
+
+        @Override
+        public boolean addResult(final String result, final Shard shard) {
+            names.add(result);
+            return false;
+        }
+
+        @Override
+        public String compileResults(final ExitOperationsCollector exitOperationsCollector) {
+            return names.toString();
+        }
+    }
+
+    private static class PartialNamesExitStrategy extends NamesExitStrategy
+            implements PartialResultExitStrategy<String> {
+
+        private final List<Shard> skippedShards = Lists.newArrayList();
+
+        private final List<Shard> failedShards = Lists.newArrayList();
+
+        @Override
+        public void addTimedOutShard(final Shard shard) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addSkippedShard(final Shard shard) {
+            skippedShards.add(shard);
+        }
+
+        @Override
+        public void addFailedShard(final Shard shard, final RuntimeException cause) {
+            failedShards.add(shard);
+        }
+    }
+
+    private static class RecordingStrategy implements ShardAccessStrategy {
+
+        private ShardOperation<?> operation;
+
+        @Override
+        public <T> T apply(final List<Shard> shards,
+                           final ShardOperation<T> operation,
+                           final ExitStrategy<T> exitStrategy,
+                           final ExitOperationsCollector exitOperationsCollector) {
+
+            this.operation = operation;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.classic.Session;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.shards.ReadOnlyShardOperation;
+import org.hibernate.shards.ReplicableShardOperation;
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.defaultmock.SessionDefaultMock;
+import org.hibernate.shards.defaultmock.SessionFactoryDefaultMock;
+import org.hibernate.shards.strategy.exit.ConcatenateListsExitStrategy;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Maps;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HedgedShardAccessStrategyTest {
+
+    private final SessionFactoryImplementor replicaSessionFactory = new SessionFactoryDefaultMock();
+
+    private ThreadPoolExecutor executor;
+
+    // released at the end of each test so slow operations don't hold on to threads
+    private CountDownLatch release;
+
+    private Map<ShardId, SessionFactoryImplementor> replicas;
+
+    private volatile boolean queryCancelled;
+
+    @Before
+    public void setUp() {
+        executor = new ThreadPoolExecutor(4, 4, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        release = new CountDownLatch(1);
+        replicas = Maps.newHashMap();
+        replicas.put(new ShardId(1), replicaSessionFactory);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCtorWithInvalidPercentile() {
+        new HedgedShardAccessStrategy(executor, replicas, 1.5, 10);
+    }
+
+    @Test
+    public void testApplyWithoutHedging() {
+        final HedgedShardAccessStrategy strategy = new HedgedShardAccessStrategy(executor, replicas, 0.95, 10000);
+        final List<Object> results = strategy.apply(
+                Lists.newArrayList(newShard(0), newShard(1)), new NameOperation(), new ConcatenateListsExitStrategy(),
+                new SortingCollector());
+        assertEquals(Lists.<Object>newArrayList("primary 0", "primary 1"), results);
+    }
+
+    @Test
+    public void testSlowShardIsHedged() {
+        final HedgedShardAccessStrategy strategy = new HedgedShardAccessStrategy(executor, replicas, 0.95, 50);
+        final NameOperation operation = new NameOperation();
+        operation.slowShardId = 1;
+        final List<Object> results = strategy.apply(
+                Lists.newArrayList(newShard(0), newShard(1)), operation, new ConcatenateListsExitStrategy(),
+                new SortingCollector());
+        assertEquals(Lists.<Object>newArrayList("primary 0", "replica 1"), results);
+        // the losing attempt on the shard used the shard's session, so it must have stopped
+        assertTrue(queryCancelled);
+        assertTrue(operation.slowShardDone);
+    }
+
+    @Test
+    public void testFailedShardIsRetriedOnReplica() {
+        final HedgedShardAccessStrategy strategy = new HedgedShardAccessStrategy(executor, replicas, 0.95, 10000);
+        final NameOperation operation = new NameOperation();
+        operation.failingShardId = 1;
+        final List<Object> results = strategy.apply(
+                Lists.newArrayList(newShard(0), newShard(1)), operation, new ConcatenateListsExitStrategy(),
+                new SortingCollector());
+        assertEquals(Lists.<Object>newArrayList("primary 0", "replica 1"), results);
+    }
+
+    @Test
+    public void testFailureWithoutReplicaIsRethrown() {
+        final HedgedShardAccessStrategy strategy = new HedgedShardAccessStrategy(executor, replicas, 0.95, 10000);
+        final NameOperation operation = new NameOperation();
+        operation.failingShardId = 2;
+        try {
+            strategy.apply(Lists.newArrayList(newShard(0), newShard(2)), operation, new ConcatenateListsExitStrategy(),
+                    new SortingCollector());
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // good
+        }
+    }
+
+    @Test
+    public void testWritesAreNotHedged() {
+        final HedgedShardAccessStrategy strategy = new HedgedShardAccessStrategy(executor, replicas, 0.95, 0);
+        final AtomicInteger executions = new AtomicInteger();
+        final ShardOperation<List<Object>> operation = new ShardOperation<List<Object>>() {
+            @Override
+            public List<Object> execute(final Shard shard) {
+                executions.incrementAndGet();
+                return Collections.<Object>singletonList(shard.getSessionFactoryImplementor() == replicaSessionFactory);
+            }
+
+            @Override
+            public String getOperationName() {
+                return "executeUpdate()";
+            }
+        };
+        final List<Object> results = strategy.apply(
+                Lists.newArrayList(newShard(1)), operation, new ConcatenateListsExitStrategy(), new SortingCollector());
+        assertEquals(Lists.<Object>newArrayList(false), results);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void testCriteriaAndQueryOperationsAreNotHedged() {
+        final HedgedShardAccessStrategy strategy = new HedgedShardAccessStrategy(executor, replicas, 0.95, 0);
+        final AtomicInteger executions = new AtomicInteger();
+        final ShardOperation<List<Object>> operation = new ReadOnlyShardOperation<List<Object>>() {
+            @Override
+            public List<Object> execute(final Shard shard) {
+                executions.incrementAndGet();
+                return Collections.<Object>singletonList(shard.getSessionFactoryImplementor() == replicaSessionFactory);
+            }
+
+            @Override
+            public String getOperationName() {
+                return "list()";
+            }
+        };
+        final List<Object> results = strategy.apply(
+                Lists.newArrayList(newShard(1)), operation, new ConcatenateListsExitStrategy(), new SortingCollector());
+        assertEquals(Lists.<Object>newArrayList(false), results);
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void testHedgeDelayFollowsObservedLatencies() {
+        final HedgedShardAccessStrategy strategy = new HedgedShardAccessStrategy(executor, replicas, 0.5, 10000);
+        final NameOperation operation = new NameOperation();
+        assertEquals(10000, strategy.getHedgeDelayMillis(operation));
+        for (int i = 0; i < 20; i++) {
+            strategy.apply(Lists.newArrayList(newShard(0)), operation, new ConcatenateListsExitStrategy(),
+                    new SortingCollector());
+        }
+        assertEquals(true, strategy.getHedgeDelayMillis(operation) < 10000);
+    }
+
+    /**
+     * @return a shard whose session releases slow operations when its query is cancelled
+     */
+    private Shard newShard(final int id) {
+        final Session session = new SessionDefaultMock() {
+            @Override
+            public void cancelQuery() {
+                queryCancelled = true;
+                release.countDown();
+            }
+        };
+        return new ShardDefaultMock() {
+            @Override
+            public Set<ShardId> getShardIds() {
+                return Collections.singleton(new ShardId(id));
+            }
+
+            @Override
+            public Session getSession() {
+                return session;
+            }
+
+            @Override
+            public SessionFactoryImplementor getSessionFactoryImplementor() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Returns whether it ran against the primary or the replica together with
+     * the shard id.
+     */
+    private class NameOperation implements ReplicableShardOperation<List<Object>> {
+
+        private int slowShardId = -1;
+
+        private int failingShardId = -1;
+
+        private volatile boolean slowShardDone;
+
+        @Override
+        public List<Object> execute(final Shard shard) {
+            final int shardId = shard.getShardIds().iterator().next().getId();
+            if (shard.getSessionFactoryImplementor() == replicaSessionFactory) {
+                return Collections.<Object>singletonList("replica " + shardId);
+            }
+            if (shardId == failingShardId) {
+                throw new IllegalStateException();
+            }
+            if (shardId == slowShardId) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    slowShardDone = true;
+                }
+            }
+            return Collections.<Object>singletonList("primary " + shardId);
+        }
+
+        @Override
+        public String getOperationName() {
+            return "name()";
+        }
+    }
+
+    private static class SortingCollector implements ExitOperationsCollector {
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public List<Object> apply(final List<Object> result) {
+            final List sorted = Lists.newArrayList(result);
+            Collections.sort(sorted);
+            return sorted;
+        }
+
+        @Override
+        public List<Object> applyToOrderedResult(final List<Object> result) {
+            return apply(result);
+        }
+
+        @Override
+        public void setSessionFactory(final SessionFactoryImplementor sessionFactoryImplementor) {
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyWindowTest {
+
+    @Test
+    public void testPercentile() {
+        final LatencyWindow window = new LatencyWindow(10);
+        assertEquals(-1, window.percentile(0.5));
+        for (int i = 10; i >= 1; i--) {
+            window.record(i);
+        }
+        assertEquals(10, window.size());
+        assertEquals(5, window.percentile(0.5));
+        assertEquals(9, window.percentile(0.9));
+        assertEquals(10, window.percentile(1));
+        assertEquals(1, window.percentile(0));
+    }
+
+    @Test
+    public void testOldestSamplesAreEvicted() {
+        final LatencyWindow window = new LatencyWindow(3);
+        window.record(100);
+        window.record(1);
+        window.record(2);
+        window.record(3);
+        assertEquals(3, window.size());
+        assertEquals(3, window.percentile(1));
+    }
+}
@@ -18,15 +18,418 @@
 
 package org.hibernate.shards.strategy.access;
 
+import org.hibernate.HibernateException;
+import org.hibernate.classic.Session;
+import org.hibernate.shards.ReadOnlyShardOperation;
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.defaultmock.SessionDefaultMock;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.strategy.exit.FirstNonNullResultExitStrategy;
+import org.hibernate.shards.strategy.exit.PartialResultCollectingExitStrategy;
+import org.hibernate.shards.strategy.exit.PartialResultExitStrategy;
+import org.hibernate.shards.strategy.exit.ShardFailure;
+import org.hibernate.shards.util.Lists;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 /**
  * @author maxr@google.com (Max Ross)
  */
 public class ParallelShardAccessStrategyTest {
 
+    private ThreadPoolExecutor executor;
+
+    // released at the end of each test so slow operations don't hold on to threads
+    private CountDownLatch release;
+
+    // released once the operation on shard 1 has started
+    private CountDownLatch shard1Started;
+
+    // released once a cancellable operation on shard 1 has stopped
+    private CountDownLatch shard1Done;
+
+    @Before
+    public void setUp() {
+        executor = new ThreadPoolExecutor(3, 3, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        release = new CountDownLatch(1);
+        shard1Started = new CountDownLatch(1);
+        shard1Done = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
     @Test(expected = NullPointerException.class)
     public void testCtor() {
         new ParallelShardAccessStrategy(null);
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCtorWithNegativeTimeout() {
+        new ParallelShardAccessStrategy(executor, -1);
+    }
+
+    @Test
+    public void testApplyWithoutTimeout() {
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        release.countDown();
+        final String result = strategy.apply(
+                Lists.newArrayList(newShard(0), newShard(1)), new NameOperation(), new RecordingExitStrategy(), null);
+        assertEquals("[shard 0, shard 1]", result);
+    }
+
+    @Test
+    public void testApplyTimesOut() {
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        final List<Shard> shards = Lists.newArrayList(newShard(0), newShard(1), newShard(2));
+        try {
+            strategy.apply(shards, new NameOperation(), new RecordingExitStrategy(), null, 1);
+            fail("expected ShardAccessTimeoutException");
+        } catch (ShardAccessTimeoutException e) {
+            assertEquals(Collections.singletonList(new ShardId(1)), e.getTimedOutShardIds());
+        }
+    }
+
+    @Test
+    public void testDefaultTimeout() {
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor, 1);
+        final List<Shard> shards = Lists.newArrayList(newShard(1), newShard(2));
+        try {
+            strategy.apply(shards, new NameOperation(), new RecordingExitStrategy(), null);
+            fail("expected ShardAccessTimeoutException");
+        } catch (ShardAccessTimeoutException e) {
+            assertEquals(Collections.singletonList(new ShardId(1)), e.getTimedOutShardIds());
+        }
+    }
+
+    @Test
+    public void testApplyTimesOutWithPartialResults() {
+        final CountDownLatch queryCancelled = new CountDownLatch(1);
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        final Shard slowShard = newCancellableShard(1, queryCancelled);
+        final PartialRecordingExitStrategy exitStrategy = new PartialRecordingExitStrategy();
+        final CancellableNameOperation operation = new CancellableNameOperation(queryCancelled);
+        final String result = strategy.apply(
+                Lists.newArrayList(newShard(0), slowShard, newShard(2)), operation, exitStrategy, null, 1);
+
+        assertEquals("[shard 0, shard 2]", result);
+        assertEquals(Collections.singletonList(slowShard), exitStrategy.timedOutShards);
+        // the slow shard's query was cancelled and we waited for it to stop
+        assertEquals(0, queryCancelled.getCount());
+        assertEquals(0, shard1Done.getCount());
+        assertEquals(2, exitStrategy.results.size());
+    }
+
+    @Test
+    public void testApplyFailsIfTimedOutShardDoesNotStop() {
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        final PartialRecordingExitStrategy exitStrategy = new PartialRecordingExitStrategy();
+        try {
+            // writes don't get their queries cancelled, so shard 1 keeps going
+            strategy.apply(Lists.newArrayList(newShard(0), newShard(1)), new NameOperation(), exitStrategy, null, 1);
+            fail("expected ShardAccessTimeoutException");
+        } catch (ShardAccessTimeoutException e) {
+            assertEquals(Collections.singletonList(new ShardId(1)), e.getTimedOutShardIds());
+        }
+    }
+
+    @Test
+    public void testApplyAsync() throws Exception {
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        final Future<String> result = strategy.applyAsync(
+                Lists.newArrayList(newShard(0), newShard(1), newShard(2)), new NameOperation(), new RecordingExitStrategy(), null);
+
+        // shard 1 is blocked so we must have returned without waiting for it
+        assertFalse(result.isDone());
+        release.countDown();
+        assertEquals("[shard 0, shard 1, shard 2]", result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testApplyAsyncWithoutShards() throws Exception {
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        final Future<String> result =
+                strategy.applyAsync(Lists.<Shard>newArrayList(), new NameOperation(), new RecordingExitStrategy(), null);
+        assertEquals("[]", result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCancelApplyAsync() throws Exception {
+        final ThreadPoolExecutor singleThreadExecutor =
+                new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        try {
+            final CountDownLatch queryCancelled = new CountDownLatch(1);
+            final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(singleThreadExecutor);
+            final RecordingExitStrategy exitStrategy = new RecordingExitStrategy();
+            final Future<String> result = strategy.applyAsync(
+                    Lists.newArrayList(newCancellableShard(1, queryCancelled), newShard(2)),
+                    new CancellableNameOperation(queryCancelled), exitStrategy, null);
+            // shard 1 blocks the only thread, so shard 2 can't have started
+            assertTrue(shard1Started.await(5, TimeUnit.SECONDS));
+            assertTrue(result.cancel(false));
+            assertTrue(result.isCancelled());
+            // cancel() returned only once shard 1 was done with its session
+            assertEquals(0, shard1Done.getCount());
+            assertFalse(result.cancel(false));
+
+            singleThreadExecutor.shutdown();
+            assertTrue(singleThreadExecutor.awaitTermination(5, TimeUnit.SECONDS));
+            assertTrue(exitStrategy.results.isEmpty());
+        } finally {
+            singleThreadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectedTaskAbandonsOperation() throws Exception {
+        // one thread and no queue, so the task for the second shard is rejected
+        final ThreadPoolExecutor saturatedExecutor =
+                new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+        try {
+            final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(saturatedExecutor);
+            final RecordingExitStrategy exitStrategy = new RecordingExitStrategy();
+            try {
+                strategy.apply(Lists.newArrayList(newShard(0), newShard(2)), new NameOperation(), exitStrategy, null);
+                fail("expected ShardAccessRejectedException");
+            } catch (ShardAccessRejectedException e) {
+                assertEquals(Collections.singletonList(new ShardId(2)), e.getRejectedShardIds());
+            }
+
+            // the task that was accepted must not have accessed its shard
+            saturatedExecutor.shutdown();
+            assertTrue(saturatedExecutor.awaitTermination(5, TimeUnit.SECONDS));
+            assertTrue(exitStrategy.results.isEmpty());
+        } finally {
+            saturatedExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailureIsRethrown() {
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        try {
+            strategy.apply(Lists.newArrayList(newShard(0), newShard(3)), new NameOperation(), new RecordingExitStrategy(), null);
+            fail("expected HibernateException");
+        } catch (HibernateException e) {
+            assertEquals("shard 3 is down", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testApplyAsyncFailure() throws Exception {
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        final Future<String> result = strategy.applyAsync(
+                Lists.newArrayList(newShard(0), newShard(3)), new NameOperation(), new RecordingExitStrategy(), null);
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertEquals("shard 3 is down", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testFailedShardWithPartialResults() {
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        final PartialResultCollectingExitStrategy<String> exitStrategy =
+                new PartialResultCollectingExitStrategy<String>(new RecordingExitStrategy());
+        release.countDown();
+        final String result = strategy.apply(
+                Lists.newArrayList(newShard(0), newShard(3), newShard(2)), new NameOperation(), exitStrategy, null);
+
+        assertEquals("[shard 0, shard 2]", result);
+        assertEquals(1, exitStrategy.getFailures().size());
+        final ShardFailure failure = exitStrategy.getFailures().get(0);
+        assertEquals(Collections.singletonList(new ShardId(3)), failure.getShardIds());
+        assertEquals(ShardFailure.Reason.FAILED, failure.getReason());
+        assertEquals("shard 3 is down", failure.getCause().getMessage());
+    }
+
+    @Test
+    public void testShortCircuitCancelsRunningQueries() {
+        final CountDownLatch queryCancelled = new CountDownLatch(1);
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        final String result = strategy.apply(
+                Lists.newArrayList(newShard(0), newCancellableShard(1, queryCancelled)),
+                new CancellableNameOperation(queryCancelled), new FirstNonNullResultExitStrategy<String>(), null);
+
+        assertEquals("shard 0", result);
+        assertEquals(0, queryCancelled.getCount());
+    }
+
+    @Test
+    public void testCancelApplyAsyncCancelsRunningQueries() throws Exception {
+        final CountDownLatch queryCancelled = new CountDownLatch(1);
+        final ParallelShardAccessStrategy strategy = new ParallelShardAccessStrategy(executor);
+        final Future<String> result = strategy.applyAsync(
+                Lists.newArrayList(newCancellableShard(1, queryCancelled)),
+                new CancellableNameOperation(queryCancelled), new FirstNonNullResultExitStrategy<String>(), null);
+
+        assertTrue(shard1Started.await(5, TimeUnit.SECONDS));
+        assertTrue(result.cancel(false));
+        assertTrue(queryCancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    private static Shard newShard(final int id) {
+        return new ShardDefaultMock() {
+            @Override
+            public Set<ShardId> getShardIds() {
+                return Collections.singleton(new ShardId(id));
+            }
+        };
+    }
+
+    /**
+     * Returns the name of the shard, blocking on shard 1 until the test is over
+     * and failing on shard 3.
+     */
+    private class NameOperation implements ShardOperation<String> {
+
+        @Override
+        public String execute(final Shard shard) {
+            final ShardId shardId = shard.getShardIds().iterator().next();
+            if (shardId.getId() == 1) {
+                shard1Started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            if (shardId.getId() == 3) {
+                throw new HibernateException("shard 3 is down");
+            }
+            return "shard " + shardId.getId();
+        }
+
+        @Override
+        public String getOperationName() {
+            return "name()";
+        }
+    }
+
+    /**
+     * @return a shard whose session counts the latch down when its query is cancelled
+     */
+    private static Shard newCancellableShard(final int id, final CountDownLatch queryCancelled) {
+        final Session session = new SessionDefaultMock() {
+            @Override
+            public void cancelQuery() {
+                queryCancelled.countDown();
+            }
+        };
+        return new ShardDefaultMock() {
+            @Override
+            public Set<ShardId> getShardIds() {
+                return Collections.singleton(new ShardId(id));
+            }
+
+            @Override
+            public Session getSession() {
+                return session;
+            }
+        };
+    }
+
+    /**
+     * Returns the name of shard 0 once shard 1 has started.  Shard 1 runs
+     * until its query is cancelled.
+     */
+    private class CancellableNameOperation implements ReadOnlyShardOperation<String> {
+
+        private final CountDownLatch queryCancelled;
+
+        CancellableNameOperation(final CountDownLatch queryCancelled) {
+            this.queryCancelled = queryCancelled;
+        }
+
+        @Override
+        public String execute(final Shard shard) {
+            final ShardId shardId = shard.getShardIds().iterator().next();
+            try {
+                if (shardId.getId() == 1) {
+                    shard1Started.countDown();
+                    try {
+                        // generous, the other shards must not get to run before the test cancels
+                        queryCancelled.await(30, TimeUnit.SECONDS);
+                        throw new HibernateException("query cancelled");
+                    } finally {
+                        shard1Done.countDown();
+                    }
+                }
+                shard1Started.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return "shard " + shardId.getId();
+        }
+
+        @Override
+        public String getOperationName() {
+            return "cancellableName()";
+        }
+    }
+
+    private static class RecordingExitStrategy implements ExitStrategy<String> {
+
+        final List<String> results = Collections.synchronizedList(Lists.<String>newArrayList());
+
+        @Override
+        public boolean addResult(final String result, final Shard shard) {
+            results.add(result);
+            return false;
+        }
+
+        @Override
+        public String compileResults(final ExitOperationsCollector exitOperationsCollector) {
+            final List<String> sorted = Lists.newArrayList(results);
+            Collections.sort(sorted);
+            return sorted.toString();
+        }
+    }
+
+    private static class PartialRecordingExitStrategy extends RecordingExitStrategy
+            implements PartialResultExitStrategy<String> {
+
+        final List<Shard> timedOutShards = Lists.newArrayList();
+
+        @Override
+        public void addTimedOutShard(final Shard shard) {
+            timedOutShards.add(shard);
+        }
+
+        @Override
+        public void addSkippedShard(final Shard shard) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addFailedShard(final Shard shard, final RuntimeException cause) {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.ShardId;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ShardHealthTrackerTest {
+
+    private final Shard shard = newShard(0);
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        final ManualClockTracker tracker = new ManualClockTracker(3, 1.0, 0, 1000);
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        tracker.recordSuccess(tracker.tryAcquire(shard));
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        assertEquals(ShardHealthTracker.State.CLOSED, tracker.getState(shard));
+        assertNotNull(tracker.tryAcquire(shard));
+
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        assertEquals(ShardHealthTracker.State.OPEN, tracker.getState(shard));
+        assertNull(tracker.tryAcquire(shard));
+        // other shards are not affected
+        assertNotNull(tracker.tryAcquire(newShard(1)));
+    }
+
+    @Test
+    public void testOpensOnFailureRate() {
+        final ManualClockTracker tracker = new ManualClockTracker(100, 0.5, 4, 1000);
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        tracker.recordSuccess(tracker.tryAcquire(shard));
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        // the window is not full yet
+        assertEquals(ShardHealthTracker.State.CLOSED, tracker.getState(shard));
+        tracker.recordSuccess(tracker.tryAcquire(shard));
+        assertEquals(ShardHealthTracker.State.CLOSED, tracker.getState(shard));
+        // half of the last four failed
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        assertEquals(ShardHealthTracker.State.OPEN, tracker.getState(shard));
+    }
+
+    @Test
+    public void testHalfOpenProbe() {
+        final ManualClockTracker tracker = new ManualClockTracker(1, 1.0, 0, 1000);
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        tracker.advance(999);
+        assertNull(tracker.tryAcquire(shard));
+
+        tracker.advance(1);
+        ShardHealthTracker.Permit probe = tracker.tryAcquire(shard);
+        assertNotNull(probe);
+        assertEquals(ShardHealthTracker.State.HALF_OPEN, tracker.getState(shard));
+        // only one probe at a time
+        assertNull(tracker.tryAcquire(shard));
+
+        // a failed probe opens the circuit again
+        tracker.recordFailure(probe);
+        assertEquals(ShardHealthTracker.State.OPEN, tracker.getState(shard));
+        assertNull(tracker.tryAcquire(shard));
+
+        tracker.advance(1000);
+        probe = tracker.tryAcquire(shard);
+        tracker.recordSuccess(probe);
+        assertEquals(ShardHealthTracker.State.CLOSED, tracker.getState(shard));
+        assertNotNull(tracker.tryAcquire(shard));
+    }
+
+    @Test
+    public void testAbandonedProbe() {
+        final ManualClockTracker tracker = new ManualClockTracker(1, 1.0, 0, 1000);
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        tracker.advance(1000);
+        assertNotNull(tracker.tryAcquire(shard));
+
+        // the probe never reports back
+        tracker.advance(999);
+        assertNull(tracker.tryAcquire(shard));
+        tracker.advance(1);
+        assertNotNull(tracker.tryAcquire(shard));
+    }
+
+    @Test
+    public void testStaleOutcomesAreIgnored() {
+        final ManualClockTracker tracker = new ManualClockTracker(1, 1.0, 0, 1000);
+        final ShardHealthTracker.Permit slow = tracker.tryAcquire(shard);
+        tracker.recordFailure(tracker.tryAcquire(shard));
+        // let through before the circuit opened
+        tracker.recordSuccess(slow);
+        assertEquals(ShardHealthTracker.State.OPEN, tracker.getState(shard));
+
+        tracker.advance(1000);
+        final ShardHealthTracker.Permit abandoned = tracker.tryAcquire(shard);
+        tracker.advance(1000);
+        final ShardHealthTracker.Permit probe = tracker.tryAcquire(shard);
+        // the first probe was given up on
+        tracker.recordSuccess(abandoned);
+        tracker.recordFailure(abandoned);
+        assertEquals(ShardHealthTracker.State.HALF_OPEN, tracker.getState(shard));
+
+        tracker.recordSuccess(probe);
+        assertEquals(ShardHealthTracker.State.CLOSED, tracker.getState(shard));
+        // the circuit closed after these were let through
+        tracker.recordFailure(slow);
+        tracker.recordFailure(abandoned);
+        assertEquals(ShardHealthTracker.State.CLOSED, tracker.getState(shard));
+    }
+
+    @Test
+    public void testShardObjectsWithTheSameIdsShareACircuit() {
+        final ManualClockTracker tracker = new ManualClockTracker(1, 1.0, 0, 1000);
+        tracker.recordFailure(tracker.tryAcquire(newShard(0)));
+        assertNull(tracker.tryAcquire(newShard(0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFailureRateOutOfRange() {
+        new ShardHealthTracker(1, 1.5, 10, 1000);
+    }
+
+    private static Shard newShard(final int id) {
+        return new ShardDefaultMock() {
+            @Override
+            public Set<ShardId> getShardIds() {
+                return Collections.singleton(new ShardId(id));
+            }
+        };
+    }
+
+    private static class ManualClockTracker extends ShardHealthTracker {
+
+        private long now;
+
+        ManualClockTracker(final int failureThreshold,
+                           final double failureRateThreshold,
+                           final int windowSize,
+                           final long openDurationMillis) {
+
+            super(failureThreshold, failureRateThreshold, windowSize, openDurationMillis);
+        }
+
+        void advance(final long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+    }
+}
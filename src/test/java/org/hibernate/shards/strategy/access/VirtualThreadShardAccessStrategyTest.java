@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.access;
+
+import org.hibernate.shards.Shard;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.ShardId;
+import org.hibernate.shards.ShardOperation;
+import org.hibernate.shards.strategy.exit.ExitOperationsCollector;
+import org.hibernate.shards.strategy.exit.ExitStrategy;
+import org.hibernate.shards.util.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadShardAccessStrategyTest {
+
+    @Test
+    public void testFallsBackToPool() {
+        final VirtualThreadShardAccessStrategy strategy = new VirtualThreadShardAccessStrategy(null, 2, 0);
+        try {
+            assertFalse(strategy.isUsingVirtualThreads());
+            final List<Shard> shards = Lists.newArrayList(newShard(0), newShard(1), newShard(2));
+            final CountingOperation operation = new CountingOperation();
+            final Integer result = strategy.apply(shards, operation, new SummingExitStrategy(false), null);
+            assertEquals(Integer.valueOf(3), result);
+            assertEquals(3, operation.executions.get());
+        } finally {
+            strategy.shutdown();
+        }
+    }
+
+    @Test
+    public void testUsesThreadPerTaskExecutor() {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final VirtualThreadShardAccessStrategy strategy = new VirtualThreadShardAccessStrategy(executor, 2, 0);
+        try {
+            assertTrue(strategy.isUsingVirtualThreads());
+            final Integer result = strategy.apply(
+                    Lists.newArrayList(newShard(0), newShard(1)), new CountingOperation(), new SummingExitStrategy(false), null);
+            assertEquals(Integer.valueOf(2), result);
+        } finally {
+            strategy.shutdown();
+        }
+    }
+
+    @Test
+    public void testShortCircuit() {
+        // a single thread runs the operations one after the other, so once the
+        // first one halts processing the others are cancelled before they start
+        final VirtualThreadShardAccessStrategy strategy = new VirtualThreadShardAccessStrategy(null, 1, 0);
+        try {
+            final CountingOperation operation = new CountingOperation();
+            final Integer result = strategy.apply(
+                    Lists.newArrayList(newShard(0), newShard(1), newShard(2)), operation, new SummingExitStrategy(true), null);
+            assertEquals(Integer.valueOf(1), result);
+            assertEquals(1, operation.executions.get());
+        } finally {
+            strategy.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveFallbackPoolSize() {
+        new VirtualThreadShardAccessStrategy(null, 0, 0);
+    }
+
+    private static Shard newShard(final int id) {
+        return new ShardDefaultMock() {
+            @Override
+            public Set<ShardId> getShardIds() {
+                return Collections.singleton(new ShardId(id));
+            }
+        };
+    }
+
+    private static class CountingOperation implements ShardOperation<Integer> {
+
+        private final AtomicInteger executions = new AtomicInteger();
+
+        @Override
+        public Integer execute(final Shard shard) {
+            executions.incrementAndGet();
+            return 1;
+        }
+
+        @Override
+        public String getOperationName() {
+            return "count";
+        }
+    }
+
+    private static class SummingExitStrategy implements ExitStrategy<Integer> {
+
+        private final boolean haltAfterFirstResult;
+        private int sum;
+
+        SummingExitStrategy(final boolean haltAfterFirstResult) {
+            this.haltAfterFirstResult = haltAfterFirstResult;
+        }
+
+        @Override
+        public synchronized boolean addResult(final Integer result, final Shard shard) {
+            sum += result;
+            return haltAfterFirstResult;
+        }
+
+        @Override
+        public synchronized Integer compileResults(final ExitOperationsCollector exitOperationsCollector) {
+            return sum;
+        }
+    }
+}
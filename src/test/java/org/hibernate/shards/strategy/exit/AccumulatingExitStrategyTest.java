@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.criterion.AggregateProjection;
+import org.hibernate.criterion.Projections;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.util.Lists;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AccumulatingExitStrategyTest {
+
+    @Test
+    public void testRowCount() {
+        final AccumulatingExitStrategy strategy =
+                new AccumulatingExitStrategy(new RowCountExitOperation(Projections.rowCount()).newAccumulator());
+        assertFalse(strategy.addResult(values(1, null, 3), new ShardDefaultMock()));
+        assertFalse(strategy.addResult(Collections.emptyList(), new ShardDefaultMock()));
+        assertFalse(strategy.addResult(values(4), new ShardDefaultMock()));
+
+        assertEquals(Collections.<Object>singletonList(3), strategy.compileResults(null));
+    }
+
+    @Test
+    public void testMinMax() {
+        assertEquals(Collections.<Object>singletonList(1), accumulate(Projections.min("value"),
+                values(5, null, 3), values(1, 9), values()));
+        assertEquals(Collections.<Object>singletonList(9), accumulate(Projections.max("value"),
+                values(5, null, 3), values(1, 9), values()));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testMaxOfNothing() {
+        accumulate(Projections.max("value"), values(), values((Object) null));
+    }
+
+    @Test
+    public void testSum() {
+        assertEquals(Collections.<Object>singletonList(new BigDecimal("10.5")), accumulate(Projections.sum("value"),
+                values(1, null, 2.5), values(7L)));
+        assertEquals(Collections.singletonList(null), accumulate(Projections.sum("value")));
+    }
+
+    @Test
+    public void testMatchesApply() {
+        final List<Object> shard1 = values(4, 8, null);
+        final List<Object> shard2 = values(15, 16, 23, 42);
+        final List<Object> all = Lists.newArrayList(shard1);
+        all.addAll(shard2);
+
+        for (final AggregateProjection projection : Lists.newArrayList(
+                Projections.min("value"), Projections.max("value"), Projections.sum("value"))) {
+            assertEquals(new AggregateExitOperation(projection).apply(all), accumulate(projection, shard1, shard2));
+        }
+        assertEquals(new RowCountExitOperation(Projections.rowCount()).apply(all),
+                accumulate(new RowCountExitOperation(Projections.rowCount()), shard1, shard2));
+    }
+
+    private static List<Object> accumulate(final AggregateProjection projection, final List<?>... results) {
+        return accumulate(new AggregateExitOperation(projection), results);
+    }
+
+    private static List<Object> accumulate(final IncrementalExitOperation operation, final List<?>... results) {
+        final AccumulatingExitStrategy strategy = new AccumulatingExitStrategy(operation.newAccumulator());
+        for (final List<?> result : results) {
+            strategy.addResult(Lists.<Object>newArrayList(result), new ShardDefaultMock());
+        }
+        return strategy.compileResults(null);
+    }
+
+    private static List<Object> values(final Object... values) {
+        return Lists.newArrayList(values);
+    }
+}
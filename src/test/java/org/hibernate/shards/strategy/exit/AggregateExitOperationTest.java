@@ -34,7 +34,6 @@ import org.hibernate.shards.util.StringUtil;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -95,7 +94,7 @@ public class AggregateExitOperationTest extends TestCase {
         AggregateExitOperation exitOp = new AggregateExitOperation(Projections.sum("value"));
 
         List<Object> result = exitOp.apply(data);
-        assertEquals(new BigDecimal(11.0), result.get(0));
+        assertEquals(11L, result.get(0));
     }
 
     public void testMax() throws Exception {
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.shards.criteria.ShardedProjections;
+import org.hibernate.shards.util.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ApproximateAggregateExitOperationTest {
+
+    @Test
+    public void testCountDistinctMergesShards() {
+        final ApproximateAggregateExitOperation op =
+                new ApproximateAggregateExitOperation(ShardedProjections.approxCountDistinct("name"));
+        assertEquals("name", op.getShardProjection().toString());
+
+        final ExitOperationAccumulator accumulator = op.newAccumulator();
+        accumulator.add(Lists.<Object>newArrayList("a", "b", null));
+        accumulator.add(Lists.<Object>newArrayList("b", "c"));
+        assertEquals(Collections.<Object>singletonList(3L), accumulator.getResult());
+    }
+
+    @Test
+    public void testPercentileMergesShards() {
+        final ApproximateAggregateExitOperation op =
+                new ApproximateAggregateExitOperation(ShardedProjections.approxPercentile("value", 0.5));
+        assertTrue(op.getShardProjection() instanceof ProjectionList);
+
+        final ExitOperationAccumulator accumulator = op.newAccumulator();
+        accumulator.add(Lists.<Object>newArrayList(new Object[]{10, 1L}, new Object[]{null, 5L}));
+        accumulator.add(Lists.<Object>newArrayList(new Object[]{20, 2L}, new Object[]{30, 1L}));
+        assertEquals(Collections.<Object>singletonList(20.0), accumulator.getResult());
+    }
+
+    @Test
+    public void testPercentileOfNoValuesIsNull() {
+        final ApproximateAggregateExitOperation op =
+                new ApproximateAggregateExitOperation(ShardedProjections.approxPercentile("value", 0.5));
+        assertEquals(Collections.singletonList(null), op.apply(Collections.emptyList()));
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.util.Lists;
+import org.hibernate.shards.util.Sets;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class DistinctExitStrategyTest {
+
+    @Test
+    public void testDropsRowsOfOtherShards() {
+        final DistinctExitStrategy strategy = new DistinctExitStrategy();
+        strategy.addResult(Lists.<Object>newArrayList(
+                new Object[]{1, "a"}, new Object[]{2, "b"}, null), new ShardDefaultMock());
+        strategy.addResult(Lists.<Object>newArrayList(
+                new Object[]{2, "b"}, new Object[]{2, "c"}), new ShardDefaultMock());
+
+        final List<Object> results = strategy.compileResults(new PassThroughCollector());
+        assertEquals(3, results.size());
+        assertEquals(Sets.newHashSet("1a", "2b", "2c"), keys(results));
+    }
+
+    @Test
+    public void testManyRows() {
+        final DistinctExitStrategy strategy = new DistinctExitStrategy();
+        final List<Object> shardResult = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            shardResult.add(new Object[]{i % 300, "x" + (i % 3)});
+        }
+        strategy.addResult(shardResult, new ShardDefaultMock());
+        strategy.addResult(shardResult, new ShardDefaultMock());
+
+        final List<Object> results = strategy.compileResults(new PassThroughCollector());
+        assertEquals(300, results.size());
+        assertEquals(300, keys(results).size());
+    }
+
+    private static Set<String> keys(final List<Object> rows) {
+        final Set<String> keys = Sets.newHashSet();
+        for (final Object row : rows) {
+            final Object[] columns = (Object[]) row;
+            keys.add(String.valueOf(columns[0]) + columns[1]);
+        }
+        return keys;
+    }
+
+    private static class PassThroughCollector implements ExitOperationsCollector {
+
+        @Override
+        public List<Object> apply(final List<Object> result) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Object> applyToOrderedResult(final List<Object> result) {
+            return result;
+        }
+
+        @Override
+        public void setSessionFactory(final SessionFactoryImplementor sessionFactoryImplementor) {
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void testSmallCountsAreExact() {
+        final HyperLogLog sketch = new HyperLogLog();
+        assertEquals(0, sketch.estimate());
+        for (int i = 0; i < 3; i++) {
+            sketch.add(1);
+            sketch.add("b");
+            sketch.add(2.5);
+        }
+        assertEquals(3, sketch.estimate());
+    }
+
+    @Test
+    public void testEstimateIsWithinTwoPercent() {
+        final HyperLogLog sketch = new HyperLogLog();
+        for (long i = 0; i < 1000000; i++) {
+            sketch.add(i);
+        }
+        assertEquals(1000000, sketch.estimate(), 20000);
+    }
+
+    @Test
+    public void testMergeCountsTheUnion() {
+        final HyperLogLog shard1 = new HyperLogLog();
+        final HyperLogLog shard2 = new HyperLogLog();
+        for (int i = 0; i < 60000; i++) {
+            shard1.add("value" + i);
+            shard2.add("value" + (i + 40000));
+        }
+        shard1.merge(shard2);
+        assertEquals(100000, shard1.estimate(), 2000);
+    }
+}
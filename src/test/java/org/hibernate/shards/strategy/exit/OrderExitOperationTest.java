@@ -35,6 +35,7 @@ import org.hibernate.shards.util.StringUtil;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -210,4 +211,70 @@ public class OrderExitOperationTest extends TestCase {
         assertEquals(5, sortedList.get(3).getValue());
         assertEquals(27, sortedList.get(4).getValue());
     }
+
+    @SuppressWarnings("unchecked")
+    public void testApplyWithNullSortKeys() {
+        List<Object> data = Lists.newArrayList();
+        data.add(new MyInt(2, "tomislav", null));
+        data.add(new MyInt(1, null, null));
+        data.add(new MyInt(3, "max", null));
+        data.add(new MyInt(4, null, null));
+
+        OrderExitOperation operation =
+                new OrderExitOperation(Collections.singletonList(new InMemoryOrderBy(null, Order.asc("name"))));
+        List<MyInt> sortedList = (List<MyInt>) (List) operation.apply(data);
+
+        // nulls come first and keep their relative order
+        assertEquals(1, sortedList.get(0).getValue());
+        assertEquals(4, sortedList.get(1).getValue());
+        assertEquals("max", sortedList.get(2).getName());
+        assertEquals("tomislav", sortedList.get(3).getName());
+
+        operation = new OrderExitOperation(Collections.singletonList(new InMemoryOrderBy(null, Order.desc("name"))));
+        sortedList = (List<MyInt>) (List) operation.apply(data);
+
+        assertEquals("tomislav", sortedList.get(0).getName());
+        assertEquals("max", sortedList.get(1).getName());
+        assertEquals(1, sortedList.get(2).getValue());
+        assertEquals(4, sortedList.get(3).getValue());
+    }
+
+    public void testComparatorWithNullSortKeys() {
+        Comparator<Object> comparator = OrderExitOperation.buildComparator(
+                Collections.singletonList(new InMemoryOrderBy(null, Order.asc("name"))));
+        MyInt nullName = new MyInt(1, null, null);
+        MyInt otherNullName = new MyInt(2, null, null);
+        MyInt max = new MyInt(3, "max", null);
+
+        assertTrue(comparator.compare(nullName, max) < 0);
+        assertTrue(comparator.compare(max, nullName) > 0);
+        assertEquals(0, comparator.compare(nullName, otherNullName));
+        assertEquals(0, comparator.compare(otherNullName, nullName));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testApplyMixedIntegralSortKeys() {
+        List<Object> data = Lists.newArrayList();
+        data.add(new MyInt(3, "long", null) {
+            @Override
+            public Number getValue() {
+                return 3L;
+            }
+        });
+        data.add(new MyInt(1, "integer", null));
+        data.add(new MyInt(2, "short", null) {
+            @Override
+            public Number getValue() {
+                return (short) 2;
+            }
+        });
+
+        OrderExitOperation operation =
+                new OrderExitOperation(Collections.singletonList(new InMemoryOrderBy(null, Order.desc("value"))));
+        List<MyInt> sortedList = (List<MyInt>) (List) operation.apply(data);
+
+        assertEquals("long", sortedList.get(0).getName());
+        assertEquals("short", sortedList.get(1).getName());
+        assertEquals("integer", sortedList.get(2).getName());
+    }
 }
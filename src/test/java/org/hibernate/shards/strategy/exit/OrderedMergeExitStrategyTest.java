@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.criteria.InMemoryOrderBy;
+import org.hibernate.shards.util.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OrderedMergeExitStrategyTest {
+
+    public static class Row {
+
+        private final int value;
+        private final String name;
+
+        public Row(final int value, final String name) {
+            this.value = value;
+            this.name = name;
+        }
+
+        public Integer getValue() {
+            return value;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Test
+    public void testMergeAscending() {
+        final OrderedMergeExitStrategy strategy = new OrderedMergeExitStrategy(
+                Collections.singletonList(new InMemoryOrderBy(null, Order.asc("value"))), null);
+        strategy.addResult(rows(1, 4, 7), new ShardDefaultMock());
+        strategy.addResult(rows(2, 5, 8), new ShardDefaultMock());
+        strategy.addResult(Collections.emptyList(), new ShardDefaultMock());
+        strategy.addResult(rows(3, 6, 9), new ShardDefaultMock());
+
+        assertValues(strategy.merge(), 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    @Test
+    public void testMergeMultipleOrderings() {
+        final List<InMemoryOrderBy> orders = Lists.newArrayList(
+                new InMemoryOrderBy(null, Order.desc("value")),
+                new InMemoryOrderBy(null, Order.asc("name")));
+        final OrderedMergeExitStrategy strategy = new OrderedMergeExitStrategy(orders, null);
+
+        final List<Object> shard1 = Lists.<Object>newArrayList(new Row(3, "b"), new Row(2, "a"));
+        final List<Object> shard2 = Lists.<Object>newArrayList(new Row(3, "a"), new Row(1, "c"));
+        strategy.addResult(shard1, new ShardDefaultMock());
+        strategy.addResult(shard2, new ShardDefaultMock());
+
+        final List<Object> merged = strategy.merge();
+        assertValues(merged, 3, 3, 2, 1);
+        assertEquals("a", ((Row) merged.get(0)).getName());
+        assertEquals("b", ((Row) merged.get(1)).getName());
+    }
+
+    @Test
+    public void testMergeStopsAtResultLimit() {
+        final OrderedMergeExitStrategy strategy = new OrderedMergeExitStrategy(
+                Collections.singletonList(new InMemoryOrderBy(null, Order.desc("value"))), 4);
+        strategy.addResult(rows(9, 6, 3), new ShardDefaultMock());
+        strategy.addResult(rows(8, 5, 2), new ShardDefaultMock());
+        strategy.addResult(rows(7, 4, 1), new ShardDefaultMock());
+
+        assertValues(strategy.merge(), 9, 8, 7, 6);
+    }
+
+    @Test
+    public void testMergeSkipsNulls() {
+        final OrderedMergeExitStrategy strategy = new OrderedMergeExitStrategy(
+                Collections.singletonList(new InMemoryOrderBy(null, Order.asc("value"))), null);
+        final List<Object> withNulls = rows(1, 3);
+        withNulls.add(1, null);
+        strategy.addResult(withNulls, new ShardDefaultMock());
+        strategy.addResult(rows(2), new ShardDefaultMock());
+
+        assertValues(strategy.merge(), 1, 2, 3);
+    }
+
+    @Test
+    public void testDistinctMergeDropsRowsOfOtherShards() {
+        final DistinctExitOperation distinct = new DistinctExitOperation(Projections.distinct(
+                Projections.projectionList().add(Projections.property("value")).add(Projections.property("name"))));
+        final OrderedMergeExitStrategy strategy = new OrderedMergeExitStrategy(
+                distinct.buildComparator(Collections.singletonList(new InMemoryOrderBy(null, Order.asc("value")))),
+                null, true);
+        // rows with the same value but different names are not duplicates
+        strategy.addResult(Lists.<Object>newArrayList(
+                new Object[]{1, "a"}, new Object[]{1, "b"}, new Object[]{2, "a"}), new ShardDefaultMock());
+        strategy.addResult(Lists.<Object>newArrayList(
+                new Object[]{1, "b"}, new Object[]{1, "c"}, new Object[]{2, "a"}, new Object[]{3, "a"}),
+                new ShardDefaultMock());
+
+        final List<Object> merged = strategy.merge();
+        assertEquals(5, merged.size());
+        assertArrayEquals(new Object[]{1, "a"}, (Object[]) merged.get(0));
+        assertArrayEquals(new Object[]{1, "b"}, (Object[]) merged.get(1));
+        assertArrayEquals(new Object[]{1, "c"}, (Object[]) merged.get(2));
+        assertArrayEquals(new Object[]{2, "a"}, (Object[]) merged.get(3));
+        assertArrayEquals(new Object[]{3, "a"}, (Object[]) merged.get(4));
+    }
+
+    @Test
+    public void testDistinctMergeStopsAtResultLimit() {
+        final DistinctExitOperation distinct =
+                new DistinctExitOperation(Projections.distinct(Projections.property("value").as("v")));
+        final OrderedMergeExitStrategy strategy = new OrderedMergeExitStrategy(
+                distinct.buildComparator(Collections.singletonList(new InMemoryOrderBy(null, Order.desc("v")))),
+                2, true);
+        strategy.addResult(Lists.<Object>newArrayList(9, 7, 5), new ShardDefaultMock());
+        strategy.addResult(Lists.<Object>newArrayList(9, 8), new ShardDefaultMock());
+
+        assertEquals(Lists.<Object>newArrayList(9, 8), strategy.merge());
+    }
+
+    @Test
+    public void testCompileResultsSkipsInMemoryOrdering() {
+        final OrderedMergeExitStrategy strategy = new OrderedMergeExitStrategy(
+                Collections.singletonList(new InMemoryOrderBy(null, Order.asc("value"))), 2);
+        strategy.addResult(rows(1, 3), new ShardDefaultMock());
+        strategy.addResult(rows(2, 4), new ShardDefaultMock());
+
+        final boolean[] orderedCalled = {false};
+        final List<Object> result = strategy.compileResults(new ExitOperationsCollector() {
+            @Override
+            public List<Object> apply(final List<Object> result) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<Object> applyToOrderedResult(final List<Object> result) {
+                orderedCalled[0] = true;
+                return result;
+            }
+
+            @Override
+            public void setSessionFactory(final SessionFactoryImplementor sessionFactoryImplementor) {
+            }
+        });
+        assertTrue(orderedCalled[0]);
+        assertValues(result, 1, 2);
+    }
+
+    private static List<Object> rows(final int... values) {
+        final List<Object> rows = Lists.newArrayList();
+        for (final int value : values) {
+            rows.add(new Row(value, String.valueOf(value)));
+        }
+        return rows;
+    }
+
+    private static void assertValues(final List<Object> rows, final int... expected) {
+        assertEquals(expected.length, rows.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(Integer.valueOf(expected[i]), ((Row) rows.get(i)).getValue());
+        }
+    }
+}
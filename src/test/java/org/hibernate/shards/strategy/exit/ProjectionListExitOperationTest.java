@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
+import org.hibernate.shards.util.Lists;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ProjectionListExitOperationTest {
+
+    @Test
+    public void testShardProjectionReplacesAverages() {
+        final ProjectionListExitOperation operation = new ProjectionListExitOperation(Projections.projectionList()
+                .add(Projections.groupProperty("tenant"))
+                .add(Projections.avg("amount"), "average")
+                .add(Projections.rowCount()));
+        assertEquals("[tenant, sum(amount) as average, count(*), count(amount)]",
+                operation.getShardProjection().toString());
+    }
+
+    @Test
+    public void testMergesPartialAggregatesPerGroup() {
+        final ProjectionListExitOperation operation = new ProjectionListExitOperation(Projections.projectionList()
+                .add(Projections.groupProperty("tenant"))
+                .add(Projections.groupProperty("year"))
+                .add(Projections.rowCount())
+                .add(Projections.sum("amount"))
+                .add(Projections.min("amount"))
+                .add(Projections.max("amount"))
+                .add(Projections.avg("amount")));
+
+        final ExitOperationAccumulator accumulator = operation.newAccumulator();
+        // tenant, year, count, sum, min, max, sum for avg, count for avg
+        accumulator.add(Lists.<Object>newArrayList(
+                new Object[]{"a", 2010, 2L, new BigDecimal("3.5"), new BigDecimal("1.5"), new BigDecimal("2"),
+                        new BigDecimal("3.5"), 2L},
+                new Object[]{"b", 2010, 1L, null, null, null, null, 0L}));
+        accumulator.add(Lists.<Object>newArrayList(
+                new Object[]{"a", 2011, 1L, new BigDecimal("4"), new BigDecimal("4"), new BigDecimal("4"),
+                        new BigDecimal("4"), 1L},
+                new Object[]{"a", 2010, 1L, new BigDecimal("1"), new BigDecimal("1"), new BigDecimal("1"),
+                        new BigDecimal("1"), 1L}));
+
+        final List<Object> rows = accumulator.getResult();
+        assertEquals(3, rows.size());
+        assertArrayEquals(new Object[]{"a", 2010, 3L, new BigDecimal("4.5"), new BigDecimal("1"), new BigDecimal("2"),
+                1.5}, (Object[]) rows.get(0));
+        assertArrayEquals(new Object[]{"b", 2010, 1L, null, null, null, null}, (Object[]) rows.get(1));
+        assertArrayEquals(new Object[]{"a", 2011, 1L, new BigDecimal("4"), new BigDecimal("4"), new BigDecimal("4"),
+                4.0}, (Object[]) rows.get(2));
+    }
+
+    @Test
+    public void testMergesUngroupedAggregates() {
+        final ProjectionListExitOperation operation = new ProjectionListExitOperation(Projections.projectionList()
+                .add(Projections.sum("amount"))
+                .add(Projections.max("ts"))
+                .add(Projections.rowCount()));
+
+        final ExitOperationAccumulator accumulator = operation.newAccumulator();
+        accumulator.add(Collections.<Object>singletonList(new Object[]{5L, 100L, 2L}));
+        // a shard without rows
+        accumulator.add(Collections.<Object>singletonList(new Object[]{null, null, 0L}));
+        accumulator.add(Collections.<Object>singletonList(new Object[]{7L, 90L, 3L}));
+        final List<Object> rows = accumulator.getResult();
+        assertEquals(1, rows.size());
+        assertArrayEquals(new Object[]{12L, 100L, 5L}, (Object[]) rows.get(0));
+    }
+
+    @Test
+    public void testUngroupedAggregatesOfNoShards() {
+        final ProjectionListExitOperation operation = new ProjectionListExitOperation(Projections.projectionList()
+                .add(Projections.sum("amount"))
+                .add(Projections.rowCount()));
+        final List<Object> rows = operation.apply(Collections.emptyList());
+        assertEquals(1, rows.size());
+        assertArrayEquals(new Object[]{null, 0L}, (Object[]) rows.get(0));
+    }
+
+    @Test
+    public void testSingleGroupColumn() {
+        final ProjectionListExitOperation operation =
+                new ProjectionListExitOperation(Projections.projectionList().add(Projections.groupProperty("tenant")));
+        final List<Object> rows = operation.apply(Lists.<Object>newArrayList("a", "b", "a", null));
+        assertEquals(Lists.<Object>newArrayList("a", "b"), rows);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testDistinctCountCannotBeMerged() {
+        final ProjectionList projectionList = Projections.projectionList()
+                .add(Projections.groupProperty("tenant"))
+                .add(Projections.countDistinct("user"));
+        new ProjectionListExitOperation(projectionList);
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PropertyAccessorCacheTest {
+
+    private static final String MAPPING =
+            "<?xml version=\"1.0\"?>\n"
+            + "<!DOCTYPE hibernate-mapping PUBLIC \"-//Hibernate/Hibernate Mapping DTD 3.0//EN\""
+            + " \"http://www.hibernate.org/dtd/hibernate-mapping-3.0.dtd\">\n"
+            + "<hibernate-mapping package=\"org.hibernate.shards.strategy.exit\" default-access=\"field\">"
+            + "  <class name=\"PropertyAccessorCacheTest$Widget\" table=\"WIDGET\" lazy=\"false\">"
+            + "    <id name=\"id\" type=\"long\"/>"
+            + "    <property name=\"label\" type=\"string\"/>"
+            + "    <component name=\"size\" class=\"PropertyAccessorCacheTest$Size\">"
+            + "      <property name=\"width\" type=\"int\"/>"
+            + "    </component>"
+            + "  </class>"
+            + "</hibernate-mapping>";
+
+    private SessionFactoryImplementor sessionFactory;
+
+    @Before
+    public void setUp() {
+        sessionFactory = buildSessionFactory();
+    }
+
+    @After
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testFieldAccessIsRespected() {
+        final PropertyAccessorCache cache = PropertyAccessorCache.forSessionFactory(sessionFactory);
+        final Widget widget = new Widget(3L, "three", 7);
+
+        assertEquals(3L, cache.getPropertyValue(widget, "id"));
+        assertEquals("three", cache.getPropertyValue(widget, "label"));
+        assertEquals(7, cache.getPropertyValue(widget, "size.width"));
+        // cached accessors are reused for other objects of the same class
+        assertEquals("four", cache.getPropertyValue(new Widget(4L, "four", 8), "label"));
+
+        widget.size = null;
+        assertNull(cache.getPropertyValue(widget, "size.width"));
+    }
+
+    @Test
+    public void testWithoutSessionFactoryGettersAreUsed() {
+        final PropertyAccessorCache cache = PropertyAccessorCache.forSessionFactory(null);
+        final Widget widget = new Widget(3L, "three", 7);
+
+        assertEquals("getter:three", cache.getPropertyValue(widget, "label"));
+        assertEquals(-7, cache.getPropertyValue(widget, "size.width"));
+    }
+
+    @Test
+    public void testForSessionFactory() {
+        assertSame(PropertyAccessorCache.forSessionFactory(null), PropertyAccessorCache.forSessionFactory(null));
+        assertSame(PropertyAccessorCache.forSessionFactory(sessionFactory),
+                PropertyAccessorCache.forSessionFactory(sessionFactory));
+    }
+
+    @Test
+    public void testClosedSessionFactoryCanBeCollected() throws InterruptedException {
+        SessionFactoryImplementor other = buildSessionFactory();
+        PropertyAccessorCache cache = PropertyAccessorCache.forSessionFactory(other);
+        assertEquals(3L, cache.getPropertyValue(new Widget(3L, "three", 7), "id"));
+        assertEquals(7, cache.getPropertyValue(new Widget(3L, "three", 7), "size.width"));
+        other.close();
+
+        final WeakReference<SessionFactoryImplementor> ref = new WeakReference<SessionFactoryImplementor>(other);
+        other = null;
+        cache = null;
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(ref.get());
+    }
+
+    private static SessionFactoryImplementor buildSessionFactory() {
+        final Configuration config = new Configuration()
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.HSQLDialect")
+                .setProperty("hibernate.connection.driver_class", "org.hsqldb.jdbcDriver")
+                .setProperty("hibernate.connection.url", "jdbc:hsqldb:mem:accessors")
+                .setProperty("hibernate.connection.username", "sa")
+                .addXML(MAPPING);
+        return (SessionFactoryImplementor) config.buildSessionFactory();
+    }
+
+    /**
+     * Getters return something other than the fields so we can tell which one
+     * was used.
+     */
+    public static class Widget {
+
+        private Long id;
+        private String label;
+        private Size size;
+
+        Widget() {
+        }
+
+        Widget(final Long id, final String label, final int width) {
+            this.id = id;
+            this.label = label;
+            this.size = new Size(width);
+        }
+
+        public Long getId() {
+            return -id;
+        }
+
+        public String getLabel() {
+            return "getter:" + label;
+        }
+
+        public Size getSize() {
+            return size;
+        }
+    }
+
+    public static class Size {
+
+        private int width;
+
+        Size() {
+        }
+
+        Size(final int width) {
+            this.width = width;
+        }
+
+        public int getWidth() {
+            return -width;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.type.BigDecimalType;
+import org.hibernate.type.IntegerType;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SumCombinerTest {
+
+    @Test
+    public void testEmptySumIsNull() {
+        assertNull(new SumCombiner().getResult());
+        assertNull(new SumCombiner(IntegerType.INSTANCE).getResult());
+    }
+
+    @Test
+    public void testIntegralValuesSumToLong() {
+        final SumCombiner sum = new SumCombiner(IntegerType.INSTANCE);
+        sum.add(1);
+        sum.add(2);
+        sum.add(3L);
+        assertEquals(6L, sum.getResult());
+    }
+
+    @Test
+    public void testLongOverflowPromotesToBigInteger() {
+        final SumCombiner sum = new SumCombiner();
+        sum.add(Long.MAX_VALUE);
+        sum.add(1);
+        sum.add(Long.MAX_VALUE);
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1).add(BigInteger.ONE), sum.getResult());
+    }
+
+    @Test
+    public void testFloatingPointValuesSumToDouble() {
+        final SumCombiner sum = new SumCombiner();
+        sum.add(1.5);
+        sum.add(2.5f);
+        sum.add(1);
+        assertEquals(5.0, sum.getResult());
+    }
+
+    @Test
+    public void testTypeSelectsBigDecimal() {
+        final SumCombiner sum = new SumCombiner(BigDecimalType.INSTANCE);
+        sum.add(1);
+        sum.add(new BigDecimal("2.25"));
+        assertEquals(new BigDecimal("3.25"), sum.getResult());
+    }
+
+    @Test
+    public void testMixedValuesPromoteToBigDecimal() {
+        final SumCombiner sum = new SumCombiner();
+        sum.add(1L);
+        sum.add(new BigDecimal("0.1"));
+        sum.add(new BigInteger("2"));
+        assertEquals(new BigDecimal("3.1"), sum.getResult());
+    }
+}
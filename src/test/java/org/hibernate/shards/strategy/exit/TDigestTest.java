@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TDigestTest {
+
+    @Test
+    public void testEmptyDigestHasNoQuantiles() {
+        assertNull(new TDigest().quantile(0.5));
+    }
+
+    @Test
+    public void testWeightedValues() {
+        final TDigest digest = new TDigest();
+        digest.add(10, 1);
+        digest.add(20, 2);
+        digest.add(30, 1);
+        assertEquals(10.0, digest.quantile(0), 0);
+        assertEquals(20.0, digest.quantile(0.5), 0);
+        assertEquals(30.0, digest.quantile(1), 0);
+    }
+
+    @Test
+    public void testQuantilesAreWithinOnePercentOfTheValues() {
+        final Random random = new Random(42);
+        final TDigest digest = new TDigest();
+        for (int i = 0; i < 100000; i++) {
+            digest.add(random.nextDouble() * 1000, 1);
+        }
+        assertEquals(500, digest.quantile(0.5), 10);
+        assertEquals(990, digest.quantile(0.99), 10);
+        assertEquals(10, digest.quantile(0.01), 10);
+    }
+
+    @Test
+    public void testMergeDigestsTheUnion() {
+        final TDigest shard1 = new TDigest();
+        final TDigest shard2 = new TDigest();
+        for (int i = 0; i < 10000; i++) {
+            shard1.add(i, 1);
+            shard2.add(i + 10000, 1);
+        }
+        shard1.merge(shard2);
+        assertEquals(10000, shard1.quantile(0.5), 200);
+        assertEquals(0.0, shard1.quantile(0), 0);
+        assertEquals(19999.0, shard1.quantile(1), 0);
+    }
+}
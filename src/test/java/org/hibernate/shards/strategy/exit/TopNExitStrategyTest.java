@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.strategy.exit;
+
+import org.hibernate.criterion.Order;
+import org.hibernate.shards.ShardDefaultMock;
+import org.hibernate.shards.criteria.InMemoryOrderBy;
+import org.hibernate.shards.strategy.exit.OrderedMergeExitStrategyTest.Row;
+import org.hibernate.shards.util.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TopNExitStrategyTest {
+
+    @Test
+    public void testKeepsBestResults() {
+        final TopNExitStrategy strategy = new TopNExitStrategy(orderBy(Order.asc("value")), 4);
+        strategy.addResult(rows(5, 6, 7, 8), new ShardDefaultMock());
+        strategy.addResult(rows(1, 3, 9), new ShardDefaultMock());
+        strategy.addResult(Collections.emptyList(), new ShardDefaultMock());
+        strategy.addResult(rows(2, 4), new ShardDefaultMock());
+
+        assertValues(strategy.drain(), 1, 2, 3, 4);
+    }
+
+    @Test
+    public void testDescending() {
+        final TopNExitStrategy strategy = new TopNExitStrategy(orderBy(Order.desc("value")), 3);
+        strategy.addResult(rows(9, 6, 3), new ShardDefaultMock());
+        strategy.addResult(rows(8, 5, 2), new ShardDefaultMock());
+        strategy.addResult(rows(7, 4, 1), new ShardDefaultMock());
+
+        assertValues(strategy.drain(), 9, 8, 7);
+    }
+
+    @Test
+    public void testTiesKeepArrivalOrder() {
+        final TopNExitStrategy strategy = new TopNExitStrategy(orderBy(Order.asc("value")), 3);
+        strategy.addResult(Lists.<Object>newArrayList(new Row(1, "a"), new Row(2, "b")), new ShardDefaultMock());
+        strategy.addResult(Lists.<Object>newArrayList(new Row(1, "c"), new Row(2, "d")), new ShardDefaultMock());
+
+        final List<Object> result = strategy.drain();
+        assertValues(result, 1, 1, 2);
+        assertEquals("a", ((Row) result.get(0)).getName());
+        assertEquals("c", ((Row) result.get(1)).getName());
+        assertEquals("b", ((Row) result.get(2)).getName());
+    }
+
+    @Test
+    public void testSkipsNullsAndZeroLimit() {
+        final TopNExitStrategy strategy = new TopNExitStrategy(orderBy(Order.asc("value")), 2);
+        final List<Object> withNulls = rows(2, 3);
+        withNulls.add(0, null);
+        strategy.addResult(withNulls, new ShardDefaultMock());
+        assertValues(strategy.drain(), 2, 3);
+
+        final TopNExitStrategy empty = new TopNExitStrategy(orderBy(Order.asc("value")), 0);
+        empty.addResult(rows(1), new ShardDefaultMock());
+        assertTrue(empty.drain().isEmpty());
+    }
+
+    private static List<InMemoryOrderBy> orderBy(final Order order) {
+        return Collections.singletonList(new InMemoryOrderBy(null, order));
+    }
+
+    private static List<Object> rows(final int... values) {
+        final List<Object> rows = Lists.newArrayList();
+        for (final int value : values) {
+            rows.add(new Row(value, String.valueOf(value)));
+        }
+        return rows;
+    }
+
+    private static void assertValues(final List<Object> rows, final int... expected) {
+        assertEquals(expected.length, rows.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(Integer.valueOf(expected[i]), ((Row) rows.get(i)).getValue());
+        }
+    }
+}
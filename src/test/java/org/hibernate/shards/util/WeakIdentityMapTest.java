@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+
+package org.hibernate.shards.util;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class WeakIdentityMapTest {
+
+    @Test
+    public void testKeysAreComparedByIdentity() {
+        final WeakIdentityMap<String, Integer> map = new WeakIdentityMap<String, Integer>();
+        final String key = new String("key");
+        final String equalKey = new String("key");
+
+        map.put(key, 1);
+        assertEquals(Integer.valueOf(1), map.get(key));
+        assertNull(map.get(equalKey));
+
+        map.put(equalKey, 2);
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(1), map.get(key));
+        assertEquals(Integer.valueOf(2), map.get(equalKey));
+
+        map.put(key, 3);
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(3), map.get(key));
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        final WeakIdentityMap<Object, Integer> map = new WeakIdentityMap<Object, Integer>();
+        final Object key1 = new Object();
+        final Object key2 = new Object();
+        map.put(key1, 1);
+        map.put(key2, 2);
+
+        map.remove(key1);
+        assertNull(map.get(key1));
+        assertEquals(Integer.valueOf(2), map.get(key2));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(key2));
+    }
+
+    @Test
+    public void testCollectedKeysArePurged() throws Exception {
+        final WeakIdentityMap<Object, Integer> map = new WeakIdentityMap<Object, Integer>();
+        map.put(new Object(), 1);
+        for (int i = 0; i < 50 && map.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testConcurrentPutsAndGets() throws Exception {
+        final WeakIdentityMap<Object, Integer> map = new WeakIdentityMap<Object, Integer>();
+        final int threads = 8;
+        final int keysPerThread = 10000;
+        final List<Object[]> keys = Lists.newArrayList();
+        final List<Callable<Void>> tasks = Lists.newArrayList();
+        for (int t = 0; t < threads; t++) {
+            final Object[] threadKeys = new Object[keysPerThread];
+            for (int i = 0; i < keysPerThread; i++) {
+                threadKeys[i] = new Object();
+            }
+            keys.add(threadKeys);
+            final int value = t;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (final Object key : threadKeys) {
+                        map.put(key, value);
+                        assertEquals(Integer.valueOf(value), map.get(key));
+                    }
+                    return null;
+                }
+            });
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (final Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * keysPerThread, map.size());
+        for (int t = 0; t < threads; t++) {
+            for (final Object key : keys.get(t)) {
+                assertEquals(Integer.valueOf(t), map.get(key));
+            }
+        }
+    }
+}